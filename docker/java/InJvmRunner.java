@@ -0,0 +1,424 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilePermission;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.StandardProtocolFamily;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+import java.security.Permission;
+import java.security.Permissions;
+import java.security.Policy;
+import java.security.ProtectionDomain;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PropertyPermission;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Long-lived runner that lives inside a warm java-runner container. The worker
+ * connects to its Unix socket and sends one line, {@code RUN <file>}; the
+ * runner compiles every .java file in the workspace in memory, runs the main
+ * class in a fresh class loader and streams the output back in frames of
+ * {@code [type, 0, 0, 0, length(4 bytes)] payload}, where type 1 is stdout,
+ * 2 is stderr and 3 is the final JSON status.
+ * <p>
+ * Submission classes are defined in a protection domain that may only read
+ * and write files under the workspace and read system properties; sockets,
+ * property and locale changes, System.setOut and the like are denied. A job
+ * that leaves any thread behind, including work on the common fork-join pool,
+ * is reported as not clean and the worker retires the container.
+ */
+public class InJvmRunner {
+    private static final int STDOUT = 1;
+    private static final int STDERR = 2;
+    private static final int STATUS = 3;
+
+    private static final JavaCompiler COMPILER = ToolProvider.getSystemJavaCompiler();
+    // Reused across jobs so the JDK's module images are opened only once.
+    private static final StandardJavaFileManager STANDARD_FILE_MANAGER = COMPILER.getStandardFileManager(null,
+            Locale.ROOT, StandardCharsets.UTF_8);
+    private static final Path CPU_STAT = Path.of("/sys/fs/cgroup/cpu.stat");
+    private static final Path MEMORY_PEAK = Path.of("/sys/fs/cgroup/memory.peak");
+    private static volatile boolean jobRunning;
+    private static ProtectionDomain submissionDomain;
+
+    public static void main(String[] args) throws Exception {
+        Path socket = Path.of(args.length > 0 ? args[0] : "/run/runner/runner.sock");
+        Path workspace = Path.of(args.length > 1 ? args[1] : "/app");
+
+        PrintStream log = System.err;
+
+        warmUp();
+
+        // Only the runner's own and the JDK's code get every permission.
+        submissionDomain = submissionDomain(workspace);
+        Policy.setPolicy(new Policy() {
+            @Override
+            public boolean implies(ProtectionDomain domain, Permission permission) {
+                return domain != submissionDomain;
+            }
+        });
+        System.setSecurityManager(new ExitGuard());
+
+        Files.deleteIfExists(socket);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            log.println("In-JVM runner listening on " + socket);
+            while (true) {
+                try (SocketChannel channel = server.accept()) {
+                    handle(channel, workspace);
+                } catch (IOException | RuntimeException e) {
+                    log.println("Runner request failed: " + e);
+                }
+            }
+        }
+    }
+
+    private static ProtectionDomain submissionDomain(Path workspace) {
+        String dir = workspace.toAbsolutePath().toString();
+        Permissions permissions = new Permissions();
+        permissions.add(new FilePermission(dir, "read"));
+        permissions.add(new FilePermission(dir + File.separator + "-", "read,write,delete"));
+        permissions.add(new PropertyPermission("*", "read"));
+        permissions.setReadOnly();
+        // The two-argument constructor fixes the permissions; the policy is never asked.
+        return new ProtectionDomain(new CodeSource(null, (CodeSigner[]) null), permissions);
+    }
+
+    /**
+     * Compiles and runs a trivial program a few times so the compiler is
+     * already JIT-compiled when the first submission arrives.
+     */
+    private static void warmUp() throws IOException {
+        Path dir = Files.createTempDirectory("runner-warmup");
+        Path source = dir.resolve("Warmup.java");
+        Files.writeString(source, "public class Warmup { public static void main(String[] a) {"
+                + " System.out.println(java.util.List.of(1, 2, 3).stream().mapToInt(i -> i).sum()); } }");
+        FrameWriter discard = new FrameWriter(OutputStream.nullOutputStream());
+        for (int i = 0; i < 10; i++) {
+            Map<String, byte[]> classes = compile(dir, discard);
+            if (classes != null) {
+                invokeMain(new MemoryClassLoader(classes), "Warmup", new PrintStream(OutputStream.nullOutputStream()));
+            }
+        }
+        Files.delete(source);
+        Files.delete(dir);
+    }
+
+    private static void handle(SocketChannel channel, Path workspace) throws IOException {
+        InputStream in = Channels.newInputStream(channel);
+        FrameWriter out = new FrameWriter(Channels.newOutputStream(channel));
+
+        String request = readLine(in);
+        if (!request.startsWith("RUN ")) {
+            out.status(2, 0, 0, true, true, null, -1);
+            return;
+        }
+        String mainFile = Path.of(request.substring(4).trim()).getFileName().toString();
+        String mainClass = mainFile.endsWith(".java") ? mainFile.substring(0, mainFile.length() - 5) : mainFile;
+
+        long[] cpuStart = cpuUsage();
+        long peakStart = peakMemory();
+        long compileStart = System.nanoTime();
+        Map<String, byte[]> classes = compile(workspace, out);
+        long compileMs = (System.nanoTime() - compileStart) / 1_000_000;
+        if (classes == null) {
+            out.status(1, compileMs, 0, true, false, cpuStart, peakStart);
+            return;
+        }
+
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        InputStream originalIn = System.in;
+        PrintStream jobOut = new PrintStream(out.stream(STDOUT), true, StandardCharsets.UTF_8);
+        PrintStream jobErr = new PrintStream(out.stream(STDERR), true, StandardCharsets.UTF_8);
+
+        int exitCode = 0;
+        boolean[] leftovers = new boolean[1];
+        long runStart = System.nanoTime();
+        try {
+            System.setOut(jobOut);
+            System.setErr(jobErr);
+            System.setIn(InputStream.nullInputStream());
+            jobRunning = true;
+            exitCode = runJob(new MemoryClassLoader(classes), mainClass, jobErr, leftovers);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exitCode = 1;
+        } finally {
+            jobRunning = false;
+            jobOut.flush();
+            jobErr.flush();
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+            System.setIn(originalIn);
+        }
+        out.status(exitCode, compileMs, (System.nanoTime() - runStart) / 1_000_000, !leftovers[0], true,
+                cpuStart, peakStart);
+    }
+
+    /**
+     * User and system CPU time of the container's cgroup in microseconds, or
+     * -1 where cgroup v2 accounting is not available.
+     */
+    private static long[] cpuUsage() {
+        long[] usage = { -1, -1 };
+        try {
+            for (String line : Files.readAllLines(CPU_STAT)) {
+                String[] parts = line.split(" ");
+                if (parts[0].equals("user_usec")) {
+                    usage[0] = Long.parseLong(parts[1]);
+                } else if (parts[0].equals("system_usec")) {
+                    usage[1] = Long.parseLong(parts[1]);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // No cgroup v2 accounting in this container.
+        }
+        return usage;
+    }
+
+    private static long peakMemory() {
+        try {
+            return Long.parseLong(Files.readString(MEMORY_PEAK).trim());
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Runs main on its own thread in a fresh thread group and waits for it.
+     * Returns the exit code; {@code leftovers[0]} is set when any thread the
+     * runner did not have before the job is still alive or the common pool is
+     * still busy, in which case the worker retires this container. Output is
+     * redirected process-wide, so such a thread would write into the next job.
+     */
+    private static int runJob(ClassLoader loader, String mainClass, PrintStream err, boolean[] leftovers)
+            throws InterruptedException {
+        Set<Thread> runnerThreads = new HashSet<>(Thread.getAllStackTraces().keySet());
+        ThreadGroup group = new ThreadGroup("submission");
+        int[] exitCode = new int[1];
+        Thread main = new Thread(group, () -> exitCode[0] = invokeMain(loader, mainClass, err), "main");
+        main.setContextClassLoader(loader);
+        main.start();
+        main.join();
+
+        long deadline = System.currentTimeMillis() + 50;
+        while (hasLeftovers(runnerThreads) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        leftovers[0] = hasLeftovers(runnerThreads);
+        return exitCode[0];
+    }
+
+    // Idle common pool workers count too: they outlive the job and could pick up its tasks.
+    private static boolean hasLeftovers(Set<Thread> runnerThreads) {
+        if (!ForkJoinPool.commonPool().isQuiescent()) {
+            return true;
+        }
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && !runnerThreads.contains(thread)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int invokeMain(ClassLoader loader, String mainClass, PrintStream err) {
+        try {
+            Method main = loader.loadClass(mainClass).getMethod("main", String[].class);
+            main.invoke(null, (Object) new String[0]);
+            return 0;
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ExitException) {
+                return ((ExitException) cause).status;
+            }
+            err.print("Exception in thread \"main\" ");
+            cause.printStackTrace(err);
+            return 1;
+        } catch (ExitException e) {
+            return e.status;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            err.println("Error: could not run main class " + mainClass + ": " + e);
+            return 1;
+        }
+    }
+
+    private static Map<String, byte[]> compile(Path workspace, FrameWriter out) throws IOException {
+        List<Path> sources;
+        try (Stream<Path> files = Files.walk(workspace)) {
+            sources = files.filter(p -> p.toString().endsWith(".java")).collect(Collectors.toList());
+        }
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        MemoryFileManager fileManager = new MemoryFileManager(STANDARD_FILE_MANAGER);
+        boolean success = COMPILER.getTask(null, fileManager, diagnostics, List.of("-proc:none"), null,
+                STANDARD_FILE_MANAGER.getJavaFileObjectsFromPaths(sources)).call();
+
+        if (!success) {
+            StringBuilder report = new StringBuilder();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                String source = diagnostic.getSource() == null ? "" : diagnostic.getSource().getName();
+                report.append(source).append(':').append(diagnostic.getLineNumber()).append(": ")
+                        .append(diagnostic.getKind().toString().toLowerCase(Locale.ROOT)).append(": ")
+                        .append(diagnostic.getMessage(Locale.ROOT)).append('\n');
+            }
+            out.frame(STDERR, report.toString().getBytes(StandardCharsets.UTF_8));
+            return null;
+        }
+        return fileManager.classes;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private static class FrameWriter {
+        private final OutputStream out;
+
+        FrameWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        synchronized void frame(int type, byte[] data) throws IOException {
+            frame(type, data, 0, data.length);
+        }
+
+        synchronized void frame(int type, byte[] data, int offset, int length) throws IOException {
+            out.write(new byte[] { (byte) type, 0, 0, 0,
+                    (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length });
+            out.write(data, offset, length);
+            out.flush();
+        }
+
+        // The runner's memory high-water mark spans every job it ran, so it is only reported when this job raised it.
+        void status(int exitCode, long compileMs, long runMs, boolean clean, boolean compiled, long[] cpuStart,
+                long peakStart) throws IOException {
+            long[] cpuEnd = cpuUsage();
+            long cpuUserMs = cpuStart == null || cpuStart[0] < 0 ? -1 : (cpuEnd[0] - cpuStart[0]) / 1000;
+            long cpuSystemMs = cpuStart == null || cpuStart[1] < 0 ? -1 : (cpuEnd[1] - cpuStart[1]) / 1000;
+            long peakEnd = peakMemory();
+            long peakMemoryBytes = peakEnd > peakStart ? peakEnd : -1;
+            String status = "{\"exitCode\":" + exitCode + ",\"compileMs\":" + compileMs + ",\"runMs\":" + runMs
+                    + ",\"clean\":" + clean + ",\"compiled\":" + compiled + ",\"cpuUserMs\":" + cpuUserMs + ",\"cpuSystemMs\":" + cpuSystemMs
+                    + ",\"peakMemoryBytes\":" + peakMemoryBytes + "}";
+            frame(STATUS, status.getBytes(StandardCharsets.UTF_8));
+        }
+
+        OutputStream stream(int type) {
+            return new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    frame(type, new byte[] { (byte) b });
+                }
+
+                @Override
+                public void write(byte[] data, int offset, int length) throws IOException {
+                    frame(type, data, offset, length);
+                }
+            };
+        }
+    }
+
+    private static class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+        private final Map<String, byte[]> classes = new HashMap<>();
+
+        MemoryFileManager(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension),
+                    kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+                        @Override
+                        public void close() {
+                            classes.put(className, toByteArray());
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    private static class MemoryClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        MemoryClassLoader(Map<String, byte[]> classes) {
+            super(ClassLoader.getPlatformClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length, submissionDomain);
+        }
+    }
+
+    private static class ExitException extends SecurityException {
+        private final int status;
+
+        ExitException(int status) {
+            super("System.exit(" + status + ")");
+            this.status = status;
+        }
+    }
+
+    /**
+     * Turns System.exit from a submission into an exception so the runner JVM
+     * survives it. Every other check is the stack-based default, which denies
+     * what the submission's protection domain does not grant.
+     */
+    private static class ExitGuard extends SecurityManager {
+        @Override
+        public void checkExit(int status) {
+            if (jobRunning) {
+                throw new ExitException(status);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.loadtest;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import com.model.TestCase;
+import com.util.DockerRunner;
+
+/**
+ * Runs nothing: every execution takes a latency drawn from the given
+ * distribution and prints a fixed RESULT line.
+ */
+public class FakeDockerRunner extends DockerRunner {
+    private static final String RESULT = "{\"ok\":true}";
+
+    private final LatencyDistribution latency;
+
+    public FakeDockerRunner(LatencyDistribution latency) {
+        super(null, null, null, null, null, null, "/sys/fs/cgroup", 8388608, 65536, 65536, 1048576, 100, 2000, 10000, 65536);
+        this.latency = latency;
+    }
+
+    @Override
+    public ExecutionResponse runContainer(String language, String localFilePath) throws Exception {
+        return execute();
+    }
+
+    @Override
+    public ExecutionResponse runBundle(String language, Path bundleDir, String entryPoint) throws Exception {
+        return execute();
+    }
+
+    @Override
+    public ExecutionResponse runTestCases(String language, Path source, String entryPoint, List<TestCase> cases,
+            long caseTimeoutMs) throws Exception {
+        return execute();
+    }
+
+    @Override
+    public int removeRunningContainers() {
+        return 0;
+    }
+
+    private ExecutionResponse execute() throws InterruptedException {
+        long start = System.nanoTime();
+        latency.sleep();
+        return new ExecutionResponse("RESULT:" + RESULT + "\n", RESULT, false, ExecutionResponse.Status.COMPLETED,
+                null, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,70 @@
+package com.loadtest;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A latency in milliseconds drawn from a distribution given as
+ * {@code constant:<ms>}, {@code uniform:<min>:<max>},
+ * {@code exponential:<mean>} or {@code lognormal:<median>:<sigma>}. A bare
+ * number is a constant.
+ */
+public final class LatencyDistribution {
+    private final String spec;
+    private final ToDoubleFunction<Random> millis;
+
+    private LatencyDistribution(String spec, ToDoubleFunction<Random> millis) {
+        this.spec = spec;
+        this.millis = millis;
+    }
+
+    public static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        try {
+            switch (parts[0]) {
+                case "constant": {
+                    double ms = Double.parseDouble(parts[1]);
+                    return new LatencyDistribution(spec, random -> ms);
+                }
+                case "uniform": {
+                    double min = Double.parseDouble(parts[1]);
+                    double max = Double.parseDouble(parts[2]);
+                    return new LatencyDistribution(spec, random -> min + (max - min) * random.nextDouble());
+                }
+                case "exponential": {
+                    double mean = Double.parseDouble(parts[1]);
+                    return new LatencyDistribution(spec, random -> -mean * Math.log(1 - random.nextDouble()));
+                }
+                case "lognormal": {
+                    double median = Double.parseDouble(parts[1]);
+                    double sigma = Double.parseDouble(parts[2]);
+                    return new LatencyDistribution(spec, random -> median * Math.exp(sigma * random.nextGaussian()));
+                }
+                default: {
+                    double ms = Double.parseDouble(parts[0]);
+                    return new LatencyDistribution(spec, random -> ms);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid latency distribution: " + spec);
+        }
+    }
+
+    public long sampleNanos() {
+        return Math.max(0, (long) (millis.applyAsDouble(ThreadLocalRandom.current()) * 1_000_000));
+    }
+
+    public void sleep() throws InterruptedException {
+        long nanos = sampleNanos();
+        if (nanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
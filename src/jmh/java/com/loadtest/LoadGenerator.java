@@ -0,0 +1,270 @@
+package com.loadtest;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.config.AwsConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.service.CodeDownloader;
+import com.service.ConcurrencyLimiter;
+import com.service.JobExecutor;
+import com.service.SourceQueues;
+import com.service.VisibilityExtender;
+import com.service.WorkerService;
+import com.service.WorkspaceManager;
+import com.util.BundleExtractor;
+import com.util.ConfiguredLanguageRuntime;
+import com.util.DedupeStore;
+import com.util.LanguageProperties;
+import com.util.LanguageRuntimes;
+import com.util.ResultCache;
+import com.util.ResultOffloader;
+import com.util.ResultPublisher;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Runs the real worker pipeline (pollers, executor, downloader, publisher,
+ * visibility extender) against in-process SQS and S3 stand-ins and a fake
+ * DockerRunner, pushes synthetic jobs through it and reports throughput,
+ * end-to-end latency and the time spent in each stage.
+ *
+ * <pre>
+ * mvn -P benchmarks test-compile exec:exec@load -Dload.args="--jobs=5000 --concurrency=16 --execute=lognormal:200:0.5"
+ * </pre>
+ *
+ * Options (defaults in brackets): --jobs [5000], --rate jobs/s, 0 for all at
+ * once [0], --concurrency [8], --queue-capacity [0], --threads [platform],
+ * --adaptive [false], --linger-ms [20], --source-bytes [2048],
+ * --timeout-seconds [600], --verbose [false] to keep the worker's log, and
+ * latencies as {@link LatencyDistribution}s: --execute [lognormal:100:0.5],
+ * --download [uniform:2:10], --sqs [constant:2].
+ */
+public class LoadGenerator {
+    private static final String REQUEST_QUEUE_URL = "local://requests";
+    private static final String RESPONSE_QUEUE_URL = "local://results";
+    private static final String JOB_PREFIX = "load-";
+    private static final List<String> STAGES = List.of("queued", "download", "execute", "total");
+    private static final double[] PERCENTILES = { 0.5, 0.9, 0.99 };
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int jobs = Integer.parseInt(options.getOrDefault("jobs", "5000"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "8"));
+        int queueCapacity = Integer.parseInt(options.getOrDefault("queue-capacity", "0"));
+        String threads = options.getOrDefault("threads", "platform");
+        boolean adaptive = Boolean.parseBoolean(options.getOrDefault("adaptive", "false"));
+        long lingerMs = Long.parseLong(options.getOrDefault("linger-ms", "20"));
+        int sourceBytes = Integer.parseInt(options.getOrDefault("source-bytes", "2048"));
+        long timeoutSeconds = Long.parseLong(options.getOrDefault("timeout-seconds", "600"));
+        boolean verbose = Boolean.parseBoolean(options.getOrDefault("verbose", "false"));
+        LatencyDistribution execute = LatencyDistribution.parse(options.getOrDefault("execute", "lognormal:100:0.5"));
+        LatencyDistribution download = LatencyDistribution.parse(options.getOrDefault("download", "uniform:2:10"));
+        LatencyDistribution sqs = LatencyDistribution.parse(options.getOrDefault("sqs", "constant:2"));
+
+        ObjectMapper objectMapper = AwsConfig.OBJECT_MAPPER;
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // Percentiles over the whole run rather than the last couple of minutes.
+        meterRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder()
+                        .percentiles(PERCENTILES)
+                        .expiry(Duration.ofDays(1))
+                        .bufferLength(1)
+                        .build()
+                        .merge(config);
+            }
+        });
+
+        LocalSqs localSqs = new LocalSqs(sqs);
+        LocalS3 localS3 = new LocalS3(download);
+        Path workspaceRoot = Files.createTempDirectory("load-workspaces");
+
+        SourceQueues sourceQueues = new SourceQueues("", REQUEST_QUEUE_URL);
+        JobExecutor jobExecutor = new JobExecutor(concurrency, queueCapacity, threads, sourceQueues);
+        VisibilityExtender visibilityExtender = new VisibilityExtender(localSqs, 60);
+        // Results are small, so they never reach LocalS3, which only serves downloads.
+        ResultOffloader resultOffloader = new ResultOffloader(localS3, "local", 0, "results/", 0, meterRegistry);
+        ResultPublisher resultPublisher = new ResultPublisher(localSqs, resultOffloader, meterRegistry, lingerMs);
+        CodeDownloader codeDownloader = new CodeDownloader(localS3, "local", 16, new BundleExtractor(1000, 33554432));
+        ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(jobExecutor, meterRegistry, adaptive, 1, 0, 5,
+                0.9, 0.1, 0.2, 2.0, "/proc");
+        DedupeStore dedupeStore = new DedupeStore(true, 3600, jobs, 262144, "");
+        WorkerService workerService = new WorkerService(localSqs, codeDownloader, new FakeDockerRunner(execute),
+                resultPublisher, objectMapper, jobExecutor, visibilityExtender, new ResultCache(false, 0, 0),
+                meterRegistry, new WorkspaceManager(jobExecutor, workspaceRoot.toString(), 0), sourceQueues,
+                concurrencyLimiter, new LanguageRuntimes(List.of(java())), dedupeStore);
+        ReflectionTestUtils.setField(workerService, "RESPONSE_QUEUE_URL", RESPONSE_QUEUE_URL);
+        ReflectionTestUtils.setField(workerService, "DEAD_LETTER_QUEUE_URL", "");
+        ReflectionTestUtils.setField(workerService, "drainSeconds", 30L);
+        ReflectionTestUtils.setField(workerService, "maxReceives", 5);
+
+        long[] sentAt = new long[jobs];
+        AtomicLongArray completedAt = new AtomicLongArray(jobs);
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(jobs);
+        localSqs.onMessage(RESPONSE_QUEUE_URL, body -> {
+            long now = System.nanoTime();
+            try {
+                JsonNode result = objectMapper.readTree(body);
+                int job = Integer.parseInt(result.get("jobId").asText().substring(JOB_PREFIX.length()));
+                // A redelivered job is answered again; only its first answer counts.
+                if (completedAt.compareAndSet(job, 0, now)) {
+                    if (!"success".equals(result.path("result").path("status").asText())) {
+                        failed.incrementAndGet();
+                    }
+                    done.countDown();
+                }
+            } catch (Exception e) {
+                System.err.println("Unexpected result message " + body + ": " + e);
+            }
+        });
+
+        byte[] source = new byte[sourceBytes];
+        Arrays.fill(source, (byte) 'x');
+        for (int i = 0; i < jobs; i++) {
+            localS3.put(key(i), source);
+        }
+
+        System.out.printf("Running %d jobs, rate=%s, concurrency=%d, execute=%s, download=%s, sqs=%s%n", jobs,
+                rate > 0 ? rate + "/s" : "unlimited", concurrency, execute, download, sqs);
+        PrintStream console = System.out;
+        if (!verbose) {
+            // The worker logs every job; errors still go to stderr.
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+        workerService.start();
+        long start = System.nanoTime();
+        for (int i = 0; i < jobs; i++) {
+            if (rate > 0) {
+                long due = start + (long) (i * 1e9 / rate);
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            sentAt[i] = System.nanoTime();
+            localSqs.enqueue(REQUEST_QUEUE_URL, "{\"jobId\":\"" + JOB_PREFIX + i + "\",\"language\":\"java\","
+                    + "\"s3Key\":\"" + key(i) + "\",\"cacheable\":false}");
+        }
+        boolean finished = done.await(timeoutSeconds, TimeUnit.SECONDS);
+        long end = System.nanoTime();
+
+        workerService.stop();
+        resultPublisher.shutdown();
+        visibilityExtender.shutdown();
+        concurrencyLimiter.shutdown();
+        codeDownloader.shutdown();
+        jobExecutor.shutdown();
+        localS3.close();
+        System.setOut(console);
+
+        report(jobs, finished, start, end, sentAt, completedAt, failed.get(), meterRegistry, localSqs);
+    }
+
+    private static void report(int jobs, boolean finished, long start, long end, long[] sentAt,
+            AtomicLongArray completedAt, int failed, SimpleMeterRegistry meterRegistry, LocalSqs localSqs) {
+        long[] latencies = new long[jobs];
+        int completed = 0;
+        long lastCompletion = start;
+        for (int i = 0; i < jobs; i++) {
+            long at = completedAt.get(i);
+            if (at != 0) {
+                latencies[completed++] = at - sentAt[i];
+                lastCompletion = Math.max(lastCompletion, at);
+            }
+        }
+        latencies = Arrays.copyOf(latencies, completed);
+        Arrays.sort(latencies);
+        double seconds = (lastCompletion - start) / 1e9;
+
+        System.out.println();
+        System.out.printf("Completed %d of %d jobs%s, %d failed%n", completed, jobs,
+                finished ? "" : " (timed out after " + Math.round((end - start) / 1e9) + "s)", failed);
+        System.out.printf("Throughput: %.1f jobs/s over %.2fs%n", completed / seconds, seconds);
+        if (completed > 0) {
+            System.out.printf("End to end (ms): p50 %.1f  p90 %.1f  p99 %.1f  max %.1f%n",
+                    percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+                    latencies[completed - 1] / 1e6);
+        }
+
+        System.out.println();
+        System.out.printf("%-10s %8s %9s %9s %9s %9s %9s%n", "stage (ms)", "count", "mean", "p50", "p90", "p99",
+                "max");
+        for (String stage : STAGES) {
+            for (Timer timer : meterRegistry.find("worker.job.stage").tag("stage", stage).timers()) {
+                HistogramSnapshot snapshot = timer.takeSnapshot();
+                Map<Double, Double> values = new LinkedHashMap<>();
+                for (ValueAtPercentile value : snapshot.percentileValues()) {
+                    values.put(value.percentile(), value.value(TimeUnit.MILLISECONDS));
+                }
+                System.out.printf("%-10s %8d %9.1f %9.1f %9.1f %9.1f %9.1f%n", stage, snapshot.count(),
+                        snapshot.mean(TimeUnit.MILLISECONDS), values.getOrDefault(0.5, 0.0),
+                        values.getOrDefault(0.9, 0.0), values.getOrDefault(0.99, 0.0),
+                        snapshot.max(TimeUnit.MILLISECONDS));
+            }
+        }
+
+        System.out.println();
+        for (Counter counter : meterRegistry.find("worker.job.outcome").counters()) {
+            System.out.printf("Outcome %-16s %8.0f%n", counter.getId().getTag("outcome"), counter.count());
+        }
+        for (DistributionSummary summary : meterRegistry.find("worker.publish.batch.size").summaries()) {
+            System.out.printf("Publish %-16s %8d batches, %.1f entries each%n", summary.getId().getTag("operation"),
+                    summary.count(), summary.mean());
+        }
+        localSqs.getCalls().forEach((operation, count) -> System.out.printf("SQS %-20s %8d calls%n", operation, count));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static String key(int job) {
+        return "load/" + job + "/Main.java";
+    }
+
+    private static ConfiguredLanguageRuntime java() {
+        LanguageProperties properties = new LanguageProperties();
+        properties.setImage("java-runner");
+        properties.setRun("java -cp /app {name}");
+        return new ConfiguredLanguageRuntime("java", properties);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+}
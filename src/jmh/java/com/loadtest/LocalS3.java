@@ -0,0 +1,68 @@
+package com.loadtest;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+/**
+ * In-process stand-in for S3 GETs. Objects are kept in memory and streamed to
+ * the caller's response transformer after a latency drawn from the given
+ * distribution, so downloads to files, bytes and streams all work as with the
+ * real client.
+ */
+public class LocalS3 implements S3AsyncClient {
+    private final LatencyDistribution latency;
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public LocalS3(LatencyDistribution latency) {
+        this.latency = latency;
+        AtomicInteger count = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "local-s3-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void put(String key, byte[] content) {
+        objects.put(key, content);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> getObject(GetObjectRequest request,
+            AsyncResponseTransformer<GetObjectResponse, T> transformer) {
+        byte[] content = objects.get(request.key());
+        if (content == null) {
+            return CompletableFuture.failedFuture(
+                    NoSuchKeyException.builder().message("No such key: " + request.key()).build());
+        }
+        CompletableFuture<T> result = transformer.prepare();
+        scheduler.schedule(() -> {
+            transformer.onResponse(GetObjectResponse.builder().contentLength((long) content.length).build());
+            transformer.onStream(AsyncRequestBody.fromBytes(content));
+        }, latency.sampleNanos(), TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
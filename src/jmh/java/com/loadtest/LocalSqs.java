@@ -0,0 +1,263 @@
+package com.loadtest;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResultEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResultEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+
+/**
+ * In-process stand-in for the SQS calls the worker makes: long-polled
+ * receives, visibility timeouts with redelivery, receive counts, deletes and
+ * (batched) sends. Every call waits for a latency drawn from the given
+ * distribution. Messages sent to a queue with a listener go to the listener
+ * instead of being stored.
+ */
+public class LocalSqs implements SqsClient {
+    private static final int DEFAULT_VISIBILITY_SECONDS = 30;
+
+    private final LatencyDistribution latency;
+    private final Map<String, LocalQueue> queues = new ConcurrentHashMap<>();
+    private final Map<String, Consumer<String>> listeners = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> calls = new ConcurrentHashMap<>();
+
+    public LocalSqs(LatencyDistribution latency) {
+        this.latency = latency;
+    }
+
+    public void onMessage(String queueUrl, Consumer<String> listener) {
+        listeners.put(queueUrl, listener);
+    }
+
+    /**
+     * Adds a message without any latency, as a producer outside the worker would.
+     */
+    public void enqueue(String queueUrl, String body) {
+        deliver(queueUrl, body);
+    }
+
+    public int getDepth(String queueUrl) {
+        return queue(queueUrl).size();
+    }
+
+    /**
+     * Number of calls per operation so far.
+     */
+    public Map<String, Long> getCalls() {
+        Map<String, Long> counts = new TreeMap<>();
+        calls.forEach((operation, count) -> counts.put(operation, count.get()));
+        return counts;
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public ReceiveMessageResponse receiveMessage(ReceiveMessageRequest request) {
+        call("receive");
+        int max = request.maxNumberOfMessages() != null ? request.maxNumberOfMessages() : 1;
+        int visibility = request.visibilityTimeout() != null ? request.visibilityTimeout() : DEFAULT_VISIBILITY_SECONDS;
+        int waitSeconds = request.waitTimeSeconds() != null ? request.waitTimeSeconds() : 0;
+        try {
+            List<Message> messages = queue(request.queueUrl()).receive(max, visibility, waitSeconds);
+            return ReceiveMessageResponse.builder().messages(messages).build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AbortedException.builder().message("Receive interrupted").build();
+        }
+    }
+
+    @Override
+    public SendMessageResponse sendMessage(SendMessageRequest request) {
+        call("send");
+        return SendMessageResponse.builder().messageId(deliver(request.queueUrl(), request.messageBody())).build();
+    }
+
+    @Override
+    public SendMessageBatchResponse sendMessageBatch(SendMessageBatchRequest request) {
+        call("send_batch");
+        List<SendMessageBatchResultEntry> successful = new ArrayList<>();
+        for (SendMessageBatchRequestEntry entry : request.entries()) {
+            String messageId = deliver(request.queueUrl(), entry.messageBody());
+            successful.add(SendMessageBatchResultEntry.builder().id(entry.id()).messageId(messageId).build());
+        }
+        return SendMessageBatchResponse.builder().successful(successful).failed(List.of()).build();
+    }
+
+    @Override
+    public DeleteMessageResponse deleteMessage(DeleteMessageRequest request) {
+        call("delete");
+        queue(request.queueUrl()).delete(request.receiptHandle());
+        return DeleteMessageResponse.builder().build();
+    }
+
+    @Override
+    public DeleteMessageBatchResponse deleteMessageBatch(DeleteMessageBatchRequest request) {
+        call("delete_batch");
+        LocalQueue queue = queue(request.queueUrl());
+        List<DeleteMessageBatchResultEntry> successful = new ArrayList<>();
+        for (DeleteMessageBatchRequestEntry entry : request.entries()) {
+            queue.delete(entry.receiptHandle());
+            successful.add(DeleteMessageBatchResultEntry.builder().id(entry.id()).build());
+        }
+        return DeleteMessageBatchResponse.builder().successful(successful).failed(List.of()).build();
+    }
+
+    @Override
+    public ChangeMessageVisibilityBatchResponse changeMessageVisibilityBatch(
+            ChangeMessageVisibilityBatchRequest request) {
+        call("change_visibility_batch");
+        LocalQueue queue = queue(request.queueUrl());
+        List<ChangeMessageVisibilityBatchResultEntry> successful = new ArrayList<>();
+        for (ChangeMessageVisibilityBatchRequestEntry entry : request.entries()) {
+            queue.changeVisibility(entry.receiptHandle(), entry.visibilityTimeout());
+            successful.add(ChangeMessageVisibilityBatchResultEntry.builder().id(entry.id()).build());
+        }
+        return ChangeMessageVisibilityBatchResponse.builder().successful(successful).failed(List.of()).build();
+    }
+
+    private String deliver(String queueUrl, String body) {
+        Consumer<String> listener = listeners.get(queueUrl);
+        if (listener != null) {
+            listener.accept(body);
+            return UUID.randomUUID().toString();
+        }
+        return queue(queueUrl).add(body);
+    }
+
+    private void call(String operation) {
+        calls.computeIfAbsent(operation, key -> new AtomicLong()).incrementAndGet();
+        try {
+            latency.sleep();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AbortedException.builder().message(operation + " interrupted").build();
+        }
+    }
+
+    private LocalQueue queue(String queueUrl) {
+        return queues.computeIfAbsent(queueUrl, url -> new LocalQueue());
+    }
+
+    private static class LocalQueue {
+        private final Deque<Entry> visible = new ArrayDeque<>();
+        private final Map<String, Entry> inFlight = new HashMap<>();
+
+        synchronized String add(String body) {
+            Entry entry = new Entry(UUID.randomUUID().toString(), body);
+            visible.add(entry);
+            notifyAll();
+            return entry.messageId;
+        }
+
+        synchronized List<Message> receive(int max, int visibilitySeconds, int waitSeconds)
+                throws InterruptedException {
+            long deadline = System.currentTimeMillis() + waitSeconds * 1000L;
+            requeueExpired();
+            long remaining;
+            while (visible.isEmpty() && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                // Wake up now and then for messages whose visibility timed out.
+                wait(Math.min(remaining, 100));
+                requeueExpired();
+            }
+            List<Message> messages = new ArrayList<>();
+            while (messages.size() < max && !visible.isEmpty()) {
+                Entry entry = visible.poll();
+                entry.receives++;
+                entry.visibleAt = System.currentTimeMillis() + visibilitySeconds * 1000L;
+                String receiptHandle = entry.messageId + "#" + entry.receives;
+                inFlight.put(receiptHandle, entry);
+                messages.add(Message.builder()
+                        .messageId(entry.messageId)
+                        .receiptHandle(receiptHandle)
+                        .body(entry.body)
+                        .attributes(Map.of(MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT,
+                                Integer.toString(entry.receives)))
+                        .build());
+            }
+            return messages;
+        }
+
+        synchronized void delete(String receiptHandle) {
+            inFlight.remove(receiptHandle);
+        }
+
+        synchronized void changeVisibility(String receiptHandle, int seconds) {
+            Entry entry = inFlight.get(receiptHandle);
+            if (entry == null) {
+                return;
+            }
+            if (seconds <= 0) {
+                inFlight.remove(receiptHandle);
+                visible.addFirst(entry);
+                notifyAll();
+            } else {
+                entry.visibleAt = System.currentTimeMillis() + seconds * 1000L;
+            }
+        }
+
+        synchronized int size() {
+            return visible.size() + inFlight.size();
+        }
+
+        private void requeueExpired() {
+            long now = System.currentTimeMillis();
+            Iterator<Entry> entries = inFlight.values().iterator();
+            while (entries.hasNext()) {
+                Entry entry = entries.next();
+                if (entry.visibleAt <= now) {
+                    entries.remove();
+                    visible.add(entry);
+                }
+            }
+        }
+    }
+
+    private static class Entry {
+        private final String messageId;
+        private final String body;
+        private int receives;
+        private long visibleAt;
+
+        Entry(String messageId, String body) {
+            this.messageId = messageId;
+            this.body = body;
+        }
+    }
+}
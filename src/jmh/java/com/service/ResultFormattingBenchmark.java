@@ -0,0 +1,101 @@
+package com.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.util.CaseResult;
+import com.util.DockerRunner;
+import com.util.JobResult;
+import com.util.JobResultWriter;
+import com.util.ResourceUsage;
+
+/**
+ * Turning an execution response into the result message: finding and checking
+ * the RESULT: line in the captured output, summarizing errors and writing the
+ * JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultFormattingBenchmark {
+
+    // Captured output is at most head + tail (64 KiB each by default).
+    @Param({ "1024", "131072" })
+    private int outputBytes;
+
+    private DockerRunner.ExecutionResponse resultAtEnd;
+    private DockerRunner.ExecutionResponse streamedResult;
+    private DockerRunner.ExecutionResponse error;
+    private DockerRunner.ExecutionResponse cases;
+    private String errorOutput;
+
+    @Setup
+    public void setup() {
+        String noise = lines("debug output line", outputBytes);
+        ResourceUsage usage = new ResourceUsage(120, 80, 10, 64L * 1024 * 1024);
+        resultAtEnd = new DockerRunner.ExecutionResponse(noise + "RESULT:{\"answer\":42}\n", null, false,
+                DockerRunner.ExecutionResponse.Status.COMPLETED, usage, 120);
+        streamedResult = new DockerRunner.ExecutionResponse(noise, "{\"answer\":42}", false,
+                DockerRunner.ExecutionResponse.Status.COMPLETED, usage, 120);
+        errorOutput = "Exception in thread \"main\" java.lang.IllegalStateException: boom\n"
+                + lines("\tat Main.main(Main.java:7)", outputBytes);
+        error = new DockerRunner.ExecutionResponse(errorOutput, null, false,
+                DockerRunner.ExecutionResponse.Status.COMPLETED, usage, 120);
+
+        List<CaseResult> results = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            results.add(new CaseResult("case-" + i, CaseResult.Verdict.ACCEPTED, 0, 15, "output \"" + i + "\"\n", ""));
+        }
+        cases = new DockerRunner.ExecutionResponse("", null, false, DockerRunner.ExecutionResponse.Status.COMPLETED,
+                usage, 1500, results);
+    }
+
+    @Benchmark
+    public JobResult toResultAtEndOfOutput() {
+        return WorkerService.toResult("job-123", resultAtEnd);
+    }
+
+    @Benchmark
+    public JobResult toResultFromErrorOutput() {
+        return WorkerService.toResult("job-123", error);
+    }
+
+    @Benchmark
+    public String summarizeError() {
+        return WorkerService.summarizeError(errorOutput);
+    }
+
+    @Benchmark
+    public String resultJson() {
+        return JobResultWriter.write(WorkerService.toResult("job-123", streamedResult));
+    }
+
+    @Benchmark
+    public String resultJsonWithCases() {
+        return JobResultWriter.write(WorkerService.toResult("job-123", cases));
+    }
+
+    private static String lines(String line, int bytes) {
+        StringBuilder text = new StringBuilder(bytes + line.length() + 1);
+        while (text.length() < bytes) {
+            text.append(line).append('\n');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package com.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.config.AwsConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.model.JobMessage;
+import com.model.TestCase;
+
+/**
+ * Reading job messages with the application's ObjectMapper and writing
+ * result messages with {@link JobResultWriter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+    private final ObjectMapper objectMapper = AwsConfig.OBJECT_MAPPER;
+
+    private String job;
+    private String jobWithTestCases;
+    private JobResult result;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        job = "{\"jobId\":\"job-123\",\"language\":\"java\",\"s3Key\":\"submissions/job-123/Main.java\"}";
+
+        JobMessage batch = new JobMessage("job-123", "submissions/job-123/Main.java", "java");
+        List<TestCase> testCases = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            testCases.add(new TestCase("case-" + i, "3\n1 2 " + i + "\n", Integer.toString(i + 3)));
+        }
+        batch.setTestCases(testCases);
+        jobWithTestCases = objectMapper.writeValueAsString(batch);
+
+        result = new JobResult("job-123", JobResult.Status.SUCCESS);
+        result.setExecutionTimeMs(120L);
+        result.setResult("{\"answer\":42,\"message\":\"line \\\"one\\\"\\nline two\"}");
+    }
+
+    @Benchmark
+    public JobMessage readJob() throws JsonProcessingException {
+        return objectMapper.readValue(job, JobMessage.class);
+    }
+
+    @Benchmark
+    public JobMessage readJobWithTestCases() throws JsonProcessingException {
+        return objectMapper.readValue(jobWithTestCases, JobMessage.class);
+    }
+
+    @Benchmark
+    public String writeResult() {
+        return JobResultWriter.write(result);
+    }
+}
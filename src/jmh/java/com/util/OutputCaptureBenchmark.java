@@ -0,0 +1,79 @@
+package com.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Capturing the output of a program that prints a lot before its RESULT:
+ * line, read the way the container runtimes pump a process's stdout, with
+ * DockerRunner's default limits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutputCaptureBenchmark {
+    private static final long MAX_BYTES = 8 * 1024 * 1024;
+    private static final int HEAD_BYTES = 64 * 1024;
+    private static final int TAIL_BYTES = 64 * 1024;
+    private static final int MAX_RESULT_BYTES = 1024 * 1024;
+
+    // The last size is over the output limit, so the capture asks to stop the container.
+    @Param({ "65536", "1048576", "16777216" })
+    private int outputBytes;
+
+    private byte[] output;
+
+    @Setup
+    public void setup() {
+        StringBuilder text = new StringBuilder(outputBytes + 64);
+        int line = 0;
+        while (text.length() < outputBytes) {
+            text.append("iteration ").append(line++).append(": partial sum = ").append(line * 31L).append('\n');
+        }
+        text.append("RESULT:{\"answer\":42}\n");
+        output = text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String capture() throws IOException {
+        OutputCapture capture = new OutputCapture(MAX_BYTES, HEAD_BYTES, TAIL_BYTES, MAX_RESULT_BYTES, () -> {
+        });
+        pump(new ByteArrayInputStream(output), capture);
+        return capture.getResult();
+    }
+
+    @Benchmark
+    public String captureAndRender() throws IOException {
+        OutputCapture capture = new OutputCapture(MAX_BYTES, HEAD_BYTES, TAIL_BYTES, MAX_RESULT_BYTES, () -> {
+        });
+        pump(new ByteArrayInputStream(output), capture);
+        return capture.getOutput();
+    }
+
+    // Same buffer size as the stdout pump in DockerCliRuntime.
+    private static void pump(InputStream in, OutputCapture capture) throws IOException {
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            capture.write(buffer, 0, n);
+        }
+    }
+}
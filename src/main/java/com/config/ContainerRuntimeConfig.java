@@ -0,0 +1,35 @@
+package com.config;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.util.docker.ContainerRuntime;
+import com.util.docker.DockerCliRuntime;
+import com.util.docker.DockerEngineRuntime;
+import com.util.docker.UnixSocketHttpClient;
+
+@Configuration
+public class ContainerRuntimeConfig {
+
+    @Bean
+    public ContainerRuntime containerRuntime(@Value("${worker.docker.runtime:auto}") String runtime,
+            @Value("${worker.docker.socket:/var/run/docker.sock}") String socket,
+            ObjectMapper objectMapper) {
+        Path socketPath = Path.of(socket);
+        boolean useEngine = runtime.equalsIgnoreCase("engine")
+                || (runtime.equalsIgnoreCase("auto") && Files.exists(socketPath));
+
+        if (useEngine) {
+            System.out.println("Using Docker Engine API at " + socketPath);
+            return new DockerEngineRuntime(new UnixSocketHttpClient(socketPath), objectMapper);
+        }
+        System.out.println("Using docker CLI runtime");
+        return new DockerCliRuntime();
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.util.ConfiguredLanguageRuntime;
+import com.util.LanguageProperties;
+import com.util.LanguageRuntime;
+import com.util.LanguageRuntimes;
+
+@Configuration
+public class LanguageConfig {
+
+    /**
+     * Every {@code worker.languages.<name>} block, plus any
+     * {@link LanguageRuntime} beans for languages that need code.
+     */
+    @Bean
+    public LanguageRuntimes languageRuntimes(Environment environment, ObjectProvider<LanguageRuntime> beans) {
+        Map<String, LanguageProperties> configured = Binder.get(environment)
+                .bind("worker.languages", Bindable.mapOf(String.class, LanguageProperties.class))
+                .orElse(Map.of());
+
+        List<LanguageRuntime> runtimes = new ArrayList<>();
+        configured.forEach((name, properties) -> runtimes.add(new ConfiguredLanguageRuntime(name, properties)));
+        beans.orderedStream().forEach(runtimes::add);
+        if (runtimes.isEmpty()) {
+            throw new IllegalStateException("No languages configured under worker.languages");
+        }
+        System.out.println("Languages: " + runtimes.stream().map(LanguageRuntime::getName).sorted().toList());
+        return new LanguageRuntimes(runtimes);
+    }
+
+}
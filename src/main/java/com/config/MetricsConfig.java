@@ -0,0 +1,91 @@
+package com.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.model.SourceQueue;
+import com.service.CodeDownloader;
+import com.service.JobExecutor;
+import com.service.SourceQueues;
+import com.service.VisibilityExtender;
+import com.service.WorkspaceManager;
+import com.util.CompileCache;
+import com.util.ContainerPool;
+import com.util.DedupeStore;
+import com.util.LanguageRuntime;
+import com.util.LanguageRuntimes;
+import com.util.ResultCache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder workerGauges(JobExecutor jobExecutor, VisibilityExtender visibilityExtender,
+            CodeDownloader codeDownloader, ContainerPool containerPool, CompileCache compileCache,
+            ResultCache resultCache, WorkspaceManager workspaceManager, SourceQueues sourceQueues,
+            LanguageRuntimes languageRuntimes, DedupeStore dedupeStore) {
+        return registry -> {
+            Gauge.builder("worker.jobs.in_flight", jobExecutor, JobExecutor::getInFlight)
+                    .description("Jobs running on an executor; received jobs still waiting are in worker.jobs.buffered")
+                    .register(registry);
+            Gauge.builder("worker.jobs.free_slots", jobExecutor, JobExecutor::getAvailableSlots)
+                    .register(registry);
+            Gauge.builder("worker.jobs.concurrency", jobExecutor, JobExecutor::getConcurrency)
+                    .register(registry);
+            for (SourceQueue queue : sourceQueues.getQueues()) {
+                Gauge.builder("worker.jobs.buffered", jobExecutor, executor -> executor.getBuffered(queue.getName()))
+                        .description("Received jobs waiting for an executor")
+                        .tag("queue", queue.getName())
+                        .register(registry);
+                Gauge.builder("worker.jobs.running", jobExecutor, executor -> executor.getRunning(queue.getName()))
+                        .tag("queue", queue.getName())
+                        .register(registry);
+            }
+            Gauge.builder("worker.sqs.leases", visibilityExtender, VisibilityExtender::getTrackedCount)
+                    .description("Messages whose visibility timeout is being extended")
+                    .register(registry);
+            Gauge.builder("worker.downloads", codeDownloader, CodeDownloader::getRunning)
+                    .tag("state", "running")
+                    .register(registry);
+            Gauge.builder("worker.downloads", codeDownloader, CodeDownloader::getWaiting)
+                    .tag("state", "waiting")
+                    .register(registry);
+            Gauge.builder("worker.workspace.free", workspaceManager, WorkspaceManager::getFreeSlots)
+                    .register(registry);
+
+            for (LanguageRuntime runtime : languageRuntimes.getAll()) {
+                if (runtime.getPoolSize() > 0) {
+                    Gauge.builder("worker.pool.idle", containerPool, pool -> pool.getIdleCount(runtime.getName()))
+                            .tag("language", runtime.getName())
+                            .register(registry);
+                }
+            }
+
+            FunctionCounter.builder("worker.compile_cache.requests", compileCache, CompileCache::getHits)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("worker.compile_cache.requests", compileCache, CompileCache::getMisses)
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("worker.compile_cache.size", compileCache, CompileCache::getSizeBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+            FunctionCounter.builder("worker.result_cache.requests", resultCache, ResultCache::getHits)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("worker.result_cache.requests", resultCache, ResultCache::getMisses)
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("worker.result_cache.entries", resultCache, ResultCache::getSize)
+                    .register(registry);
+            Gauge.builder("worker.dedupe.entries", dedupeStore, DedupeStore::getSize)
+                    .description("Finished jobs remembered to answer redeliveries")
+                    .register(registry);
+        };
+    }
+
+}
@@ -1,9 +1,22 @@
 package com.model;
 
+import java.util.List;
+
 public class JobMessage {
     private String jobId;
     private String s3Key;
     private String language;
+    // Set instead of s3Key for multi-file submissions packed as .zip, .tar, .tar.gz or .tgz.
+    private String bundleKey;
+    // Main class (Java) or script path relative to the bundle root (Python) of a bundle.
+    private String entryPoint;
+    // Inputs to run the program against; inline, or as a JSON array stored under testCasesKey.
+    private List<TestCase> testCases;
+    private String testCasesKey;
+    // Per-case time limit; 0 uses the worker's default.
+    private long caseTimeoutMs;
+    // Opt-in: only a deterministic submission may be answered from the result cache.
+    private boolean cacheable;
 
     public JobMessage() {
     }
@@ -38,12 +51,65 @@ public class JobMessage {
         this.language = language;
     }
 
+    public String getBundleKey() {
+        return bundleKey;
+    }
+
+    public void setBundleKey(String bundleKey) {
+        this.bundleKey = bundleKey;
+    }
+
+    public String getEntryPoint() {
+        return entryPoint;
+    }
+
+    public void setEntryPoint(String entryPoint) {
+        this.entryPoint = entryPoint;
+    }
+
+    public List<TestCase> getTestCases() {
+        return testCases;
+    }
+
+    public void setTestCases(List<TestCase> testCases) {
+        this.testCases = testCases;
+    }
+
+    public String getTestCasesKey() {
+        return testCasesKey;
+    }
+
+    public void setTestCasesKey(String testCasesKey) {
+        this.testCasesKey = testCasesKey;
+    }
+
+    public long getCaseTimeoutMs() {
+        return caseTimeoutMs;
+    }
+
+    public void setCaseTimeoutMs(long caseTimeoutMs) {
+        this.caseTimeoutMs = caseTimeoutMs;
+    }
+
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    public void setCacheable(boolean cacheable) {
+        this.cacheable = cacheable;
+    }
+
     @Override
     public String toString() {
         return "JobMessage{" +
                 "jobId='" + jobId + '\'' +
                 ", s3Key='" + s3Key + '\'' +
                 ", language='" + language + '\'' +
+                ", bundleKey='" + bundleKey + '\'' +
+                ", entryPoint='" + entryPoint + '\'' +
+                ", testCases=" + (testCases != null ? testCases.size() : 0) +
+                ", testCasesKey='" + testCasesKey + '\'' +
+                ", cacheable=" + cacheable +
                 '}';
     }
 }
@@ -0,0 +1,46 @@
+package com.model;
+
+/**
+ * A request queue the worker polls. Buffered jobs start in proportion to
+ * their queue's weight, and {@code reserved} execution slots are kept free
+ * for the queue even while others have work waiting.
+ */
+public class SourceQueue {
+    private final String name;
+    private final String url;
+    private final int weight;
+    private final int reserved;
+
+    public SourceQueue(String name, String url, int weight, int reserved) {
+        this.name = name;
+        this.url = url;
+        this.weight = weight;
+        this.reserved = reserved;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public int getReserved() {
+        return reserved;
+    }
+
+    @Override
+    public String toString() {
+        return "SourceQueue{" +
+                "name='" + name + '\'' +
+                ", url='" + url + '\'' +
+                ", weight=" + weight +
+                ", reserved=" + reserved +
+                '}';
+    }
+}
@@ -0,0 +1,40 @@
+package com.model;
+
+public class TestCase {
+    private String name;
+    private String input;
+    private String expectedOutput;
+
+    public TestCase() {
+    }
+
+    public TestCase(String name, String input, String expectedOutput) {
+        this.name = name;
+        this.input = input;
+        this.expectedOutput = expectedOutput;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getInput() {
+        return input;
+    }
+
+    public void setInput(String input) {
+        this.input = input;
+    }
+
+    public String getExpectedOutput() {
+        return expectedOutput;
+    }
+
+    public void setExpectedOutput(String expectedOutput) {
+        this.expectedOutput = expectedOutput;
+    }
+}
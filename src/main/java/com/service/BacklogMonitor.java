@@ -0,0 +1,106 @@
+package com.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.model.SourceQueue;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+
+/**
+ * Polls the approximate depth of each request queue so it can be graphed next
+ * to the worker's own throughput.
+ */
+@Component
+public class BacklogMonitor {
+    private final SqsClient sqsClient;
+    private final List<Backlog> backlogs = new ArrayList<>();
+    private final ScheduledExecutorService scheduler;
+
+    public BacklogMonitor(SqsClient sqsClient, MeterRegistry meterRegistry, SourceQueues sourceQueues,
+            @Value("${worker.metrics.backlog-poll-seconds:30}") int pollSeconds) {
+        this.sqsClient = sqsClient;
+        for (SourceQueue queue : sourceQueues.getQueues()) {
+            Backlog backlog = new Backlog(queue);
+            registerGauge(meterRegistry, queue, "visible", backlog.visible);
+            registerGauge(meterRegistry, queue, "in_flight", backlog.inFlight);
+            registerGauge(meterRegistry, queue, "delayed", backlog.delayed);
+            backlogs.add(backlog);
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "backlog-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (pollSeconds > 0) {
+            scheduler.scheduleWithFixedDelay(this::poll, 0, pollSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void registerGauge(MeterRegistry meterRegistry, SourceQueue queue, String state,
+            AtomicLong value) {
+        Gauge.builder("worker.sqs.backlog", value, AtomicLong::get)
+                .description("Approximate number of messages in the request queue, -1 until first polled")
+                .tags("queue", queue.getName(), "state", state)
+                .register(meterRegistry);
+    }
+
+    void poll() {
+        for (Backlog backlog : backlogs) {
+            poll(backlog);
+        }
+    }
+
+    private void poll(Backlog backlog) {
+        try {
+            Map<QueueAttributeName, String> attributes = sqsClient.getQueueAttributes(GetQueueAttributesRequest
+                    .builder()
+                    .queueUrl(backlog.queue.getUrl())
+                    .attributeNames(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES,
+                            QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE,
+                            QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_DELAYED)
+                    .build())
+                    .attributes();
+            backlog.visible.set(parse(attributes.get(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES)));
+            backlog.inFlight.set(parse(attributes.get(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE)));
+            backlog.delayed.set(parse(attributes.get(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_DELAYED)));
+        } catch (SdkException e) {
+            System.err.println("Failed to read depth of " + backlog.queue.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private static long parse(String value) {
+        return value == null ? -1 : Long.parseLong(value);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static class Backlog {
+        private final SourceQueue queue;
+        private final AtomicLong visible = new AtomicLong(-1);
+        private final AtomicLong inFlight = new AtomicLong(-1);
+        private final AtomicLong delayed = new AtomicLong(-1);
+
+        Backlog(SourceQueue queue) {
+            this.queue = queue;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.util.BundleExtractor;
+
+import jakarta.annotation.PreDestroy;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+/**
+ * Fetches submission files with the async S3 client. The poller starts a
+ * download as soon as a message is received, so buffered jobs have their code
+ * on disk by the time an execution slot frees up. At most
+ * {@code maxConcurrentDownloads} requests are in flight; the rest wait in
+ * arrival order. Bundles are unpacked while they stream in, on a separate
+ * pool so SDK threads never block on the disk.
+ */
+@Component
+public class CodeDownloader {
+    private final S3AsyncClient s3AsyncClient;
+    private final String bucketName;
+    private final int maxConcurrentDownloads;
+    private final BundleExtractor bundleExtractor;
+    private final ExecutorService extractors;
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    private int running;
+
+    public CodeDownloader(S3AsyncClient s3AsyncClient, @Value("${aws.s3.bucket.name}") String bucketName,
+            @Value("${worker.s3.max-concurrent-downloads:16}") int maxConcurrentDownloads,
+            BundleExtractor bundleExtractor) {
+        this.s3AsyncClient = s3AsyncClient;
+        this.bucketName = bucketName;
+        this.maxConcurrentDownloads = Math.max(1, maxConcurrentDownloads);
+        this.bundleExtractor = bundleExtractor;
+        AtomicInteger count = new AtomicInteger();
+        this.extractors = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "bundle-extractor-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Downloads {@code s3Key} into {@code workspace}, keeping its file name.
+     */
+    public CompletableFuture<Path> download(String s3Key, Path workspace) {
+        return schedule(() -> fetch(s3Key, workspace));
+    }
+
+    /**
+     * Unpacks the archive at {@code bundleKey} into {@code workspace} and
+     * returns the workspace once every entry has been written.
+     */
+    public CompletableFuture<Path> downloadBundle(String bundleKey, Path workspace) {
+        return schedule(() -> fetchBundle(bundleKey, workspace));
+    }
+
+    /**
+     * Reads a small object, such as a test case set, into memory.
+     */
+    public CompletableFuture<byte[]> downloadBytes(String key) {
+        return schedule(() -> {
+            try {
+                return s3AsyncClient.getObject(GetObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .build(), AsyncResponseTransformer.toBytes())
+                        .thenApply(response -> response.asByteArray());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> schedule(Supplier<CompletableFuture<T>> fetch) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> fetch.get().whenComplete((value, error) -> {
+            finished();
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        });
+
+        synchronized (this) {
+            if (running >= maxConcurrentDownloads) {
+                waiting.add(start);
+                return result;
+            }
+            running++;
+        }
+        start.run();
+        return result;
+    }
+
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    public synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    private CompletableFuture<Path> fetch(String s3Key, Path workspace) {
+        Path localFile = workspace.resolve(Path.of(s3Key).getFileName().toString());
+        try {
+            return s3AsyncClient.getObject(GetObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(s3Key)
+                    .build(), AsyncResponseTransformer.toFile(localFile))
+                    .thenApply(response -> localFile);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletableFuture<Path> fetchBundle(String bundleKey, Path workspace) {
+        CompletableFuture<ResponseInputStream<GetObjectResponse>> response;
+        try {
+            response = s3AsyncClient.getObject(GetObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(bundleKey)
+                    .build(), AsyncResponseTransformer.toBlockingInputStream());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return response.thenApplyAsync(in -> {
+            try {
+                bundleExtractor.extract(in, bundleKey, workspace);
+                return workspace;
+            } catch (IOException e) {
+                // Don't drain the rest of a bundle that was rejected.
+                in.abort();
+                throw new CompletionException(e);
+            } catch (RuntimeException e) {
+                in.abort();
+                throw e;
+            }
+        }, extractors);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        extractors.shutdownNow();
+    }
+
+    private void finished() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                running--;
+                return;
+            }
+        }
+        next.run();
+    }
+}
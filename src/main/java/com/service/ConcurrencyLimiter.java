@@ -0,0 +1,178 @@
+package com.service;
+
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.util.HostLoad;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Adjusts the job executor's concurrency to what the host can take (AIMD).
+ * Every few seconds it looks at the jobs that finished since the last check
+ * and at host CPU and memory: if the CPU is above target, memory is running
+ * out, too many jobs timed out or executions got much slower than usual, the
+ * concurrency is cut by a quarter; otherwise, if jobs had to wait for an
+ * executor, it goes up by one. Since the executor only hands out
+ * {@code concurrency + queueCapacity} receive slots, a cut also stops the
+ * pollers until running jobs drain below the new limit.
+ */
+@Component
+public class ConcurrencyLimiter {
+    private static final double DECREASE_FACTOR = 0.75;
+    // Fewer finished jobs than this say too little about latency or timeouts.
+    private static final int MIN_SAMPLES = 5;
+    private static final double BASELINE_WEIGHT = 0.1;
+
+    private final JobExecutor jobExecutor;
+    private final HostLoad hostLoad;
+    private final boolean enabled;
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private final double cpuTarget;
+    private final double minMemoryAvailable;
+    private final double maxTimeoutRate;
+    private final double latencyTolerance;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile double cpuBusy = -1;
+    private volatile double memoryAvailable = -1;
+
+    // Guarded by this.
+    private int samples;
+    private int timeouts;
+    private long latencyNanos;
+    private double baselineNanos;
+
+    public ConcurrencyLimiter(JobExecutor jobExecutor, MeterRegistry meterRegistry,
+            @Value("${worker.concurrency.adaptive:true}") boolean enabled,
+            @Value("${worker.concurrency.min:1}") int minConcurrency,
+            @Value("${worker.concurrency.max:0}") int maxConcurrency,
+            @Value("${worker.concurrency.adjust-seconds:5}") int adjustSeconds,
+            @Value("${worker.concurrency.cpu-target:0.9}") double cpuTarget,
+            @Value("${worker.concurrency.min-memory-available:0.1}") double minMemoryAvailable,
+            @Value("${worker.concurrency.max-timeout-rate:0.2}") double maxTimeoutRate,
+            @Value("${worker.concurrency.latency-tolerance:2.0}") double latencyTolerance,
+            @Value("${worker.concurrency.proc-dir:/proc}") String procDir) {
+        this.jobExecutor = jobExecutor;
+        this.hostLoad = new HostLoad(Path.of(procDir));
+        this.enabled = enabled;
+        int initial = jobExecutor.getConcurrency();
+        this.minConcurrency = Math.max(1, Math.min(minConcurrency, initial));
+        this.maxConcurrency = maxConcurrency > 0 ? Math.max(maxConcurrency, initial) : 2 * initial;
+        this.cpuTarget = cpuTarget;
+        this.minMemoryAvailable = minMemoryAvailable;
+        this.maxTimeoutRate = maxTimeoutRate;
+        this.latencyTolerance = latencyTolerance;
+
+        Gauge.builder("worker.host.cpu", this, limiter -> limiter.cpuBusy)
+                .description("Fraction of host CPU time spent busy, -1 if unknown")
+                .register(meterRegistry);
+        Gauge.builder("worker.host.memory_available", this, limiter -> limiter.memoryAvailable)
+                .description("Fraction of host memory available, -1 if unknown")
+                .register(meterRegistry);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "concurrency-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled && adjustSeconds > 0) {
+            scheduler.scheduleWithFixedDelay(this::adjust, adjustSeconds, adjustSeconds, TimeUnit.SECONDS);
+            System.out.println("Adaptive concurrency between " + this.minConcurrency + " and "
+                    + this.maxConcurrency + ", starting at " + initial);
+        }
+    }
+
+    public int getMinConcurrency() {
+        return minConcurrency;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Records how long one execution took and whether it hit its time limit.
+     */
+    public synchronized void record(long executeNanos, boolean timedOut) {
+        if (!enabled) {
+            return;
+        }
+        samples++;
+        latencyNanos += executeNanos;
+        if (timedOut) {
+            timeouts++;
+        }
+    }
+
+    void adjust() {
+        try {
+            cpuBusy = hostLoad.cpuBusy();
+            memoryAvailable = hostLoad.memoryAvailable();
+            int current = jobExecutor.getConcurrency();
+            int next = nextConcurrency(current, cpuBusy, memoryAvailable, jobExecutor.takeSaturated());
+            if (next != current) {
+                jobExecutor.setConcurrency(next);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Failed to adjust concurrency: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Decides the next concurrency from the jobs recorded since the last call
+     * and the given host load, and starts a new window of samples.
+     */
+    synchronized int nextConcurrency(int current, double cpuBusy, double memoryAvailable, boolean saturated) {
+        double averageNanos = samples > 0 ? (double) latencyNanos / samples : 0;
+        String overload = null;
+        if (cpuBusy > cpuTarget) {
+            overload = "cpu " + Math.round(cpuBusy * 100) + "%";
+        } else if (memoryAvailable >= 0 && memoryAvailable < minMemoryAvailable) {
+            overload = "memory available " + Math.round(memoryAvailable * 100) + "%";
+        } else if (samples >= MIN_SAMPLES && (double) timeouts / samples > maxTimeoutRate) {
+            overload = timeouts + " of " + samples + " jobs timed out";
+        } else if (samples >= MIN_SAMPLES && baselineNanos > 0 && averageNanos > baselineNanos * latencyTolerance) {
+            overload = "latency " + Math.round(averageNanos / 1e6) + "ms vs "
+                    + Math.round(baselineNanos / 1e6) + "ms usual";
+        }
+
+        // Only healthy windows move the baseline, so sustained overload can't become the new normal.
+        if (overload == null && samples >= MIN_SAMPLES) {
+            baselineNanos = baselineNanos > 0
+                    ? baselineNanos + (averageNanos - baselineNanos) * BASELINE_WEIGHT
+                    : averageNanos;
+        }
+        samples = 0;
+        timeouts = 0;
+        latencyNanos = 0;
+
+        int next;
+        if (overload != null) {
+            next = Math.min(current - 1, (int) (current * DECREASE_FACTOR));
+        } else if (saturated) {
+            next = current + 1;
+        } else {
+            next = current;
+        }
+        next = Math.max(minConcurrency, Math.min(maxConcurrency, next));
+        if (next != current) {
+            System.out.println("Concurrency " + current + " -> " + next
+                    + (overload != null ? " (" + overload + ")" : ""));
+        }
+        return next;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
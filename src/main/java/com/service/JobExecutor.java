@@ -0,0 +1,322 @@
+package com.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.model.SourceQueue;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs at most {@code concurrency} jobs at a time. Every job owns a slot from
+ * the moment its message is received until it completes, and the number of
+ * slots is {@code concurrency + queueCapacity}, so the pollers can never
+ * receive more work than the executors can start soon. The concurrency can be
+ * changed while running; lowering it lets running jobs finish and stops
+ * receiving until the held slots fit under the new limit.
+ *
+ * <p>With several source queues, buffered jobs start in weighted fair order
+ * (stride scheduling): under contention each queue gets a share of starts
+ * proportional to its weight, and an idle queue's work goes to the others.
+ * Ties go to the queue listed first. A queue's reserved slots and executors
+ * are never used by other queues, so its jobs can be received and started
+ * without waiting for another queue's burst to drain.
+ */
+@Component
+public class JobExecutor {
+    // Divisible by every weight up to 16, so passes of common weights compare exactly.
+    private static final long STRIDE = 720_720;
+
+    private final int queueCapacity;
+    private final int reserved;
+    private final ExecutorService executor;
+    private final Map<String, Lane> lanes = new LinkedHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // Guarded by this.
+    private int concurrency;
+    private int held;
+    private int running;
+    private boolean saturated;
+    private long virtualTime;
+
+    public JobExecutor(@Value("${worker.concurrency:0}") int concurrency,
+            @Value("${worker.queue.capacity:0}") int queueCapacity,
+            @Value("${worker.threads:platform}") String threadType,
+            SourceQueues sourceQueues) {
+        this.concurrency = concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = queueCapacity > 0 ? queueCapacity : this.concurrency;
+        for (SourceQueue queue : sourceQueues.getQueues()) {
+            lanes.put(queue.getName(), new Lane(queue.getWeight(), queue.getReserved()));
+        }
+        this.reserved = lanes.values().stream().mapToInt(lane -> lane.reserved).sum();
+        if (reserved >= this.concurrency) {
+            throw new IllegalArgumentException("Reserved executors (" + reserved
+                    + ") must leave at least one of " + this.concurrency + " unreserved");
+        }
+        this.executor = createExecutor(threadType);
+        System.out.println("Job executor started with concurrency=" + this.concurrency
+                + ", queueCapacity=" + this.queueCapacity);
+    }
+
+    public synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Changes how many jobs may run at once, never going below one more than
+     * the reserved executors. Returns the concurrency now in effect.
+     */
+    public synchronized int setConcurrency(int concurrency) {
+        int limit = Math.max(reserved + 1, concurrency);
+        if (limit == this.concurrency) {
+            return limit;
+        }
+        if (executor instanceof ThreadPoolExecutor pool && limit > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(limit);
+            pool.setCorePoolSize(limit);
+        }
+        this.concurrency = limit;
+        dispatch();
+        notifyAll();
+        return limit;
+    }
+
+    /**
+     * Whether jobs have had to wait for an executor since the last call, i.e.
+     * whether a higher concurrency would have started more work.
+     */
+    public synchronized boolean takeSaturated() {
+        boolean result = saturated || lanes.values().stream().anyMatch(lane -> !lane.ready.isEmpty());
+        saturated = false;
+        return result;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public synchronized int getAvailableSlots() {
+        return Math.max(0, freeSlots());
+    }
+
+    public synchronized int getBuffered(String queue) {
+        return lane(queue).ready.size();
+    }
+
+    public synchronized int getRunning(String queue) {
+        return lane(queue).running;
+    }
+
+    /**
+     * Blocks until at least one slot is free for {@code queue}, then takes as
+     * many as possible up to {@code max}. Returns the number of slots taken.
+     */
+    public synchronized int acquireSlots(String queue, int max) throws InterruptedException {
+        Lane lane = lane(queue);
+        int available;
+        while ((available = freeSlots() - unusedReservations(lane, false)) <= 0) {
+            wait();
+        }
+        int acquired = Math.min(max, available);
+        lane.held += acquired;
+        held += acquired;
+        return acquired;
+    }
+
+    public synchronized void releaseSlots(String queue, int count) {
+        if (count > 0) {
+            lane(queue).held -= count;
+            held -= count;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Removes every job that has not started yet, releasing its slot, and
+     * returns them in no particular order.
+     */
+    public synchronized List<Runnable> drainBuffered() {
+        List<Runnable> drained = new ArrayList<>();
+        for (Lane lane : lanes.values()) {
+            int count = lane.ready.size();
+            drained.addAll(lane.ready);
+            lane.ready.clear();
+            lane.held -= count;
+            held -= count;
+        }
+        notifyAll();
+        return drained;
+    }
+
+    /**
+     * Waits up to {@code timeoutMs} for every started job to finish. Returns
+     * whether they did.
+     */
+    public synchronized boolean awaitIdle(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        long remaining;
+        while (running > 0 && (remaining = deadline - System.currentTimeMillis()) > 0) {
+            wait(remaining);
+        }
+        return running == 0;
+    }
+
+    /**
+     * Runs a job that was received from {@code queue} with a previously
+     * acquired slot. The slot is released once the job completes.
+     */
+    public synchronized void submit(String queue, Runnable job) {
+        Lane lane = lane(queue);
+        if (lane.ready.isEmpty() && lane.running == 0) {
+            // A queue coming back from idle competes from now on, without credit for the time it sat out.
+            lane.pass = Math.max(lane.pass, virtualTime);
+        }
+        lane.ready.add(job);
+        dispatch();
+    }
+
+    // Starts buffered jobs while executors are free, lowest pass first.
+    private void dispatch() {
+        while (running < concurrency) {
+            Lane next = null;
+            for (Lane lane : lanes.values()) {
+                if (!lane.ready.isEmpty() && concurrency - running > unusedReservations(lane, true)
+                        && (next == null || lane.pass < next.pass)) {
+                    next = lane;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            Runnable job = next.ready.poll();
+            virtualTime = next.pass;
+            next.pass += STRIDE / next.weight;
+            next.running++;
+            running++;
+            Lane lane = next;
+            try {
+                executor.execute(() -> runJob(lane, job));
+            } catch (RejectedExecutionException e) {
+                System.err.println("Job rejected: " + e.getMessage());
+                finished(lane);
+            }
+        }
+        for (Lane lane : lanes.values()) {
+            saturated |= !lane.ready.isEmpty();
+        }
+    }
+
+    // Negative while held slots still exceed a concurrency that was just lowered.
+    private int freeSlots() {
+        return concurrency + queueCapacity - held;
+    }
+
+    // Slots (or executors) other queues are entitled to but not using.
+    private int unusedReservations(Lane self, boolean executors) {
+        int unused = 0;
+        for (Lane lane : lanes.values()) {
+            if (lane != self) {
+                unused += Math.max(0, lane.reserved - (executors ? lane.running : lane.held));
+            }
+        }
+        return unused;
+    }
+
+    private void runJob(Lane lane, Runnable job) {
+        inFlight.incrementAndGet();
+        try {
+            job.run();
+        } catch (RuntimeException e) {
+            System.err.println("Job failed: " + e);
+        } finally {
+            inFlight.decrementAndGet();
+            synchronized (this) {
+                finished(lane);
+                dispatch();
+            }
+        }
+    }
+
+    private void finished(Lane lane) {
+        lane.running--;
+        lane.held--;
+        running--;
+        held--;
+        notifyAll();
+    }
+
+    private Lane lane(String queue) {
+        Lane lane = lanes.get(queue);
+        if (lane == null) {
+            throw new IllegalArgumentException("Unknown source queue: " + queue);
+        }
+        return lane;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ExecutorService createExecutor(String threadType) {
+        if ("virtual".equalsIgnoreCase(threadType)) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Virtual threads are not available on this JVM, using platform threads");
+            }
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "job-executor-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // Jobs are handed over only when an executor is free, so the queue holds at most a hand-off or two.
+        // setConcurrency grows the pool when the limit is raised; extra threads just idle when it is lowered.
+        return new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+    }
+
+    private static class Lane {
+        private final int weight;
+        private final int reserved;
+        private final Queue<Runnable> ready = new ArrayDeque<>();
+        private int held;
+        private int running;
+        private long pass;
+
+        Lane(int weight, int reserved) {
+            this.weight = weight;
+            this.reserved = reserved;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.model.SourceQueue;
+
+/**
+ * The request queues this worker polls, from {@code worker.queues}: a
+ * comma-separated list of {@code name:weight:reserved:url}, e.g.
+ * {@code interactive:8:1:https://...,bulk:1:0:https://...}. Without it the
+ * worker polls {@code aws.sqs.request.queue.url} alone.
+ */
+@Component
+public class SourceQueues {
+    public static final String DEFAULT_QUEUE = "default";
+
+    private final List<SourceQueue> queues;
+
+    public SourceQueues(@Value("${worker.queues:}") String spec,
+            @Value("${aws.sqs.request.queue.url:}") String defaultUrl) {
+        if (spec.isBlank() && defaultUrl.isBlank()) {
+            throw new IllegalArgumentException("Set aws.sqs.request.queue.url or worker.queues");
+        }
+        this.queues = spec.isBlank() ? List.of(new SourceQueue(DEFAULT_QUEUE, defaultUrl, 1, 0)) : parse(spec);
+        System.out.println("Polling request queues " + queues);
+    }
+
+    public List<SourceQueue> getQueues() {
+        return queues;
+    }
+
+    private static List<SourceQueue> parse(String spec) {
+        List<SourceQueue> queues = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":", 4);
+            if (parts.length != 4 || parts[0].isBlank() || parts[3].isBlank()) {
+                throw new IllegalArgumentException("Expected name:weight:reserved:url in worker.queues, got: "
+                        + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            int reserved = Integer.parseInt(parts[2].trim());
+            if (weight < 1 || reserved < 0) {
+                throw new IllegalArgumentException("Queue " + parts[0] + " needs weight >= 1 and reserved >= 0");
+            }
+            if (!names.add(parts[0].trim())) {
+                throw new IllegalArgumentException("Queue " + parts[0] + " is configured twice");
+            }
+            queues.add(new SourceQueue(parts[0].trim(), parts[3].trim(), weight, reserved));
+        }
+        return Collections.unmodifiableList(queues);
+    }
+}
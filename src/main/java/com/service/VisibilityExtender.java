@@ -0,0 +1,165 @@
+package com.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+
+/**
+ * Keeps received messages invisible while their jobs are buffered or running,
+ * so that a job that takes close to the container timeout is not redelivered
+ * to another worker and executed twice.
+ */
+@Component
+public class VisibilityExtender {
+    private static final int MAX_BATCH_SIZE = 10;
+
+    private final SqsClient sqsClient;
+    private final int visibilityTimeoutSeconds;
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public VisibilityExtender(SqsClient sqsClient,
+            @Value("${worker.sqs.visibility-timeout-seconds:60}") int visibilityTimeoutSeconds) {
+        this.sqsClient = sqsClient;
+        this.visibilityTimeoutSeconds = visibilityTimeoutSeconds;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "visibility-extender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodSeconds = Math.max(1, visibilityTimeoutSeconds / 6);
+        scheduler.scheduleWithFixedDelay(this::extendExpiring, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public int getVisibilityTimeoutSeconds() {
+        return visibilityTimeoutSeconds;
+    }
+
+    public int getTrackedCount() {
+        return leases.size();
+    }
+
+    public void track(String queueUrl, String receiptHandle) {
+        leases.put(receiptHandle, new Lease(queueUrl, receiptHandle, deadlineFromNow()));
+    }
+
+    public void untrack(String receiptHandle) {
+        if (receiptHandle != null) {
+            leases.remove(receiptHandle);
+        }
+    }
+
+    /**
+     * Stops extending the given messages and makes them visible again right
+     * away, so another worker can pick them up without waiting for the
+     * visibility timeout.
+     */
+    public void release(String queueUrl, List<String> receiptHandles) {
+        receiptHandles.forEach(leases::remove);
+        for (int i = 0; i < receiptHandles.size(); i += MAX_BATCH_SIZE) {
+            List<String> batch = receiptHandles.subList(i, Math.min(i + MAX_BATCH_SIZE, receiptHandles.size()));
+            List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>(batch.size());
+            for (int j = 0; j < batch.size(); j++) {
+                entries.add(ChangeMessageVisibilityBatchRequestEntry.builder()
+                        .id(Integer.toString(j))
+                        .receiptHandle(batch.get(j))
+                        .visibilityTimeout(0)
+                        .build());
+            }
+            try {
+                ChangeMessageVisibilityBatchResponse response = sqsClient.changeMessageVisibilityBatch(
+                        ChangeMessageVisibilityBatchRequest.builder()
+                                .queueUrl(queueUrl)
+                                .entries(entries)
+                                .build());
+                for (BatchResultErrorEntry failed : response.failed()) {
+                    System.err.println("Failed to release message: " + failed.message());
+                }
+            } catch (RuntimeException e) {
+                // The messages still come back once their visibility timeout runs out.
+                System.err.println("Failed to release messages: " + e.getMessage());
+            }
+        }
+    }
+
+    void extendExpiring() {
+        long threshold = System.currentTimeMillis() + visibilityTimeoutSeconds * 1000L / 2;
+        Map<String, List<Lease>> expiring = leases.values().stream()
+                .filter(lease -> lease.deadline < threshold)
+                .collect(Collectors.groupingBy(lease -> lease.queueUrl));
+
+        for (Map.Entry<String, List<Lease>> entry : expiring.entrySet()) {
+            List<Lease> queueLeases = entry.getValue();
+            for (int i = 0; i < queueLeases.size(); i += MAX_BATCH_SIZE) {
+                extend(entry.getKey(), queueLeases.subList(i, Math.min(i + MAX_BATCH_SIZE, queueLeases.size())));
+            }
+        }
+    }
+
+    private void extend(String queueUrl, List<Lease> batch) {
+        List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            entries.add(ChangeMessageVisibilityBatchRequestEntry.builder()
+                    .id(Integer.toString(i))
+                    .receiptHandle(batch.get(i).receiptHandle)
+                    .visibilityTimeout(visibilityTimeoutSeconds)
+                    .build());
+        }
+
+        try {
+            long deadline = deadlineFromNow();
+            ChangeMessageVisibilityBatchResponse response = sqsClient.changeMessageVisibilityBatch(
+                    ChangeMessageVisibilityBatchRequest.builder()
+                            .queueUrl(queueUrl)
+                            .entries(entries)
+                            .build());
+
+            for (Lease lease : batch) {
+                lease.deadline = deadline;
+            }
+            for (BatchResultErrorEntry failed : response.failed()) {
+                Lease lease = batch.get(Integer.parseInt(failed.id()));
+                System.err.println("Failed to extend visibility: " + failed.message());
+                leases.remove(lease.receiptHandle);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Failed to extend message visibility: " + e.getMessage());
+        }
+    }
+
+    private long deadlineFromNow() {
+        return System.currentTimeMillis() + visibilityTimeoutSeconds * 1000L;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static class Lease {
+        private final String queueUrl;
+        private final String receiptHandle;
+        private volatile long deadline;
+
+        Lease(String queueUrl, String receiptHandle, long deadline) {
+            this.queueUrl = queueUrl;
+            this.receiptHandle = receiptHandle;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -3,163 +3,629 @@ package com.service;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.model.JobMessage;
+import com.model.SourceQueue;
+import com.model.TestCase;
+import com.util.CaseResult;
+import com.util.DedupeStore;
 import com.util.DockerRunner;
+import com.util.InvalidBundleException;
+import com.util.JobResult;
+import com.util.JobResultWriter;
+import com.util.LanguageRuntime;
+import com.util.LanguageRuntimes;
+import com.util.ResultCache;
 import com.util.ResultPublisher;
 
-import jakarta.annotation.PostConstruct;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
 import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
 import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
 import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
 
+/**
+ * Receives jobs from the request queues and runs them. On shutdown it stops
+ * receiving, hands buffered jobs back to the queue, and gives running jobs
+ * until the drain deadline to finish before removing their containers and
+ * handing those back too.
+ *
+ * <p>Every message that gets a result is acknowledged, errors included. SQS
+ * still delivers at least once, so results are remembered by job id and a
+ * job seen again gets its earlier result instead of a second run. A message
+ * that failed for a transient reason is left to become visible again, and
+ * one received more than {@code maxReceives} times is moved to the
+ * dead-letter queue and answered with an error.
+ */
 @Service
-public class WorkerService {
-    @Value("${aws.sqs.request.queue.url}")
-    private String REQUEST_QUEUE_URL;
+public class WorkerService implements SmartLifecycle {
+    private static final int MAX_RECEIVE_BATCH = 10;
+    private static final long MIN_RECEIVE_BACKOFF_MS = 100;
+    private static final long MAX_RECEIVE_BACKOFF_MS = 10_000;
+    // How long jobs get to unwind once their containers were removed.
+    private static final long ABORT_GRACE_MS = 5_000;
+    private static final TypeReference<List<TestCase>> TEST_CASES = new TypeReference<>() {
+    };
+
     @Value("${aws.sqs.response.queue.url}")
     private String RESPONSE_QUEUE_URL;
-    @Value("${aws.s3.bucket.name}")
-    private String BUCKET_NAME;
+
+    @Value("${aws.sqs.dead-letter.queue.url:}")
+    private String DEAD_LETTER_QUEUE_URL;
+
+    @Value("${worker.shutdown.drain-seconds:60}")
+    private long drainSeconds;
+
+    @Value("${worker.sqs.max-receives:5}")
+    private int maxReceives;
 
     private final SqsClient sqsClient;
-    private final S3Client s3Client;
+    private final CodeDownloader codeDownloader;
     private final DockerRunner dockerRunner;
     private final ResultPublisher resultPublisher;
     private final ObjectMapper objectMapper;
+    private final JobExecutor jobExecutor;
+    private final VisibilityExtender visibilityExtender;
+    private final ResultCache resultCache;
+    private final MeterRegistry meterRegistry;
+    private final WorkspaceManager workspaceManager;
+    private final SourceQueues sourceQueues;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final LanguageRuntimes languageRuntimes;
+    private final DedupeStore dedupeStore;
+    private final List<Thread> pollers = new ArrayList<>();
+    // Sent results are remembered here rather than on the publisher's flusher thread, which must not wait on disk.
+    private final ExecutorService dedupeWriter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dedupe-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running;
+    private volatile boolean stopping;
+    private volatile boolean aborted;
 
-    public WorkerService(SqsClient sqsClient, S3Client s3Client, DockerRunner dockerRunner,
-            ResultPublisher resultPublisher, ObjectMapper objectMapper) {
+    public WorkerService(SqsClient sqsClient, CodeDownloader codeDownloader, DockerRunner dockerRunner,
+            ResultPublisher resultPublisher, ObjectMapper objectMapper, JobExecutor jobExecutor,
+            VisibilityExtender visibilityExtender, ResultCache resultCache, MeterRegistry meterRegistry,
+            WorkspaceManager workspaceManager, SourceQueues sourceQueues, ConcurrencyLimiter concurrencyLimiter,
+            LanguageRuntimes languageRuntimes, DedupeStore dedupeStore) {
         this.sqsClient = sqsClient;
-        this.s3Client = s3Client;
+        this.codeDownloader = codeDownloader;
         this.dockerRunner = dockerRunner;
         this.resultPublisher = resultPublisher;
         this.objectMapper = objectMapper;
+        this.jobExecutor = jobExecutor;
+        this.visibilityExtender = visibilityExtender;
+        this.resultCache = resultCache;
+        this.meterRegistry = meterRegistry;
+        this.workspaceManager = workspaceManager;
+        this.sourceQueues = sourceQueues;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.languageRuntimes = languageRuntimes;
+        this.dedupeStore = dedupeStore;
     }
 
-    @PostConstruct
-    public void startListening() {
+    @Override
+    public synchronized void start() {
         System.out.println("Starting Worker Service...");
-        new Thread(this::start).start();
+        stopping = false;
+        aborted = false;
+        // One poller per queue, so a long poll on an empty queue never delays another.
+        for (SourceQueue queue : sourceQueues.getQueues()) {
+            Thread poller = new Thread(() -> poll(queue), "sqs-poller-" + queue.getName());
+            pollers.add(poller);
+            poller.start();
+        }
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(drainSeconds);
+        System.out.println("Stopping Worker Service, draining for up to " + drainSeconds + "s...");
+        stopping = true;
+        pollers.forEach(Thread::interrupt);
+        try {
+            for (Thread poller : pollers) {
+                poller.join(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+            // Another worker can start these sooner than this one could.
+            handBack(jobExecutor.drainBuffered());
+            if (!jobExecutor.awaitIdle(deadline - System.currentTimeMillis())) {
+                aborted = true;
+                int removed = dockerRunner.removeRunningContainers();
+                System.err.println("Drain deadline passed, removed " + removed + " running containers");
+                jobExecutor.awaitIdle(ABORT_GRACE_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        resultPublisher.awaitOffloads(Math.max(ABORT_GRACE_MS, deadline - System.currentTimeMillis()));
+        resultPublisher.flush();
+        awaitDedupeWrites(ABORT_GRACE_MS);
+        pollers.clear();
+        running = false;
+        System.out.println("Worker Service stopped");
+    }
+
+    // The writer runs tasks in order, so once a no-op gets through, every earlier write is done.
+    private void awaitDedupeWrites(long timeoutMs) {
+        try {
+            CompletableFuture.runAsync(() -> {
+            }, dedupeWriter).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("Dedupe writes still pending at shutdown: " + e);
+        }
     }
 
-    public void start() {
-        System.out.println("Worker Service started, listening for messages...");
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    void poll(SourceQueue queue) {
+        System.out.println("Worker Service started, listening for messages on " + queue.getName() + "...");
+        long backoffMs = 0;
 
-        while (true) {
-            ReceiveMessageResponse sqsResponse = sqsClient.receiveMessage(
-                    ReceiveMessageRequest.builder()
-                            .queueUrl(REQUEST_QUEUE_URL)
-                            .maxNumberOfMessages(1)
-                            .waitTimeSeconds(10)
-                            .build());
+        while (!stopping && !Thread.currentThread().isInterrupted()) {
+            if (backoffMs > 0) {
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            int slots;
+            try {
+                slots = jobExecutor.acquireSlots(queue.getName(), MAX_RECEIVE_BATCH);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
 
-            if (sqsResponse.messages().isEmpty()) {
+            ReceiveMessageResponse sqsResponse;
+            long receiveStart = System.nanoTime();
+            try {
+                sqsResponse = sqsClient.receiveMessage(
+                        ReceiveMessageRequest.builder()
+                                .queueUrl(queue.getUrl())
+                                .maxNumberOfMessages(slots)
+                                .visibilityTimeout(visibilityExtender.getVisibilityTimeoutSeconds())
+                                .waitTimeSeconds(10)
+                                .messageSystemAttributeNames(MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT)
+                                .build());
+            } catch (RuntimeException e) {
+                if (stopping) {
+                    jobExecutor.releaseSlots(queue.getName(), slots);
+                    break;
+                }
+                System.err.println("Failed to receive messages from " + queue.getName() + ": " + e.getMessage());
+                meterRegistry.counter("worker.sqs.receive.errors", "queue", queue.getName()).increment();
+                jobExecutor.releaseSlots(queue.getName(), slots);
+                backoffMs = Math.min(MAX_RECEIVE_BACKOFF_MS, Math.max(MIN_RECEIVE_BACKOFF_MS, backoffMs * 2));
                 continue;
             }
+            backoffMs = 0;
+            long receivedAt = System.nanoTime();
+            meterRegistry.timer("worker.sqs.receive", "queue", queue.getName())
+                    .record(receivedAt - receiveStart, TimeUnit.NANOSECONDS);
 
-            for (Message sqsMessage : sqsResponse.messages()) {
-                Path localFilePath = null;
-                try {
-                    JobMessage job = objectMapper.readValue(sqsMessage.body(), JobMessage.class);
-                    System.out.println("Received Job: " + job);
-
-                    localFilePath = downloadCode(job.getJobId(), job.getS3Key());
-
-                    String finalResult;
-                    try {
-                        DockerRunner.ExecutionResponse execResponse = dockerRunner.runContainer(job.getLanguage(),
-                                localFilePath.toString());
-
-                        String parsedResult = parseResult(execResponse.getOutput());
-
-                        finalResult = "{"
-                                + "\"jobId\":\"" + job.getJobId() + "\","
-                                + "\"executionTimeMs\":" + execResponse.getExecutionTimeMs() + ","
-                                + "\"result\":" + parsedResult
-                                + "}";
-                    } catch (Exception e) {
-                        System.err.println(e);
-                        resultPublisher.publishResult(RESPONSE_QUEUE_URL, job.getJobId(),
-                                "Container Execution Error: " + e.getMessage());
-                        continue;
-                    }
-
-                    resultPublisher.publishResult(RESPONSE_QUEUE_URL, job.getJobId(), finalResult);
-
-                    sqsClient.deleteMessage(DeleteMessageRequest.builder()
-                            .queueUrl(REQUEST_QUEUE_URL)
-                            .receiptHandle(sqsMessage.receiptHandle())
-                            .build());
-
-                } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
-                    System.err.println(e);
-                    resultPublisher.publishResult(RESPONSE_QUEUE_URL, "unknown",
-                            "JSON Processing Error: " + e.getMessage());
-                } catch (java.io.IOException e) {
-                    System.err.println(e);
-                    resultPublisher.publishResult(RESPONSE_QUEUE_URL, "unknown", "IO Error: " + e.getMessage());
-                } catch (RuntimeException e) {
-                    System.err.println(e);
-                    resultPublisher.publishResult(RESPONSE_QUEUE_URL, "unknown", "Runtime Error: " + e.getMessage());
-                } finally {
-                    if (localFilePath != null) {
-                        try {
-                            Files.deleteIfExists(localFilePath);
-                            System.out.println("Deleted file " + localFilePath);
-                        } catch (IOException e) {
-                            System.err.println("Failed to delete file: " + e.getMessage());
-                        }
-                    }
+            List<Message> messages = sqsResponse.messages();
+            if (stopping) {
+                jobExecutor.releaseSlots(queue.getName(), slots);
+                visibilityExtender.release(queue.getUrl(),
+                        messages.stream().map(Message::receiptHandle).toList());
+                break;
+            }
+            jobExecutor.releaseSlots(queue.getName(), slots - messages.size());
+            meterRegistry.counter("worker.sqs.messages.received", "queue", queue.getName())
+                    .increment(messages.size());
+
+            for (Message sqsMessage : messages) {
+                visibilityExtender.track(queue.getUrl(), sqsMessage.receiptHandle());
+                WorkspaceManager.Workspace workspace = acquireWorkspace();
+                CompletableFuture<Path> download = prefetch(sqsMessage, workspace);
+                jobExecutor.submit(queue.getName(),
+                        new BufferedJob(queue, sqsMessage, receivedAt, workspace, download));
+            }
+        }
+    }
+
+    private void handBack(List<Runnable> jobs) {
+        Map<String, List<String>> receiptHandles = new LinkedHashMap<>();
+        for (Runnable job : jobs) {
+            BufferedJob buffered = (BufferedJob) job;
+            receiptHandles.computeIfAbsent(buffered.queue.getUrl(), url -> new ArrayList<>())
+                    .add(buffered.message.receiptHandle());
+            closeWhenDownloaded(buffered.workspace, buffered.download);
+        }
+        receiptHandles.forEach(visibilityExtender::release);
+        if (!jobs.isEmpty()) {
+            System.out.println("Handed " + jobs.size() + " buffered jobs back to the queue");
+        }
+    }
+
+    private static void closeWhenDownloaded(WorkspaceManager.Workspace workspace, CompletableFuture<Path> download) {
+        if (workspace == null) {
+            return;
+        }
+        if (download != null && !download.isDone()) {
+            // Don't empty the directory under a download that is still writing to it.
+            download.whenComplete((path, error) -> workspace.close());
+        } else {
+            workspace.close();
+        }
+    }
+
+    /**
+     * Starts downloading the job's code while it waits for an execution slot.
+     * Returns null if there is no workspace, the message cannot be parsed or
+     * the job already ran; processMessage retries or reports that.
+     */
+    private CompletableFuture<Path> prefetch(Message sqsMessage, WorkspaceManager.Workspace workspace) {
+        if (workspace == null) {
+            return null;
+        }
+        try {
+            JobMessage job = objectMapper.readValue(sqsMessage.body(), JobMessage.class);
+            if (dedupeStore.get(dedupeKey(job, sqsMessage)) != null) {
+                return null;
+            }
+            return startDownload(job, workspace.getDir());
+        } catch (com.fasterxml.jackson.core.JsonProcessingException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private CompletableFuture<Path> startDownload(JobMessage job, Path dir) {
+        if (job.getBundleKey() != null) {
+            return codeDownloader.downloadBundle(job.getBundleKey(), dir);
+        }
+        return codeDownloader.download(job.getS3Key(), dir);
+    }
+
+    private WorkspaceManager.Workspace acquireWorkspace() {
+        try {
+            return workspaceManager.acquire();
+        } catch (IOException e) {
+            System.err.println("Failed to prepare workspace: " + e.getMessage());
+            return null;
+        }
+    }
+
+    void processMessage(SourceQueue queue, Message sqsMessage, long receivedAt,
+            WorkspaceManager.Workspace workspace, CompletableFuture<Path> download) {
+        long startedAt = System.nanoTime();
+        String language = "unknown";
+        String outcome = "infra_error";
+        String jobId = "unknown";
+        try {
+            JobMessage job = objectMapper.readValue(sqsMessage.body(), JobMessage.class);
+            System.out.println("Received Job: " + job);
+            jobId = job.getJobId();
+            language = languageTag(job.getLanguage());
+            recordStage("queued", queue, language, startedAt - receivedAt);
+
+            String dedupeKey = dedupeKey(job, sqsMessage);
+            String previous = dedupeStore.get(dedupeKey);
+            if (previous != null) {
+                outcome = "duplicate";
+                System.out.println("Job " + jobId + " already ran, sending its result again");
+                acknowledgeOnceSent(queue, sqsMessage, jobId, resultPublisher.forward(RESPONSE_QUEUE_URL, previous));
+                return;
+            }
+            int receives = receiveCount(sqsMessage);
+            if (maxReceives > 0 && receives > maxReceives) {
+                outcome = "dead_lettered";
+                deadLetter(queue, sqsMessage, jobId, receives);
+                return;
+            }
+
+            // Only the part of the download the job actually waits for.
+            long downloadStart = System.nanoTime();
+            if (workspace == null) {
+                workspace = workspaceManager.acquire();
+            }
+            if (download == null) {
+                download = startDownload(job, workspace.getDir());
+            }
+            CompletableFuture<byte[]> caseFile = job.getTestCasesKey() != null
+                    ? codeDownloader.downloadBytes(job.getTestCasesKey())
+                    : null;
+            Path localFilePath = awaitDownload(download);
+            List<TestCase> testCases = caseFile != null ? objectMapper.readValue(awaitDownload(caseFile), TEST_CASES)
+                    : job.getTestCases();
+            recordStage("download", queue, language, System.nanoTime() - downloadStart);
+
+            JobResult result;
+            try {
+                long executeStart = System.nanoTime();
+                DockerRunner.ExecutionResponse execResponse = execute(job, localFilePath, testCases);
+                long executeNanos = System.nanoTime() - executeStart;
+                recordStage("execute", queue, language, executeNanos);
+                concurrencyLimiter.record(executeNanos,
+                        execResponse.getStatus() == DockerRunner.ExecutionResponse.Status.TIMED_OUT);
+
+                result = toResult(job.getJobId(), execResponse);
+                outcome = result.getStatus().getName();
+            } catch (Exception e) {
+                if (aborted) {
+                    // Its container was removed on shutdown; let another worker run it from scratch.
+                    outcome = "handed_back";
+                    visibilityExtender.release(queue.getUrl(), List.of(sqsMessage.receiptHandle()));
+                    return;
                 }
+                System.err.println(e);
+                complete(queue, sqsMessage, JobResult.error(job.getJobId(), JobResult.Status.ERROR,
+                        "Container Execution Error: " + e.getMessage()));
+                return;
+            }
+
+            complete(queue, sqsMessage, result).thenAcceptAsync(body -> dedupeStore.put(dedupeKey, body),
+                    dedupeWriter);
+
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            System.err.println(e);
+            outcome = "invalid_message";
+            complete(queue, sqsMessage, JobResult.error("unknown", JobResult.Status.INVALID_MESSAGE,
+                    "JSON Processing Error: " + e.getMessage()));
+        } catch (InvalidBundleException e) {
+            System.err.println(e);
+            outcome = "invalid_bundle";
+            complete(queue, sqsMessage, JobResult.error(jobId, JobResult.Status.INVALID_BUNDLE,
+                    "Invalid Bundle: " + e.getMessage()));
+        } catch (java.io.IOException e) {
+            // Most likely S3 or the disk; the message becomes visible again once its visibility times out.
+            System.err.println("Job " + jobId + " will be retried: " + e);
+            outcome = "retry";
+            if (maxReceives <= 0) {
+                complete(queue, sqsMessage, JobResult.error(jobId, JobResult.Status.ERROR, "IO Error: " + e.getMessage()));
             }
+        } catch (RuntimeException e) {
+            System.err.println(e);
+            complete(queue, sqsMessage, JobResult.error(jobId, JobResult.Status.ERROR,
+                    "Runtime Error: " + e.getMessage()));
+        } finally {
+            meterRegistry.counter("worker.job.outcome", "queue", queue.getName(), "language", language,
+                    "outcome", outcome).increment();
+            recordStage("total", queue, language, System.nanoTime() - receivedAt);
+            visibilityExtender.untrack(sqsMessage.receiptHandle());
+            closeWhenDownloaded(workspace, download);
         }
     }
 
-    private String parseResult(String output) {
-        for (String line : output.split("\n")) {
-            if (line.startsWith("RESULT:")) {
-                return line.substring(7);
+    // Publishes the job's result and acknowledges its message once SQS accepted the result.
+    private CompletableFuture<String> complete(SourceQueue queue, Message sqsMessage, JobResult result) {
+        return acknowledgeOnceSent(queue, sqsMessage, result.getJobId(),
+                resultPublisher.publishResult(RESPONSE_QUEUE_URL, result));
+    }
+
+    private CompletableFuture<String> acknowledgeOnceSent(SourceQueue queue, Message sqsMessage, String jobId,
+            CompletableFuture<String> sent) {
+        return sent.whenComplete((body, error) -> {
+            if (error != null) {
+                // Not acknowledged, so the job runs again once its message is visible.
+                System.err.println("Result for job " + jobId + " not published, will be retried: "
+                        + error.getMessage());
+            } else {
+                resultPublisher.acknowledge(queue.getUrl(), sqsMessage.receiptHandle());
+            }
+        });
+    }
+
+    private void deadLetter(SourceQueue queue, Message sqsMessage, String jobId, int receives) {
+        System.err.println("Job " + jobId + " was received " + receives + " times, giving up");
+        CompletableFuture<String> forwarded = DEAD_LETTER_QUEUE_URL != null && !DEAD_LETTER_QUEUE_URL.isBlank()
+                ? resultPublisher.forward(DEAD_LETTER_QUEUE_URL, sqsMessage.body())
+                : CompletableFuture.completedFuture(null);
+        forwarded.whenComplete((body, error) -> {
+            if (error != null) {
+                // Left on the request queue; the next receive tries the dead-letter queue again.
+                System.err.println("Job " + jobId + " not moved to the dead-letter queue: " + error.getMessage());
+            } else {
+                complete(queue, sqsMessage, JobResult.error(jobId, JobResult.Status.ERROR,
+                        "Job failed after " + receives + " attempts"));
             }
+        });
+    }
+
+    private static String dedupeKey(JobMessage job, Message sqsMessage) {
+        return job.getJobId() != null ? job.getJobId() : sqsMessage.messageId();
+    }
+
+    private static int receiveCount(Message sqsMessage) {
+        String count = sqsMessage.attributes().get(MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT);
+        try {
+            return count != null ? Integer.parseInt(count) : 1;
+        } catch (NumberFormatException e) {
+            return 1;
         }
-        return "{"
-                + "\"status\":\"error\","
-                + "\"message\":\"" + summarizeError(output) + "\""
-                + "}";
     }
 
-    private String summarizeError(String output) {
-        String[] lines = output.split("\n");
-        if (lines.length > 0) {
-            return lines[0].replace("\"", "'");
+    private DockerRunner.ExecutionResponse execute(JobMessage job, Path localFilePath, List<TestCase> testCases)
+            throws Exception {
+        if (testCases != null) {
+            // Verdicts depend on the test cases, which the result cache key does not cover.
+            return dockerRunner.runTestCases(job.getLanguage(), localFilePath, job.getEntryPoint(), testCases,
+                    job.getCaseTimeoutMs());
+        }
+        if (job.getBundleKey() != null) {
+            // The archive is not kept once unpacked, so there is nothing to key the result cache on.
+            return dockerRunner.runBundle(job.getLanguage(), localFilePath, job.getEntryPoint());
+        }
+        String imageId = job.isCacheable() && resultCache.isEnabled()
+                ? dockerRunner.runnerImageId(job.getLanguage())
+                : null;
+        if (imageId == null) {
+            return dockerRunner.runContainer(job.getLanguage(), localFilePath.toString());
         }
-        return "Unknown error";
+        String key = resultCache.key(job.getLanguage(), imageId, localFilePath.getFileName().toString(),
+                Files.readAllBytes(localFilePath));
+        return resultCache.get(key, () -> dockerRunner.runContainer(job.getLanguage(), localFilePath.toString()),
+                response -> findResult(response) != null);
     }
 
-    private Path downloadCode(String jobId, String s3Key) throws IOException {
+    private void recordStage(String stage, SourceQueue queue, String language, long nanos) {
+        Timer.builder("worker.job.stage")
+                .description("Time a job spends in each stage of the pipeline")
+                .tags("stage", stage, "queue", queue.getName(), "language", language)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
 
-        Path tempDir = Files.createTempDirectory("submission-" + jobId + "-");
+    // Keeps the language tag bounded no matter what the job message contains.
+    private String languageTag(String language) {
+        if (language == null) {
+            return "unknown";
+        }
+        LanguageRuntime runtime = languageRuntimes.find(language);
+        return runtime != null ? runtime.getName() : "other";
+    }
 
-        String fileName = Path.of(s3Key).getFileName().toString();
+    /**
+     * Turns what the sandbox reported into the job's result. The RESULT:
+     * payload is checked here once; if it is not valid JSON, or the program
+     * exited with a non-zero code, the job counts as a runtime error.
+     */
+    static JobResult toResult(String jobId, DockerRunner.ExecutionResponse execResponse) {
+        List<CaseResult> cases = execResponse.getCases();
+        String payload = cases == null ? findResult(execResponse) : null;
+        String message = null;
+        if (payload != null && !JobResultWriter.isJson(payload)) {
+            payload = null;
+            message = "RESULT line is not valid JSON";
+        }
 
-        Path localFile = tempDir.resolve(fileName);
+        JobResult.Status status;
+        switch (execResponse.getStatus()) {
+            case TIMED_OUT:
+                status = JobResult.Status.TIMEOUT;
+                break;
+            case COMPILE_ERROR:
+                status = JobResult.Status.COMPILE_ERROR;
+                break;
+            default:
+                boolean failed = cases == null && (payload == null || exitedWithError(execResponse));
+                status = failed ? JobResult.Status.RUNTIME_ERROR : JobResult.Status.SUCCESS;
+        }
 
-        s3Client.getObject(
-                GetObjectRequest.builder()
-                        .bucket(BUCKET_NAME)
-                        .key(s3Key)
-                        .build(),
-                localFile);
+        JobResult result = new JobResult(jobId, status);
+        result.setExecutionTimeMs(execResponse.getExecutionTimeMs());
+        result.setCompileTimeMs(execResponse.getCompileTimeMs());
+        result.setRunTimeMs(execResponse.getRunTimeMs());
+        result.setExitCode(execResponse.getExitCode());
+        result.setSignal(execResponse.getSignal());
+        result.setOutputTruncated(execResponse.isTruncated());
+        result.setUsage(execResponse.getUsage());
+        result.setCases(cases);
+        result.setResult(payload);
+        if (status != JobResult.Status.SUCCESS) {
+            result.setMessage(message != null ? message : errorMessage(execResponse));
+            if (cases == null) {
+                result.setStdout(execResponse.getOutput());
+                result.setStderr(execResponse.getStderr());
+            }
+        }
+        return result;
+    }
 
-        return localFile;
+    private static boolean exitedWithError(DockerRunner.ExecutionResponse execResponse) {
+        return execResponse.getExitCode() != null && execResponse.getExitCode() != 0;
     }
 
+    // Compilers and runtimes report errors on stderr; older runners only had one stream.
+    private static String errorMessage(DockerRunner.ExecutionResponse execResponse) {
+        String stderr = execResponse.getStderr();
+        String message = summarizeError(stderr != null && !stderr.isBlank() ? stderr : execResponse.getOutput());
+        if (message.equals("Unknown error") && execResponse.getSignal() != null) {
+            return "Killed by signal " + execResponse.getSignal();
+        }
+        return message;
+    }
+
+    private static String findResult(DockerRunner.ExecutionResponse execResponse) {
+        if (execResponse.getResult() != null) {
+            return execResponse.getResult();
+        }
+        for (String line : execResponse.getOutput().split("\n")) {
+            if (line.startsWith("RESULT:")) {
+                return line.substring(7);
+            }
+        }
+        return null;
+    }
+
+    static String summarizeError(String output) {
+        int end = output.indexOf('\n');
+        String firstLine = end >= 0 ? output.substring(0, end) : output;
+        return firstLine.isEmpty() ? "Unknown error" : firstLine;
+    }
+
+    private <T> T awaitDownload(CompletableFuture<T> download) throws IOException {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading code", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    // A received job waiting for an executor; kept as data so it can be handed back on shutdown.
+    private class BufferedJob implements Runnable {
+        private final SourceQueue queue;
+        private final Message message;
+        private final long receivedAt;
+        private final WorkspaceManager.Workspace workspace;
+        private final CompletableFuture<Path> download;
+
+        BufferedJob(SourceQueue queue, Message message, long receivedAt, WorkspaceManager.Workspace workspace,
+                CompletableFuture<Path> download) {
+            this.queue = queue;
+            this.message = message;
+            this.receivedAt = receivedAt;
+            this.workspace = workspace;
+            this.download = download;
+        }
+
+        @Override
+        public void run() {
+            processMessage(queue, message, receivedAt, workspace, download);
+        }
+    }
 }
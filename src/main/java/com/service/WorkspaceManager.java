@@ -0,0 +1,153 @@
+package com.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out job workspaces from a fixed set of directories created once at
+ * startup, by default on tmpfs ({@code /dev/shm}) so submissions never touch
+ * the host disk. Releasing a workspace empties it, including anything the
+ * job compiled or wrote there. Whatever a previous process left under the
+ * root is removed on startup, so the root must belong to this worker alone.
+ */
+@Component
+public class WorkspaceManager {
+    private static final String SLOT_PREFIX = "slot-";
+    private static final String OVERFLOW_PREFIX = "job-";
+    private static final String LEGACY_PREFIX = "submission-";
+    private static final long LEGACY_MAX_AGE_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final Path root;
+    private final Queue<Path> freeSlots = new ConcurrentLinkedQueue<>();
+
+    public WorkspaceManager(JobExecutor jobExecutor, @Value("${worker.workspace.root:}") String root,
+            @Value("${worker.workspace.slots:0}") int slots) throws IOException {
+        this.root = root.isBlank() ? defaultRoot() : Path.of(root);
+        int slotCount = slots > 0 ? slots : jobExecutor.getConcurrency() + jobExecutor.getQueueCapacity();
+
+        Files.createDirectories(this.root);
+        sweep();
+        for (int i = 0; i < slotCount; i++) {
+            freeSlots.add(Files.createDirectories(this.root.resolve(SLOT_PREFIX + i)));
+        }
+        sweepLegacyTempDirectories();
+        System.out.println("Prepared " + slotCount + " workspaces under " + this.root);
+    }
+
+    private static Path defaultRoot() {
+        Path shm = Path.of("/dev/shm");
+        if (Files.isDirectory(shm) && Files.isWritable(shm)) {
+            return shm.resolve("coding-platform-worker");
+        }
+        return Path.of(System.getProperty("java.io.tmpdir"), "coding-platform-worker");
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public int getFreeSlots() {
+        return freeSlots.size();
+    }
+
+    /**
+     * Returns a free workspace, or a new one-off directory if every slot is
+     * taken.
+     */
+    public Workspace acquire() throws IOException {
+        Path slot = freeSlots.poll();
+        if (slot != null) {
+            return new Workspace(slot, true);
+        }
+        return new Workspace(Files.createDirectories(root.resolve(OVERFLOW_PREFIX + UUID.randomUUID())), false);
+    }
+
+    private void release(Workspace workspace) {
+        if (!workspace.slot) {
+            deleteRecursively(workspace.dir, true);
+            return;
+        }
+        if (deleteRecursively(workspace.dir, false)) {
+            freeSlots.add(workspace.dir);
+        } else {
+            System.err.println("Retiring workspace " + workspace.dir + " that could not be emptied");
+        }
+    }
+
+    private void sweep() throws IOException {
+        List<Path> leftovers;
+        try (Stream<Path> entries = Files.list(root)) {
+            leftovers = entries.collect(Collectors.toList());
+        }
+        for (Path leftover : leftovers) {
+            deleteRecursively(leftover, true);
+        }
+        if (!leftovers.isEmpty()) {
+            System.out.println("Removed " + leftovers.size() + " leftover workspaces from " + root);
+        }
+    }
+
+    // Jobs used to run in java.io.tmpdir/submission-* and never removed the directory.
+    private static void sweepLegacyTempDirectories() {
+        long cutoff = System.currentTimeMillis() - LEGACY_MAX_AGE_MS;
+        try (Stream<Path> entries = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            for (Path dir : (Iterable<Path>) entries::iterator) {
+                if (dir.getFileName().toString().startsWith(LEGACY_PREFIX) && Files.isDirectory(dir)
+                        && Files.getLastModifiedTime(dir).toMillis() < cutoff) {
+                    deleteRecursively(dir, true);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to sweep old submission directories: " + e.getMessage());
+        }
+    }
+
+    private static boolean deleteRecursively(Path dir, boolean includingDir) {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                if (includingDir || !path.equals(dir)) {
+                    Files.deleteIfExists(path);
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Failed to delete " + dir + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    public class Workspace implements AutoCloseable {
+        private final Path dir;
+        private final boolean slot;
+        private boolean closed;
+
+        Workspace(Path dir, boolean slot) {
+            this.dir = dir;
+            this.slot = slot;
+        }
+
+        public Path getDir() {
+            return dir;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                release(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Unpacks a submission bundle (.zip, .tar, .tar.gz or .tgz) into a workspace
+ * while it is still being read, so the archive itself is never stored.
+ * Only regular files and directories are accepted; links and entries that
+ * would land outside the workspace are rejected. The entry count and the
+ * number of bytes actually written are capped, whatever the headers claim.
+ */
+@Component
+public class BundleExtractor {
+    private final int maxEntries;
+    private final long maxBytes;
+
+    public BundleExtractor(@Value("${worker.bundle.max-entries:1000}") int maxEntries,
+            @Value("${worker.bundle.max-bytes:33554432}") long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    public static boolean isBundle(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".zip") || lower.endsWith(".tar") || lower.endsWith(".tar.gz")
+                || lower.endsWith(".tgz");
+    }
+
+    /**
+     * Extracts {@code in}, whose format is taken from {@code name}, into
+     * {@code dir}. Returns the number of bytes written.
+     */
+    public long extract(InputStream in, String name, Path dir) throws IOException {
+        try (ArchiveInputStream<? extends ArchiveEntry> archive = open(new BufferedInputStream(in), name)) {
+            Path root = dir.toAbsolutePath().normalize();
+            byte[] buffer = new byte[8192];
+            int entries = 0;
+            long written = 0;
+
+            ArchiveEntry entry;
+            while ((entry = archive.getNextEntry()) != null) {
+                if (++entries > maxEntries) {
+                    throw new InvalidBundleException("Bundle has more than " + maxEntries + " entries");
+                }
+                Path target = root.resolve(entry.getName()).normalize();
+                if (!target.startsWith(root)) {
+                    throw new InvalidBundleException("Bundle entry outside the workspace: " + entry.getName());
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(target);
+                    continue;
+                }
+                if (!isRegularFile(entry) || !archive.canReadEntryData(entry)) {
+                    throw new InvalidBundleException("Unsupported bundle entry: " + entry.getName());
+                }
+
+                Files.createDirectories(target.getParent());
+                try (OutputStream out = Files.newOutputStream(target)) {
+                    int n;
+                    while ((n = archive.read(buffer)) != -1) {
+                        written += n;
+                        if (written > maxBytes) {
+                            throw new InvalidBundleException("Bundle is larger than " + maxBytes
+                                    + " bytes uncompressed");
+                        }
+                        out.write(buffer, 0, n);
+                    }
+                }
+            }
+            return written;
+        }
+    }
+
+    private static ArchiveInputStream<? extends ArchiveEntry> open(InputStream in, String name) throws IOException {
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".zip")) {
+            // Allow stored entries with a data descriptor, as written by streaming zip tools.
+            return new ZipArchiveInputStream(in, "UTF-8", true, true);
+        }
+        if (lower.endsWith(".tar")) {
+            return new TarArchiveInputStream(in);
+        }
+        if (lower.endsWith(".tar.gz") || lower.endsWith(".tgz")) {
+            return new TarArchiveInputStream(new GzipCompressorInputStream(in));
+        }
+        throw new InvalidBundleException("Unsupported bundle format: " + name);
+    }
+
+    private static boolean isRegularFile(ArchiveEntry entry) {
+        if (entry instanceof TarArchiveEntry) {
+            return ((TarArchiveEntry) entry).isFile();
+        }
+        if (entry instanceof ZipArchiveEntry) {
+            return !((ZipArchiveEntry) entry).isUnixSymlink();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,61 @@
+package com.util;
+
+/**
+ * Outcome of one test case of a batch run.
+ */
+public class CaseResult {
+    public enum Verdict {
+        // ACCEPTED and WRONG_ANSWER only when the case has an expected output.
+        ACCEPTED, WRONG_ANSWER, COMPLETED, RUNTIME_ERROR, TIME_LIMIT_EXCEEDED, OUTPUT_LIMIT_EXCEEDED, NOT_RUN
+    }
+
+    private final String name;
+    private final Verdict verdict;
+    private final int exitCode;
+    private final long timeMs;
+    private final String output;
+    private final String stderr;
+
+    public CaseResult(String name, Verdict verdict, int exitCode, long timeMs, String output, String stderr) {
+        this.name = name;
+        this.verdict = verdict;
+        this.exitCode = exitCode;
+        this.timeMs = timeMs;
+        this.output = output;
+        this.stderr = stderr;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Verdict getVerdict() {
+        return verdict;
+    }
+
+    /**
+     * Exit code of the program, or -1 if the case did not run.
+     */
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public long getTimeMs() {
+        return timeMs;
+    }
+
+    /**
+     * Stdout of the case, cut at the per-case limit. This is what is
+     * compared with the expected output.
+     */
+    public String getOutput() {
+        return output;
+    }
+
+    /**
+     * Stderr of the case, cut at the per-case limit.
+     */
+    public String getStderr() {
+        return stderr;
+    }
+}
@@ -0,0 +1,268 @@
+package com.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * On-disk cache of compiler output (class files, binaries) keyed by a hash of the submission
+ * source and the runner image it was compiled with. Entries are evicted in
+ * least-recently-used order once the cache grows past its size limit; an
+ * evicted entry that is being restored is deleted once the last restore is done.
+ */
+@Component
+public class CompileCache {
+    private static final PathMatcher CLASS_FILES = FileSystems.getDefault().getPathMatcher("glob:**.class");
+
+    private final Path root;
+    private final long maxBytes;
+    private final boolean enabled;
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Restores in progress per entry, and evicted entries whose files wait for them.
+    private final Map<String, Integer> readers = new HashMap<>();
+    private final Set<String> evictedWhileRead = new HashSet<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long totalBytes;
+
+    public CompileCache(@Value("${worker.compile-cache.dir:}") String root,
+            @Value("${worker.compile-cache.max-bytes:268435456}") long maxBytes,
+            @Value("${worker.compile-cache.enabled:true}") boolean enabled) {
+        this.root = root.isBlank() ? Path.of(System.getProperty("java.io.tmpdir"), "worker-compile-cache")
+                : Path.of(root);
+        this.maxBytes = maxBytes;
+        this.enabled = enabled;
+        if (enabled) {
+            loadIndex();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized long getSizeBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public String key(String fileName, byte[] source, String imageId) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(imageId.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(fileName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(source);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Copies the cached files for {@code key} into {@code workspace}.
+     * Returns false on a miss.
+     */
+    public boolean restore(String key, Path workspace) {
+        if (!acquire(key)) {
+            misses.incrementAndGet();
+            return false;
+        }
+        Path entry = root.resolve(key);
+        try (Stream<Path> files = Files.walk(entry)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                Path target = workspace.resolve(entry.relativize(file).toString());
+                Files.createDirectories(target.getParent());
+                Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            }
+            hits.incrementAndGet();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Failed to restore compile cache entry " + key + ": " + e.getMessage());
+            synchronized (this) {
+                Long size = entries.remove(key);
+                if (size != null) {
+                    totalBytes -= size;
+                    evictedWhileRead.add(key);
+                }
+            }
+            misses.incrementAndGet();
+            return false;
+        } finally {
+            release(key);
+        }
+    }
+
+    // Marks the entry as being read so eviction leaves its files alone; false on a miss.
+    synchronized boolean acquire(String key) {
+        if (entries.get(key) == null) {
+            return false;
+        }
+        readers.merge(key, 1, Integer::sum);
+        return true;
+    }
+
+    synchronized void release(String key) {
+        if (readers.merge(key, -1, Integer::sum) > 0) {
+            return;
+        }
+        readers.remove(key);
+        if (evictedWhileRead.remove(key)) {
+            deleteQuietly(root.resolve(key));
+        }
+    }
+
+    /**
+     * Stores every class file found in {@code workspace} under {@code key}.
+     */
+    public void store(String key, Path workspace) {
+        store(key, workspace, CLASS_FILES);
+    }
+
+    /**
+     * Stores every file in {@code workspace} whose relative path matches
+     * {@code outputs} under {@code key}.
+     */
+    public void store(String key, Path workspace, PathMatcher outputs) {
+        synchronized (this) {
+            if (entries.containsKey(key)) {
+                return;
+            }
+        }
+        Path staging = root.resolve(".tmp-" + UUID.randomUUID());
+        try {
+            List<Path> outputFiles;
+            try (Stream<Path> files = Files.walk(workspace)) {
+                outputFiles = files.filter(p -> Files.isRegularFile(p) && outputs.matches(workspace.relativize(p)))
+                        .collect(Collectors.toList());
+            }
+            if (outputFiles.isEmpty()) {
+                return;
+            }
+
+            long size = 0;
+            for (Path outputFile : outputFiles) {
+                Path target = staging.resolve(workspace.relativize(outputFile).toString());
+                Files.createDirectories(target.getParent());
+                Files.copy(outputFile, target, StandardCopyOption.COPY_ATTRIBUTES);
+                size += Files.size(target);
+            }
+            Files.move(staging, root.resolve(key), StandardCopyOption.ATOMIC_MOVE);
+
+            synchronized (this) {
+                entries.put(key, size);
+                totalBytes += size;
+                evict();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to store compile cache entry " + key + ": " + e.getMessage());
+        } finally {
+            deleteQuietly(staging);
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            eldest.remove();
+            totalBytes -= entry.getValue();
+            if (readers.containsKey(entry.getKey())) {
+                evictedWhileRead.add(entry.getKey());
+            } else {
+                deleteQuietly(root.resolve(entry.getKey()));
+            }
+        }
+    }
+
+    private void loadIndex() {
+        try {
+            Files.createDirectories(root);
+            List<Path> existing;
+            try (Stream<Path> dirs = Files.list(root)) {
+                existing = dirs.collect(Collectors.toCollection(ArrayList::new));
+            }
+            existing.sort(Comparator.comparingLong(CompileCache::lastModified));
+            for (Path dir : existing) {
+                String name = dir.getFileName().toString();
+                if (name.startsWith(".tmp-")) {
+                    deleteQuietly(dir);
+                    continue;
+                }
+                long size = directorySize(dir);
+                entries.put(name, size);
+                totalBytes += size;
+            }
+            evict();
+            System.out.println("Compile cache loaded " + entries.size() + " entries from " + root);
+        } catch (IOException e) {
+            System.err.println("Failed to load compile cache index: " + e.getMessage());
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long directorySize(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            long size = 0;
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                size += Files.size(file);
+            }
+            return size;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            for (Path p : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to delete " + path + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.util;
+
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * {@link LanguageRuntime} defined entirely by a {@code worker.languages.<name>}
+ * block, so adding a language only takes configuration.
+ */
+public class ConfiguredLanguageRuntime implements LanguageRuntime {
+    private final String name;
+    private final String image;
+    private final String compile;
+    private final String compileBundle;
+    private final String run;
+    private final String runBundle;
+    private final String defaultEntryPoint;
+    private final Pattern entryPointPattern;
+    private final PathMatcher compileOutputs;
+    private final ResourceProfile resourceProfile;
+    private final int poolSize;
+    private final boolean inJvm;
+
+    public ConfiguredLanguageRuntime(String name, LanguageProperties properties) {
+        if (isBlank(properties.getImage()) || isBlank(properties.getRun())) {
+            throw new IllegalArgumentException("Language " + name + " needs an image and a run command");
+        }
+        this.name = name.toLowerCase(Locale.ROOT);
+        this.image = properties.getImage();
+        this.compile = blankToNull(properties.getCompile());
+        this.compileBundle = blankToNull(properties.getCompileBundle());
+        this.run = properties.getRun();
+        this.runBundle = blankToNull(properties.getRunBundle());
+        this.defaultEntryPoint = properties.getDefaultEntryPoint();
+        this.entryPointPattern = Pattern.compile(properties.getEntryPointPattern());
+        this.compileOutputs = isBlank(properties.getCompileOutputs()) ? null
+                : FileSystems.getDefault().getPathMatcher("glob:" + properties.getCompileOutputs());
+        this.resourceProfile = new ResourceProfile(properties.getCpus(), properties.getMemoryMb(),
+                properties.getPids(), properties.isNetworkDisabled());
+        this.poolSize = properties.getPoolSize();
+        this.inJvm = "in-jvm".equalsIgnoreCase(properties.getMode());
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getImage() {
+        return image;
+    }
+
+    @Override
+    public String compileCommand(String fileName) {
+        return compile == null ? null : expand(compile, fileName, null);
+    }
+
+    @Override
+    public String compileBundleCommand() {
+        return compileBundle;
+    }
+
+    @Override
+    public String runCommand(String fileName) {
+        return expand(run, fileName, null);
+    }
+
+    @Override
+    public String runBundleCommand(String entryPoint) {
+        if (runBundle == null) {
+            throw new IllegalArgumentException("Language " + name + " does not support bundles");
+        }
+        return expand(runBundle, null, entryPoint);
+    }
+
+    @Override
+    public String getDefaultEntryPoint() {
+        return defaultEntryPoint;
+    }
+
+    @Override
+    public boolean isValidEntryPoint(String entryPoint) {
+        return entryPointPattern.matcher(entryPoint).matches();
+    }
+
+    @Override
+    public ResourceProfile getResourceProfile() {
+        return resourceProfile;
+    }
+
+    @Override
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    @Override
+    public boolean isInJvm() {
+        return inJvm;
+    }
+
+    @Override
+    public PathMatcher getCompileOutputs() {
+        return compileOutputs;
+    }
+
+    // Every value is shell-quoted: file names come straight from the S3 key and the command runs under sh -c.
+    private static String expand(String template, String fileName, String entryPoint) {
+        String command = template;
+        if (fileName != null) {
+            int dot = fileName.lastIndexOf('.');
+            command = command.replace("{file}", quote(fileName))
+                    .replace("{name}", quote(dot > 0 ? fileName.substring(0, dot) : fileName));
+        }
+        if (entryPoint != null) {
+            command = command.replace("{entry}", quote(entryPoint));
+        }
+        return command;
+    }
+
+    private static String quote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static String blankToNull(String value) {
+        return isBlank(value) ? null : value;
+    }
+}
@@ -0,0 +1,53 @@
+package com.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Reads a container's cgroup (v2) counters from the host's cgroup tree, so
+ * accounting never runs anything inside the container. Both Docker cgroup
+ * drivers are looked up: {@code docker/<id>} for cgroupfs and
+ * {@code system.slice/docker-<id>.scope} for systemd.
+ */
+public class ContainerCgroups {
+    private final Path cgroupDir;
+
+    public ContainerCgroups(Path cgroupDir) {
+        this.cgroupDir = cgroupDir;
+    }
+
+    /**
+     * A snapshot for {@link ResourceUsage#between}: the host's monotonic clock,
+     * the container's cpu.stat and its memory high-water mark. Only the clock
+     * is present if the container's cgroup cannot be read.
+     */
+    public String snapshot(String containerId) {
+        StringBuilder snapshot = new StringBuilder("time_usec ").append(System.nanoTime() / 1000).append('\n');
+        Path dir = find(containerId);
+        if (dir == null) {
+            return snapshot.toString();
+        }
+        try {
+            snapshot.append(Files.readString(dir.resolve("cpu.stat")));
+            Path peak = dir.resolve("memory.peak");
+            if (Files.exists(peak)) {
+                snapshot.append("peak ").append(Files.readString(peak).trim()).append('\n');
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read resource usage of " + containerId + ": " + e.getMessage());
+        }
+        return snapshot.toString();
+    }
+
+    private Path find(String containerId) {
+        for (Path dir : List.of(cgroupDir.resolve("docker").resolve(containerId),
+                cgroupDir.resolve("system.slice").resolve("docker-" + containerId + ".scope"))) {
+            if (Files.isDirectory(dir)) {
+                return dir;
+            }
+        }
+        return null;
+    }
+}
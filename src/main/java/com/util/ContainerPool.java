@@ -0,0 +1,388 @@
+package com.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.util.docker.ContainerResult;
+import com.util.docker.ContainerRuntime;
+import com.util.docker.ContainerSpec;
+import com.util.docker.OutputSink;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps idle, already started sandbox containers per language so that a job
+ * only pays for an exec instead of creating and starting a container.
+ * Every container gets its own host directory mounted at {@code /app}; a job
+ * copies its files there, runs, and the container is reset in the background
+ * before it is handed out again. The root filesystem is read-only, so
+ * {@code /app}, the {@code /tmp} tmpfs and {@code /dev/shm} are the only
+ * places a submission can leave files, and the reset wipes all three.
+ * Pool containers are labelled with the pool's owner, so those left running
+ * by a worker that crashed are removed when it starts again.
+ */
+@Service
+public class ContainerPool {
+    private static final long RESET_TIMEOUT_MS = 30_000;
+    private static final long RUNNER_STARTUP_TIMEOUT_MS = 30_000;
+    private static final String RESET_SCRIPT = "kill -9 -1 2>/dev/null; "
+            + "rm -rf /app/* /app/.[!.]* /tmp/* /tmp/.[!.]* /dev/shm/* /dev/shm/.[!.]*";
+    private static final String POOL_LABEL = "coding-platform-worker";
+    private static final String OWNER_LABEL = "coding-platform-worker.owner";
+
+    private final Map<String, LanguagePool> pools = new ConcurrentHashMap<>();
+    private final ContainerRuntime containerRuntime;
+    private final Path root;
+    private final int maxReuse;
+    private final int healthCheckSeconds;
+    private final int tmpSizeMb;
+    private final Map<String, String> labels;
+    private final ExecutorService maintenance;
+    private final ScheduledExecutorService healthChecker;
+    private volatile boolean closed;
+
+    public ContainerPool(ContainerRuntime containerRuntime, LanguageRuntimes languageRuntimes,
+            @Value("${worker.pool.max-reuse:50}") int maxReuse,
+            @Value("${worker.pool.health-check-seconds:30}") int healthCheckSeconds,
+            @Value("${worker.pool.tmp-size-mb:64}") int tmpSizeMb,
+            @Value("${worker.pool.owner:default}") String owner,
+            @Value("${worker.pool.root:}") String root) {
+        this.containerRuntime = containerRuntime;
+        this.root = root.isBlank() ? Path.of(System.getProperty("java.io.tmpdir"), "worker-pool") : Path.of(root);
+        this.maxReuse = maxReuse;
+        this.healthCheckSeconds = healthCheckSeconds;
+        this.tmpSizeMb = tmpSizeMb;
+        this.labels = Map.of(POOL_LABEL, "pool", OWNER_LABEL, owner);
+        this.maintenance = Executors.newFixedThreadPool(2, daemonThreads("container-pool"));
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(daemonThreads("container-pool-health"));
+
+        for (LanguageRuntime runtime : languageRuntimes.getAll()) {
+            if (runtime.getPoolSize() > 0) {
+                pools.put(runtime.getName(), new LanguagePool(runtime));
+            }
+        }
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        removeLeftovers();
+        if (pools.isEmpty()) {
+            return;
+        }
+        pools.values().forEach(this::fill);
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, healthCheckSeconds, healthCheckSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    // Warm containers of an earlier run of this worker that ended without removing them.
+    private void removeLeftovers() {
+        try {
+            List<String> leftovers = containerRuntime.list(labels);
+            for (String containerId : leftovers) {
+                containerRuntime.remove(containerId);
+            }
+            if (!leftovers.isEmpty()) {
+                System.out.println("Removed " + leftovers.size() + " pool containers left by an earlier run");
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to remove leftover pool containers: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns an idle container for the language, or {@code null} when none is
+     * ready and the caller should fall back to a cold start.
+     */
+    public PooledContainer borrow(String language) {
+        LanguagePool pool = pools.get(language);
+        if (pool == null) {
+            return null;
+        }
+        PooledContainer container = pool.idle.poll();
+        if (container != null) {
+            container.uses++;
+        }
+        return container;
+    }
+
+    /**
+     * Hands a container back after a job. Containers that misbehaved (for
+     * example timed out) or reached the reuse limit are replaced.
+     */
+    public void release(PooledContainer container, boolean reusable) {
+        LanguagePool pool = pools.get(container.getLanguage());
+        if (closed || pool == null) {
+            remove(container);
+            return;
+        }
+        maintenance.execute(() -> {
+            if (reusable && container.uses < maxReuse && reset(container)) {
+                pool.idle.add(container);
+            } else {
+                remove(container);
+                pool.live.decrementAndGet();
+                fill(pool);
+            }
+        });
+    }
+
+    public int getIdleCount(String language) {
+        LanguagePool pool = pools.get(language);
+        return pool == null ? 0 : pool.idle.size();
+    }
+
+    private void fill(LanguagePool pool) {
+        while (!closed && pool.live.get() < pool.size) {
+            pool.live.incrementAndGet();
+            maintenance.execute(() -> {
+                try {
+                    pool.idle.add(create(pool));
+                } catch (IOException | RuntimeException e) {
+                    pool.live.decrementAndGet();
+                    System.err.println("Failed to start warm " + pool.language + " container: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    private PooledContainer create(LanguagePool pool) throws IOException {
+        String name = "worker-" + pool.language + "-" + UUID.randomUUID().toString().substring(0, 8);
+        Path workDir = Files.createDirectories(root.resolve(name));
+        boolean inJvm = pool.runtime.isInJvm();
+        Path controlDir = inJvm ? Files.createDirectories(root.resolve(name + ".ctl")) : null;
+
+        ContainerSpec spec;
+        if (inJvm) {
+            spec = new ContainerSpec(name, pool.runtime.getImage(), List.of("java", "-Djava.security.manager=allow",
+                    "-cp", "/opt/runner", "InJvmRunner", "/run/runner/" + InJvmRunnerClient.SOCKET_NAME, "/app"))
+                    .bind(controlDir.toAbsolutePath().toString(), "/run/runner");
+        } else {
+            spec = new ContainerSpec(name, pool.runtime.getImage(), List.of("sleep", "infinity"));
+        }
+        spec.bind(workDir.toAbsolutePath().toString(), "/app")
+                .readOnlyRootfs(true)
+                .tmpfs("/tmp", "rw,nosuid,nodev,size=" + tmpSizeMb + "m")
+                .label(POOL_LABEL, "pool")
+                .label(OWNER_LABEL, labels.get(OWNER_LABEL));
+        pool.runtime.getResourceProfile().apply(spec);
+
+        String containerId;
+        try {
+            containerId = containerRuntime.create(spec);
+            containerRuntime.start(containerId);
+            if (inJvm) {
+                awaitRunnerSocket(controlDir.resolve(InJvmRunnerClient.SOCKET_NAME));
+            }
+        } catch (IOException e) {
+            deleteRecursively(workDir);
+            if (controlDir != null) {
+                deleteRecursively(controlDir);
+            }
+            try {
+                containerRuntime.remove(name);
+            } catch (IOException removeError) {
+                System.err.println("Failed to clean up container " + name + ": " + removeError.getMessage());
+            }
+            throw e;
+        }
+
+        System.out.println("Started warm " + pool.language + " container " + name);
+        return new PooledContainer(containerId, name, pool.language, workDir, controlDir);
+    }
+
+    private void awaitRunnerSocket(Path socket) throws IOException {
+        long deadline = System.currentTimeMillis() + RUNNER_STARTUP_TIMEOUT_MS;
+        while (!Files.exists(socket)) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("In-JVM runner did not start within " + RUNNER_STARTUP_TIMEOUT_MS + "ms");
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for in-JVM runner");
+            }
+        }
+    }
+
+    private boolean reset(PooledContainer container) {
+        try {
+            // Kill anything the submission left running, then wipe every writable path.
+            ContainerResult result = containerRuntime.exec(container.getId(), List.of("sh", "-c", RESET_SCRIPT),
+                    OutputSink.DISCARD, OutputSink.DISCARD, RESET_TIMEOUT_MS);
+            clearDirectory(container.getWorkDir());
+            return !result.isTimedOut() && result.getExitCode() == 0;
+        } catch (IOException e) {
+            System.err.println("Failed to reset container " + container.getName() + ": " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void remove(PooledContainer container) {
+        try {
+            containerRuntime.remove(container.getId());
+            deleteRecursively(container.getWorkDir());
+            if (container.getControlDir() != null) {
+                deleteRecursively(container.getControlDir());
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to remove container " + container.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private boolean isRunning(PooledContainer container) {
+        try {
+            return containerRuntime.isRunning(container.getId());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    void checkHealth() {
+        for (LanguagePool pool : pools.values()) {
+            for (PooledContainer container : new ArrayList<>(pool.idle)) {
+                if (!isRunning(container) && pool.idle.remove(container)) {
+                    System.err.println("Replacing unhealthy container " + container.getName());
+                    remove(container);
+                    pool.live.decrementAndGet();
+                }
+            }
+            fill(pool);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        healthChecker.shutdownNow();
+        maintenance.shutdown();
+        try {
+            maintenance.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (LanguagePool pool : pools.values()) {
+            List<PooledContainer> idle = new ArrayList<>();
+            pool.idle.drainTo(idle);
+            idle.forEach(this::remove);
+        }
+    }
+
+    private static void clearDirectory(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            Files.createDirectories(dir);
+            return;
+        }
+        try (Stream<Path> children = Files.list(dir)) {
+            for (Path child : (Iterable<Path>) children::iterator) {
+                deleteRecursively(child);
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            for (Path p : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public static class PooledContainer {
+        private final String id;
+        private final String name;
+        private final String language;
+        private final Path workDir;
+        private final Path controlDir;
+        private int uses;
+
+        PooledContainer(String id, String name, String language, Path workDir, Path controlDir) {
+            this.id = id;
+            this.name = name;
+            this.language = language;
+            this.workDir = workDir;
+            this.controlDir = controlDir;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getLanguage() {
+            return language;
+        }
+
+        public Path getWorkDir() {
+            return workDir;
+        }
+
+        public Path getControlDir() {
+            return controlDir;
+        }
+
+        /**
+         * Socket of the in-JVM Java runner, or {@code null} for plain
+         * containers.
+         */
+        public Path getRunnerSocket() {
+            return controlDir == null ? null : controlDir.resolve(InJvmRunnerClient.SOCKET_NAME);
+        }
+
+        public int getUses() {
+            return uses;
+        }
+    }
+
+    private static class LanguagePool {
+        private final LanguageRuntime runtime;
+        private final String language;
+        private final int size;
+        private final BlockingQueue<PooledContainer> idle = new LinkedBlockingQueue<>();
+        private final AtomicInteger live = new AtomicInteger();
+
+        LanguagePool(LanguageRuntime runtime) {
+            this.runtime = runtime;
+            this.language = runtime.getName();
+            this.size = runtime.getPoolSize();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Result messages of jobs that already ran, keyed by job id, so a redelivered or
+ * resubmitted message gets its result again instead of another container run.
+ * Entries expire after the TTL and the oldest are dropped beyond
+ * {@code maxEntries}. With a file configured, entries are appended to it as
+ * they are stored and survive a restart; the file is compacted on startup
+ * and whenever it has grown to twice the live entries.
+ */
+@Component
+public class DedupeStore {
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final boolean enabled;
+    private final long ttlMs;
+    private final int maxEntries;
+    private final int maxResultBytes;
+    private final Path file;
+    // Insertion order is also expiry order.
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private BufferedWriter log;
+    private int logLines;
+
+    public DedupeStore(@Value("${worker.dedupe.enabled:true}") boolean enabled,
+            @Value("${worker.dedupe.ttl-seconds:86400}") long ttlSeconds,
+            @Value("${worker.dedupe.max-entries:10000}") int maxEntries,
+            @Value("${worker.dedupe.max-result-bytes:262144}") int maxResultBytes,
+            @Value("${worker.dedupe.file:}") String file) {
+        this.enabled = enabled;
+        this.ttlMs = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+        this.maxResultBytes = maxResultBytes;
+        this.file = enabled && !file.isBlank() ? Path.of(file) : null;
+        if (this.file != null) {
+            load();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the result stored for {@code key}, or null.
+     */
+    public synchronized String get(String key) {
+        if (!enabled || key == null) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.storedAt >= ttlMs) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.result;
+    }
+
+    public synchronized void put(String key, String result) {
+        if (!enabled || key == null || result == null || result.length() > maxResultBytes) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        // Re-insert so the entry moves to the end of the expiry order.
+        entries.remove(key);
+        entries.put(key, new Entry(result, now));
+        evict(now);
+        if (log != null) {
+            try {
+                log.write(line(key, entries.get(key)));
+                log.flush();
+                if (++logLines > 2 * Math.max(entries.size(), 1)) {
+                    compact();
+                }
+            } catch (IOException e) {
+                disablePersistence(e);
+            }
+        }
+    }
+
+    private void evict(long now) {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (eldest.hasNext()) {
+            Entry entry = eldest.next();
+            if (entries.size() > maxEntries || now - entry.storedAt >= ttlMs) {
+                eldest.remove();
+            } else {
+                break;
+            }
+        }
+    }
+
+    private synchronized void load() {
+        try {
+            if (Files.exists(file)) {
+                List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+                for (String line : lines) {
+                    String[] parts = line.split("\t");
+                    if (parts.length != 3) {
+                        continue;
+                    }
+                    try {
+                        String key = new String(DECODER.decode(parts[1]), StandardCharsets.UTF_8);
+                        String result = new String(DECODER.decode(parts[2]), StandardCharsets.UTF_8);
+                        entries.remove(key);
+                        entries.put(key, new Entry(result, Long.parseLong(parts[0])));
+                    } catch (IllegalArgumentException e) {
+                        // A line cut short by a crash; the rest of the file is still usable.
+                    }
+                }
+            } else if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            evict(System.currentTimeMillis());
+            compact();
+            System.out.println("Dedupe store loaded " + entries.size() + " entries from " + file);
+        } catch (IOException e) {
+            disablePersistence(e);
+        }
+    }
+
+    private void compact() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+        Path staging = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(staging, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                writer.write(line(entry.getKey(), entry.getValue()));
+            }
+        }
+        Files.move(staging, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logLines = entries.size();
+        log = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+
+    private void disablePersistence(IOException e) {
+        System.err.println("Dedupe store file " + file + " disabled: " + e.getMessage());
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException closeError) {
+                // Already failing; nothing more to do.
+            }
+            log = null;
+        }
+    }
+
+    private static String line(String key, Entry entry) {
+        return entry.storedAt + "\t" + ENCODER.encodeToString(key.getBytes(StandardCharsets.UTF_8)) + "\t"
+                + ENCODER.encodeToString(entry.result.getBytes(StandardCharsets.UTF_8)) + "\n";
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close dedupe store file: " + e.getMessage());
+            }
+            log = null;
+        }
+    }
+
+    private static class Entry {
+        private final String result;
+        private final long storedAt;
+
+        Entry(String result, long storedAt) {
+            this.result = result;
+            this.storedAt = storedAt;
+        }
+    }
+}
@@ -1,89 +1,547 @@
 package com.util;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.model.TestCase;
+import com.util.docker.ContainerResult;
+import com.util.docker.ContainerRuntime;
+import com.util.docker.ContainerSpec;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 @Service
 public class DockerRunner {
+    private static final long TIMEOUT_MS = 90_000;
+    // Re-resolve image ids now and then so a re-pulled runner image invalidates the compile cache.
+    private static final long IMAGE_ID_TTL_MS = 5 * 60 * 1000;
+
+    private final ContainerRuntime containerRuntime;
+    private final ContainerPool containerPool;
+    private final InJvmRunnerClient inJvmRunnerClient;
+    private final CompileCache compileCache;
+    private final LanguageRuntimes languageRuntimes;
+    private final MeterRegistry meterRegistry;
+    private final ContainerCgroups containerCgroups;
+    private final Map<String, CachedImageId> imageIds = new ConcurrentHashMap<>();
+    private final Set<String> runningContainers = ConcurrentHashMap.newKeySet();
+    private final long maxOutputBytes;
+    private final int headBytes;
+    private final int tailBytes;
+    private final int maxResultBytes;
+    private final int maxCases;
+    private final long defaultCaseTimeoutMs;
+    private final long maxCaseTimeoutMs;
+    private final int maxCaseOutputBytes;
+
+    public DockerRunner(ContainerRuntime containerRuntime, ContainerPool containerPool,
+            InJvmRunnerClient inJvmRunnerClient, CompileCache compileCache, LanguageRuntimes languageRuntimes,
+            MeterRegistry meterRegistry,
+            @Value("${worker.cgroup-dir:/sys/fs/cgroup}") String cgroupDir,
+            @Value("${worker.output.max-bytes:8388608}") long maxOutputBytes,
+            @Value("${worker.output.head-bytes:65536}") int headBytes,
+            @Value("${worker.output.tail-bytes:65536}") int tailBytes,
+            @Value("${worker.output.max-result-bytes:1048576}") int maxResultBytes,
+            @Value("${worker.batch.max-cases:100}") int maxCases,
+            @Value("${worker.batch.case-timeout-ms:2000}") long defaultCaseTimeoutMs,
+            @Value("${worker.batch.max-case-timeout-ms:10000}") long maxCaseTimeoutMs,
+            @Value("${worker.batch.max-case-output-bytes:65536}") int maxCaseOutputBytes) {
+        this.containerRuntime = containerRuntime;
+        this.containerPool = containerPool;
+        this.inJvmRunnerClient = inJvmRunnerClient;
+        this.compileCache = compileCache;
+        this.languageRuntimes = languageRuntimes;
+        this.meterRegistry = meterRegistry;
+        this.containerCgroups = new ContainerCgroups(Path.of(cgroupDir));
+        this.maxOutputBytes = maxOutputBytes;
+        this.headBytes = headBytes;
+        this.tailBytes = tailBytes;
+        this.maxResultBytes = maxResultBytes;
+        this.maxCases = maxCases;
+        this.defaultCaseTimeoutMs = defaultCaseTimeoutMs;
+        this.maxCaseTimeoutMs = maxCaseTimeoutMs;
+        this.maxCaseOutputBytes = maxCaseOutputBytes;
+    }
+
     public static class ExecutionResponse {
+        public enum Status {
+            COMPLETED, COMPILE_ERROR, TIMED_OUT
+        }
+
         private final String output;
+        private final String stderr;
+        private final String result;
+        private final boolean truncated;
+        private final Status status;
+        private final Integer exitCode;
+        private final ResourceUsage usage;
+        private final Long compileTimeMs;
+        private final Long runTimeMs;
         private final long executionTimeMs;
+        private final List<CaseResult> cases;
 
         public ExecutionResponse(String output, long executionTimeMs) {
+            this(output, null, false, Status.COMPLETED, null, executionTimeMs);
+        }
+
+        public ExecutionResponse(String output, String result, boolean truncated, Status status,
+                ResourceUsage usage, long executionTimeMs) {
+            this(output, result, truncated, status, usage, executionTimeMs, null);
+        }
+
+        public ExecutionResponse(String output, String result, boolean truncated, Status status,
+                ResourceUsage usage, long executionTimeMs, List<CaseResult> cases) {
+            this(output, "", result, truncated, status, null, usage, null, null, executionTimeMs, cases);
+        }
+
+        public ExecutionResponse(String output, String stderr, String result, boolean truncated, Status status,
+                Integer exitCode, ResourceUsage usage, Long compileTimeMs, Long runTimeMs, long executionTimeMs,
+                List<CaseResult> cases) {
             this.output = output;
+            this.stderr = stderr;
+            this.result = result;
+            this.truncated = truncated;
+            this.status = status;
+            this.exitCode = exitCode;
+            this.usage = usage;
+            this.compileTimeMs = compileTimeMs;
+            this.runTimeMs = runTimeMs;
             this.executionTimeMs = executionTimeMs;
+            this.cases = cases;
         }
 
+        /**
+         * What the program wrote to stdout.
+         */
         public String getOutput() {
             return output;
         }
 
+        public String getStderr() {
+            return stderr;
+        }
+
+        /**
+         * Exit code of the compile command if it failed, otherwise of the
+         * program; null if unknown, e.g. after a timeout.
+         */
+        public Integer getExitCode() {
+            return exitCode;
+        }
+
+        /**
+         * The signal that ended the process, going by the shell's 128 + n
+         * exit codes, or null.
+         */
+        public Integer getSignal() {
+            return exitCode != null && exitCode > 128 && exitCode < 160 ? exitCode - 128 : null;
+        }
+
+        /**
+         * Time spent compiling inside the sandbox, or null if nothing was
+         * compiled (an interpreted language or a compile cache hit).
+         */
+        public Long getCompileTimeMs() {
+            return compileTimeMs;
+        }
+
+        /**
+         * Time the program itself ran, or null if it never started or the
+         * sandbox could not measure it.
+         */
+        public Long getRunTimeMs() {
+            return runTimeMs;
+        }
+
+        /**
+         * The payload of the RESULT: line if it was picked out while the
+         * output streamed in, otherwise null.
+         */
+        public String getResult() {
+            return result;
+        }
+
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * CPU and memory used by the run, or null if the sandbox could not
+         * report them.
+         */
+        public ResourceUsage getUsage() {
+            return usage;
+        }
+
         public long getExecutionTimeMs() {
             return executionTimeMs;
         }
+
+        /**
+         * Per-case results of a batch run, or null for a single run. Empty
+         * if the submission did not compile.
+         */
+        public List<CaseResult> getCases() {
+            return cases;
+        }
+
+        ExecutionResponse withCases(List<CaseResult> cases) {
+            return new ExecutionResponse(output, stderr, result, truncated, status, exitCode, usage, compileTimeMs,
+                    runTimeMs, executionTimeMs, cases);
+        }
     }
 
     public ExecutionResponse runContainer(String language, String localFilePath) throws Exception {
-        Path filePath = Path.of(localFilePath);
-        Path parentDir = filePath.getParent();
+        return run(language, Path.of(localFilePath), null, null);
+    }
 
-        String image;
-        String command;
+    /**
+     * Runs a multi-file submission unpacked into {@code bundleDir}. The entry
+     * point is whatever the language's bundle run command expects, e.g. the
+     * main class for Java or the script to start, relative to the bundle
+     * root, for Python; without one, the language's default is used.
+     */
+    public ExecutionResponse runBundle(String language, Path bundleDir, String entryPoint) throws Exception {
+        return run(language, bundleDir, defaultEntryPoint(languageRuntimes.get(language), entryPoint), null);
+    }
 
-        if (language.equalsIgnoreCase("java")) {
-            image = "tkoppine/java-runner";
-            command = "javac /app/" + filePath.getFileName() + " && java -cp /app " +
-                    filePath.getFileName().toString().replace(".java", "");
-        } else if (language.equalsIgnoreCase("python")) {
-            image = "tkoppine/python-runner";
-            command = "python /app/" + filePath.getFileName();
-        } else {
-            throw new IllegalArgumentException("Unsupported language: " + language);
+    /**
+     * Compiles the submission (a file, or an unpacked bundle directory) once
+     * and runs it against every test case in the same sandbox, each with its
+     * input on stdin and its own time limit.
+     */
+    public ExecutionResponse runTestCases(String language, Path source, String entryPoint, List<TestCase> cases,
+            long caseTimeoutMs) throws Exception {
+        if (cases.isEmpty() || cases.size() > maxCases) {
+            throw new IllegalArgumentException("A batch needs between 1 and " + maxCases + " test cases");
         }
+        long timeoutMs = caseTimeoutMs > 0 ? Math.min(caseTimeoutMs, maxCaseTimeoutMs) : defaultCaseTimeoutMs;
+        String bundleEntryPoint = Files.isDirectory(source)
+                ? defaultEntryPoint(languageRuntimes.get(language), entryPoint)
+                : null;
+        return run(language, source, bundleEntryPoint, new TestCaseBatch(cases, timeoutMs, maxCaseOutputBytes));
+    }
 
-        ProcessBuilder pb = new ProcessBuilder(
-                "docker", "run", "--rm",
-                "-v", parentDir.toAbsolutePath() + ":/app",
-                image,
-                "sh", "-c", command);
+    private static String defaultEntryPoint(LanguageRuntime runtime, String entryPoint) {
+        if (entryPoint == null || entryPoint.isBlank()) {
+            return runtime.getDefaultEntryPoint();
+        }
+        return entryPoint;
+    }
+
+    private ExecutionResponse run(String language, Path source, String entryPoint, TestCaseBatch batch)
+            throws Exception {
+        boolean bundle = entryPoint != null;
+        String fileName = source.getFileName().toString();
+        LanguageRuntime runtime = languageRuntimes.get(language);
+        String image = runtime.getImage();
+        // Bundle entry points end up in a shell command, so only plain names get through.
+        if (bundle && !runtime.isValidEntryPoint(entryPoint)) {
+            throw new IllegalArgumentException("Invalid entry point: " + entryPoint);
+        }
+
+        ContainerPool.PooledContainer container = containerPool.borrow(runtime.getName());
+        if (container != null && container.getRunnerSocket() != null) {
+            if (batch == null) {
+                return runInJvm(container, source, bundle ? entryPoint : fileName);
+            }
+            // The in-JVM runner cannot stop a single case at its time limit; run the batch in its own container.
+            containerPool.release(container, true);
+            container = null;
+        }
+
+        Path workspace = container != null ? container.getWorkDir() : bundle ? source : source.getParent();
+        boolean reusable = false;
+        try {
+            if (container != null) {
+                copyInto(source, workspace);
+            }
+            if (batch != null) {
+                batch.writeInputs(workspace);
+            }
 
-        pb.redirectErrorStream(true);
+            // Bundles skip the compile cache; its key covers a single source file.
+            String compileCacheKey = runtime.getCompileOutputs() != null && !bundle
+                    ? compileCacheKey(image, source)
+                    : null;
+            boolean compiled = compileCacheKey != null && compileCache.restore(compileCacheKey, workspace);
 
-        Long startTime = System.currentTimeMillis();
-        Process process = pb.start();
+            String run = bundle ? runtime.runBundleCommand(entryPoint) : runtime.runCommand(fileName);
+            String compile = bundle ? runtime.compileBundleCommand() : runtime.compileCommand(fileName);
+            String body = batch != null ? batch.script(run) : run;
+            long timeoutMs = batch != null ? batch.timeoutMs(TIMEOUT_MS) : TIMEOUT_MS;
 
-        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            String containerName = container != null ? container.getId()
+                    : "worker-run-" + UUID.randomUUID().toString().substring(0, 8);
+            OutputCapture stdout = newCapture(containerName);
+            OutputCapture stderr = stdout.sibling();
 
-        StringBuilder output = new StringBuilder();
-        Thread readerThread = new Thread(() -> {
+            long startTime = System.currentTimeMillis();
+            String containerId = container != null ? container.getId() : startCold(containerName, runtime, workspace);
+            ContainerResult result = null;
+            boolean compileFailed = false;
+            String startSnapshot = containerCgroups.snapshot(containerId);
+            String compiledSnapshot = null;
+            String endSnapshot = null;
+            runningContainers.add(containerId);
             try {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
+                if (compile != null && !compiled) {
+                    result = containerRuntime.exec(containerId, List.of("sh", "-c", compile), stdout, stderr,
+                            timeoutMs);
+                    compileFailed = !result.isTimedOut() && result.getExitCode() != 0;
+                    if (!result.isTimedOut() && !stdout.isLimitExceeded()) {
+                        compiledSnapshot = containerCgroups.snapshot(containerId);
+                        if (compileCacheKey != null && !compileFailed) {
+                            // Stored before the submission runs, so nothing it writes to /app ends up in the cache.
+                            compileCache.store(compileCacheKey, workspace, runtime.getCompileOutputs());
+                        }
+                    }
+                }
+                if (result == null || (!result.isTimedOut() && !compileFailed && !stdout.isLimitExceeded())) {
+                    long remainingMs = Math.max(1, timeoutMs - (System.currentTimeMillis() - startTime));
+                    result = containerRuntime.exec(containerId, List.of("sh", "-c", body), stdout, stderr,
+                            remainingMs);
+                    if (!result.isTimedOut() && !stdout.isLimitExceeded()) {
+                        endSnapshot = containerCgroups.snapshot(containerId);
+                    }
+                }
+            } finally {
+                runningContainers.remove(containerId);
+                if (container == null) {
+                    removeQuietly(containerId);
                 }
-            } catch (java.io.IOException | RuntimeException e) {
-                System.err.println("Error reading process output: " + e.getMessage());
+            }
+            long durationMs = System.currentTimeMillis() - startTime;
+            ResourceUsage usage = ResourceUsage.between(startSnapshot,
+                    compileFailed ? compiledSnapshot : endSnapshot);
+            ResourceUsage compileUsage = ResourceUsage.between(startSnapshot, compiledSnapshot);
+            Long compileTimeMs = compileUsage != null ? compileUsage.getWallTimeMs() : null;
+            Long runTimeMs = usage != null && !compileFailed
+                    ? usage.getWallTimeMs() - (compileTimeMs != null ? compileTimeMs : 0)
+                    : null;
+
+            reusable = !result.isTimedOut() && !stdout.isLimitExceeded();
+            ExecutionResponse response = toResponse(runtime.getName(), container != null ? "warm" : "cold",
+                    result.isTimedOut(), compileFailed, stdout, stderr, result.getExitCode(), usage, compileTimeMs,
+                    runTimeMs, durationMs);
+            if (batch != null) {
+                return response.withCases(compileFailed ? List.of() : batch.readResults(workspace));
+            }
+            return response;
+        } finally {
+            if (container != null) {
+                containerPool.release(container, reusable);
+            }
+        }
+    }
+
+    // A one-off container that idles until the compile and run execs are done, then is removed.
+    private String startCold(String name, LanguageRuntime runtime, Path workspace) throws IOException {
+        ContainerSpec spec = new ContainerSpec(name, runtime.getImage(), List.of("sleep", "infinity"))
+                .bind(workspace.toAbsolutePath().toString(), "/app");
+        runtime.getResourceProfile().apply(spec);
+        String containerId = containerRuntime.create(spec);
+        try {
+            containerRuntime.start(containerId);
+        } catch (IOException e) {
+            removeQuietly(containerId);
+            throw e;
+        }
+        return containerId;
+    }
+
+    private void removeQuietly(String containerId) {
+        try {
+            containerRuntime.remove(containerId);
+        } catch (IOException e) {
+            System.err.println("Failed to remove container " + containerId + ": " + e.getMessage());
+        }
+    }
+
+    private String compileCacheKey(String image, Path sourceFile) throws IOException {
+        if (!compileCache.isEnabled()) {
+            return null;
+        }
+        String imageId = imageId(image);
+        if (imageId == null) {
+            return null;
+        }
+        return compileCache.key(sourceFile.getFileName().toString(), Files.readAllBytes(sourceFile), imageId);
+    }
+
+    private String imageId(String image) {
+        CachedImageId cached = imageIds.get(image);
+        if (cached != null && System.currentTimeMillis() - cached.resolvedAt < IMAGE_ID_TTL_MS) {
+            return cached.id;
+        }
+        try {
+            String id = containerRuntime.imageId(image);
+            imageIds.put(image, new CachedImageId(id, System.currentTimeMillis()));
+            return id;
+        } catch (IOException e) {
+            System.err.println("Failed to resolve image id of " + image + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private ExecutionResponse runInJvm(ContainerPool.PooledContainer container, Path source, String mainFile)
+            throws Exception {
+        boolean reusable = false;
+        try {
+            copyInto(source, container.getWorkDir());
+
+            OutputCapture stdout = newCapture(container.getId());
+            OutputCapture stderr = stdout.sibling();
+
+            long startTime = System.currentTimeMillis();
+            InJvmRunnerClient.RunResult result;
+            runningContainers.add(container.getId());
+            try {
+                result = inJvmRunnerClient.run(container.getRunnerSocket(), mainFile, stdout, stderr, TIMEOUT_MS);
+            } catch (IOException e) {
+                if (!stdout.isLimitExceeded()) {
+                    throw e;
+                }
+                // The runner was killed for printing too much; report what was captured.
+                return toResponse(container.getLanguage(), "in_jvm", false, false, stdout, stderr, null, null, null,
+                        null, System.currentTimeMillis() - startTime);
+            } finally {
+                runningContainers.remove(container.getId());
+            }
+            long durationMs = System.currentTimeMillis() - startTime;
+            reusable = !result.isTimedOut() && result.isClean() && !stdout.isLimitExceeded();
+            return toResponse(container.getLanguage(), "in_jvm", result.isTimedOut(), result.isCompileError(), stdout,
+                    stderr, result.getExitCode(), result.getUsage(), result.getCompileMs(),
+                    result.isCompileError() ? null : result.getRunMs(), durationMs);
+        } finally {
+            containerPool.release(container, reusable);
+        }
+    }
+
+    /**
+     * Id of the image the language's submissions run in, or null if it
+     * cannot be resolved right now.
+     */
+    public String runnerImageId(String language) {
+        return imageId(languageRuntimes.get(language).getImage());
+    }
+
+    /**
+     * Force-removes every container that is running a submission right now;
+     * their runs end with an error or a killed result. Returns how many were
+     * removed.
+     */
+    public int removeRunningContainers() {
+        int removed = 0;
+        for (String containerId : List.copyOf(runningContainers)) {
+            try {
+                containerRuntime.remove(containerId);
+                removed++;
+            } catch (IOException e) {
+                System.err.println("Failed to remove container " + containerId + ": " + e.getMessage());
+            }
+        }
+        return removed;
+    }
+
+    // Copies a submission file, or a whole unpacked bundle, into a pooled container's workspace.
+    private static void copyInto(Path source, Path workspace) throws IOException {
+        if (!Files.isDirectory(source)) {
+            Files.copy(source, workspace.resolve(source.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(source)) {
+            for (Path path : (Iterable<Path>) walk::iterator) {
+                Path target = workspace.resolve(source.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.copy(path, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+
+    private OutputCapture newCapture(String containerId) {
+        return new OutputCapture(maxOutputBytes, headBytes, tailBytes, maxResultBytes, () -> {
+            System.err.println("Output limit of " + maxOutputBytes + " bytes exceeded, stopping " + containerId);
+            try {
+                containerRuntime.kill(containerId);
+            } catch (IOException e) {
+                System.err.println("Failed to stop container " + containerId + ": " + e.getMessage());
             }
         });
-        readerThread.start();
-        boolean finished = process.waitFor(90, TimeUnit.SECONDS);
+    }
 
-        Long endTime = System.currentTimeMillis();
+    private ExecutionResponse toResponse(String language, String mode, boolean timedOut, boolean compileError,
+            OutputCapture stdout, OutputCapture stderr, Integer exitCode, ResourceUsage usage, Long compileTimeMs,
+            Long runTimeMs, long durationMs) {
+        Timer.builder("worker.container.run")
+                .description("Time spent in the container runtime per job, including container start or exec setup")
+                .tags("language", language.toLowerCase(), "mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(durationMs, TimeUnit.MILLISECONDS);
+        if (usage != null) {
+            Timer.builder("worker.container.overhead")
+                    .description("Container runtime time not spent running the submission")
+                    .tags("language", language.toLowerCase(), "mode", mode)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(Math.max(0, durationMs - usage.getWallTimeMs()), TimeUnit.MILLISECONDS);
+        }
+
+        recordPhase(language, mode, "compile", compileTimeMs);
+        recordPhase(language, mode, "run", runTimeMs);
 
-        Long durationMs = endTime - startTime;
+        if (timedOut) {
+            return new ExecutionResponse("Time limit exceeded", "", null, false, ExecutionResponse.Status.TIMED_OUT,
+                    null, null, compileTimeMs, null, durationMs, null);
+        }
+        // Prefer the time measured inside the sandbox; it excludes container start and exec setup.
+        long executionTimeMs = usage != null ? usage.getWallTimeMs() : durationMs;
+        return new ExecutionResponse(stdout.getOutput(), stderr.getOutput(), stdout.getResult(),
+                stdout.isTruncated() || stderr.isTruncated() || stdout.isLimitExceeded(),
+                compileError ? ExecutionResponse.Status.COMPILE_ERROR : ExecutionResponse.Status.COMPLETED,
+                exitCode, usage, compileTimeMs, runTimeMs, executionTimeMs, null);
+    }
 
-        if (!finished) {
-            process.destroyForcibly();
-            process.waitFor(15, TimeUnit.SECONDS);
-            return new ExecutionResponse("Time limit exceeded", durationMs);
+    private void recordPhase(String language, String mode, String phase, Long timeMs) {
+        if (timeMs == null) {
+            return;
         }
+        Timer.builder("worker.container.phase")
+                .description("Compile and run time measured inside the sandbox")
+                .tags("language", language.toLowerCase(), "mode", mode, "phase", phase)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(timeMs, TimeUnit.MILLISECONDS);
+    }
 
-        readerThread.join();
+    private static class CachedImageId {
+        private final String id;
+        private final long resolvedAt;
 
-        return new ExecutionResponse(output.toString(), durationMs);
+        CachedImageId(String id, long resolvedAt) {
+            this.id = id;
+            this.resolvedAt = resolvedAt;
+        }
     }
 }
@@ -0,0 +1,97 @@
+package com.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * CPU and memory pressure of the whole host, read from {@code /proc}. CPU use
+ * is measured between consecutive calls to {@link #cpuBusy()}, so the first
+ * call has nothing to compare against.
+ */
+public class HostLoad {
+    private final Path procDir;
+
+    // Guarded by this.
+    private long lastTotal = -1;
+    private long lastIdle;
+
+    public HostLoad(Path procDir) {
+        this.procDir = procDir;
+    }
+
+    /**
+     * Fraction of CPU time spent busy since the previous call, or -1 if
+     * unknown.
+     */
+    public synchronized double cpuBusy() {
+        long[] times;
+        try {
+            times = readCpuTimes();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to read host CPU usage: " + e.getMessage());
+            return -1;
+        }
+        long total = 0;
+        for (long time : times) {
+            total += time;
+        }
+        // idle + iowait
+        long idle = times[3] + (times.length > 4 ? times[4] : 0);
+
+        long totalDelta = total - lastTotal;
+        long idleDelta = idle - lastIdle;
+        boolean first = lastTotal < 0;
+        lastTotal = total;
+        lastIdle = idle;
+        if (first || totalDelta <= 0) {
+            return -1;
+        }
+        return (double) (totalDelta - idleDelta) / totalDelta;
+    }
+
+    /**
+     * MemAvailable as a fraction of MemTotal, or -1 if unknown.
+     */
+    public double memoryAvailable() {
+        try {
+            long total = -1;
+            long available = -1;
+            for (String line : Files.readAllLines(procDir.resolve("meminfo"))) {
+                if (line.startsWith("MemTotal:")) {
+                    total = kilobytes(line);
+                } else if (line.startsWith("MemAvailable:")) {
+                    available = kilobytes(line);
+                }
+            }
+            if (total <= 0 || available < 0) {
+                return -1;
+            }
+            return (double) available / total;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to read host memory usage: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private long[] readCpuTimes() throws IOException {
+        List<String> lines = Files.readAllLines(procDir.resolve("stat"));
+        for (String line : lines) {
+            if (line.startsWith("cpu ")) {
+                String[] parts = line.trim().split("\\s+");
+                // user nice system idle iowait irq softirq steal; guest time is already in user.
+                long[] times = new long[Math.min(parts.length - 1, 8)];
+                for (int i = 0; i < times.length; i++) {
+                    times[i] = Long.parseLong(parts[i + 1]);
+                }
+                return times;
+            }
+        }
+        throw new IOException("No cpu line in " + procDir.resolve("stat"));
+    }
+
+    private static long kilobytes(String line) {
+        return Long.parseLong(line.substring(line.indexOf(':') + 1).trim().split("\\s+")[0]);
+    }
+}
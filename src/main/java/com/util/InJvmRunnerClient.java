@@ -0,0 +1,181 @@
+package com.util;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.util.docker.OutputSink;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Client for the long-lived InJvmRunner inside warm java-runner containers
+ * (see docker/java/InJvmRunner.java). The runner compiles and runs a
+ * submission in its own JVM, so a job costs neither a javac nor a java
+ * process start.
+ */
+@Component
+public class InJvmRunnerClient {
+    public static final String SOCKET_NAME = "runner.sock";
+
+    private static final int STDERR = 2;
+    private static final int STATUS = 3;
+
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService timeouts;
+
+    public InJvmRunnerClient(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.timeouts = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "in-jvm-runner-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public RunResult run(Path socket, String mainFile, OutputSink stdout, OutputSink stderr, long timeoutMs)
+            throws IOException {
+        AtomicBoolean timedOut = new AtomicBoolean();
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            ScheduledFuture<?> deadline = timeouts.schedule(() -> {
+                timedOut.set(true);
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    System.err.println("Failed to close runner connection: " + e.getMessage());
+                }
+            }, timeoutMs, TimeUnit.MILLISECONDS);
+
+            try {
+                OutputStream out = Channels.newOutputStream(channel);
+                out.write(("RUN " + mainFile + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                return readFrames(new DataInputStream(Channels.newInputStream(channel)), stdout, stderr);
+            } catch (AsynchronousCloseException e) {
+                if (timedOut.get()) {
+                    return RunResult.timedOut();
+                }
+                throw e;
+            } finally {
+                deadline.cancel(false);
+            }
+        }
+    }
+
+    private RunResult readFrames(DataInputStream in, OutputSink stdout, OutputSink stderr) throws IOException {
+        byte[] header = new byte[8];
+        byte[] buffer = new byte[8192];
+        while (true) {
+            try {
+                in.readFully(header);
+            } catch (EOFException e) {
+                throw new IOException("In-JVM runner closed the connection without a status");
+            }
+            int type = header[0];
+            int length = ((header[4] & 0xff) << 24) | ((header[5] & 0xff) << 16)
+                    | ((header[6] & 0xff) << 8) | (header[7] & 0xff);
+
+            if (type == STATUS) {
+                byte[] status = new byte[length];
+                in.readFully(status);
+                JsonNode json = objectMapper.readTree(status);
+                long compileMs = json.path("compileMs").asLong();
+                long runMs = json.path("runMs").asLong();
+                ResourceUsage usage = new ResourceUsage(compileMs + runMs, json.path("cpuUserMs").asLong(-1),
+                        json.path("cpuSystemMs").asLong(-1), json.path("peakMemoryBytes").asLong(-1));
+                return new RunResult(json.path("exitCode").asInt(-1), compileMs, runMs,
+                        json.path("clean").asBoolean(true), false, !json.path("compiled").asBoolean(true), usage);
+            }
+
+            OutputSink sink = type == STDERR ? stderr : stdout;
+            int remaining = length;
+            while (remaining > 0) {
+                int n = in.read(buffer, 0, Math.min(buffer.length, remaining));
+                if (n == -1) {
+                    throw new EOFException("Truncated frame from in-JVM runner");
+                }
+                sink.write(buffer, 0, n);
+                remaining -= n;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timeouts.shutdownNow();
+    }
+
+    public static class RunResult {
+        private final int exitCode;
+        private final long compileMs;
+        private final long runMs;
+        private final boolean clean;
+        private final boolean timedOut;
+        private final boolean compileError;
+        private final ResourceUsage usage;
+
+        public RunResult(int exitCode, long compileMs, long runMs, boolean clean, boolean timedOut,
+                boolean compileError, ResourceUsage usage) {
+            this.exitCode = exitCode;
+            this.compileMs = compileMs;
+            this.runMs = runMs;
+            this.clean = clean;
+            this.timedOut = timedOut;
+            this.compileError = compileError;
+            this.usage = usage;
+        }
+
+        static RunResult timedOut() {
+            return new RunResult(-1, 0, 0, false, true, false, null);
+        }
+
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        public long getCompileMs() {
+            return compileMs;
+        }
+
+        public long getRunMs() {
+            return runMs;
+        }
+
+        /**
+         * False when the submission left threads running in the runner JVM.
+         */
+        public boolean isClean() {
+            return clean;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        public boolean isCompileError() {
+            return compileError;
+        }
+
+        public ResourceUsage getUsage() {
+            return usage;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.util;
+
+import java.io.IOException;
+
+/**
+ * A submission bundle that cannot be unpacked: an unknown format, an unsafe
+ * entry, or more files or bytes than the worker accepts.
+ */
+public class InvalidBundleException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public InvalidBundleException(String message) {
+        super(message);
+    }
+}
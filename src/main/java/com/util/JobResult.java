@@ -0,0 +1,179 @@
+package com.util;
+
+import java.util.List;
+
+/**
+ * What the worker reports for one job. {@link JobResultWriter} turns it into
+ * the result message; {@code result} is the program's {@code RESULT:}
+ * payload and is embedded in the message as JSON, so it must already have
+ * been checked with {@link JobResultWriter#isJson(String)}.
+ */
+public class JobResult {
+    public enum Status {
+        SUCCESS, RUNTIME_ERROR, COMPILE_ERROR, TIMEOUT, INVALID_MESSAGE, INVALID_BUNDLE, ERROR;
+
+        /**
+         * Lower-case name, as in result messages and metric tags.
+         */
+        public String getName() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final String jobId;
+    private final Status status;
+    private String message;
+    private Long executionTimeMs;
+    private Long compileTimeMs;
+    private Long runTimeMs;
+    private Integer exitCode;
+    private Integer signal;
+    private boolean outputTruncated;
+    private ResourceUsage usage;
+    private List<CaseResult> cases;
+    private String result;
+    private String stdout;
+    private String stderr;
+
+    public JobResult(String jobId, Status status) {
+        this.jobId = jobId;
+        this.status = status;
+    }
+
+    /**
+     * A job that failed before or instead of producing any output.
+     */
+    public static JobResult error(String jobId, Status status, String message) {
+        JobResult result = new JobResult(jobId, status);
+        result.setMessage(message);
+        return result;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    /**
+     * Null if the job never ran.
+     */
+    public Long getExecutionTimeMs() {
+        return executionTimeMs;
+    }
+
+    public void setExecutionTimeMs(Long executionTimeMs) {
+        this.executionTimeMs = executionTimeMs;
+    }
+
+    public Long getCompileTimeMs() {
+        return compileTimeMs;
+    }
+
+    public void setCompileTimeMs(Long compileTimeMs) {
+        this.compileTimeMs = compileTimeMs;
+    }
+
+    public Long getRunTimeMs() {
+        return runTimeMs;
+    }
+
+    public void setRunTimeMs(Long runTimeMs) {
+        this.runTimeMs = runTimeMs;
+    }
+
+    public Integer getExitCode() {
+        return exitCode;
+    }
+
+    public void setExitCode(Integer exitCode) {
+        this.exitCode = exitCode;
+    }
+
+    public Integer getSignal() {
+        return signal;
+    }
+
+    public void setSignal(Integer signal) {
+        this.signal = signal;
+    }
+
+    public boolean isOutputTruncated() {
+        return outputTruncated;
+    }
+
+    public void setOutputTruncated(boolean outputTruncated) {
+        this.outputTruncated = outputTruncated;
+    }
+
+    public ResourceUsage getUsage() {
+        return usage;
+    }
+
+    public void setUsage(ResourceUsage usage) {
+        this.usage = usage;
+    }
+
+    public List<CaseResult> getCases() {
+        return cases;
+    }
+
+    public void setCases(List<CaseResult> cases) {
+        this.cases = cases;
+    }
+
+    /**
+     * Overall verdict of a test case run: ACCEPTED if every case was,
+     * otherwise the verdict of the first case that was not. Null without
+     * cases.
+     */
+    public CaseResult.Verdict getVerdict() {
+        if (cases == null) {
+            return null;
+        }
+        for (CaseResult c : cases) {
+            if (c.getVerdict() != CaseResult.Verdict.ACCEPTED) {
+                return c.getVerdict();
+            }
+        }
+        return CaseResult.Verdict.ACCEPTED;
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    public void setResult(String result) {
+        this.result = result;
+    }
+
+    /**
+     * The captured stdout (head and tail), kept for jobs that did not
+     * succeed; likewise {@link #getStderr()}.
+     */
+    public String getStdout() {
+        return stdout;
+    }
+
+    public void setStdout(String stdout) {
+        this.stdout = stdout;
+    }
+
+    public String getStderr() {
+        return stderr;
+    }
+
+    public void setStderr(String stderr) {
+        this.stderr = stderr;
+    }
+}
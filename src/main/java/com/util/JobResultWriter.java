@@ -0,0 +1,171 @@
+package com.util;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Writes result messages with Jackson's streaming generator, in one pass and
+ * without an intermediate object tree:
+ *
+ * <pre>
+ * {"jobId":"...","result":{"jobId":"...","status":"success",...,"result":&lt;RESULT: payload&gt;}}
+ * </pre>
+ *
+ * The program's payload is embedded as JSON rather than as a string, so
+ * consumers parse the message once. A result stored in S3 is announced with
+ * the same header fields, an {@code offloaded} pointer in place of the cases,
+ * payload, stdout and stderr, and its message cut short.
+ */
+public final class JobResultWriter {
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final int INITIAL_BUFFER = 1024;
+    // Bigger buffers are dropped after use instead of staying with the thread.
+    private static final int MAX_REUSED_BUFFER = 64 * 1024;
+    private static final int MAX_POINTER_MESSAGE = 1024;
+    // Each job thread writes one result at a time, so it can keep its buffer.
+    private static final ThreadLocal<StringWriter> BUFFERS = ThreadLocal
+            .withInitial(() -> new StringWriter(INITIAL_BUFFER));
+
+    private JobResultWriter() {
+    }
+
+    /**
+     * Whether {@code text} is exactly one JSON value.
+     */
+    public static boolean isJson(String text) {
+        try (JsonParser parser = JSON.createParser(text)) {
+            if (parser.nextToken() == null) {
+                return false;
+            }
+            parser.skipChildren();
+            return parser.nextToken() == null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static String write(JobResult result) {
+        return write(result, null);
+    }
+
+    /**
+     * The message that points at {@code result} stored at {@code location}.
+     */
+    public static String writeOffloaded(JobResult result, ResultOffloader.Location location) {
+        return write(result, location);
+    }
+
+    private static String write(JobResult result, ResultOffloader.Location location) {
+        StringWriter buffer = BUFFERS.get();
+        buffer.getBuffer().setLength(0);
+        try (JsonGenerator json = JSON.createGenerator(buffer)) {
+            json.writeStartObject();
+            json.writeStringField("jobId", result.getJobId());
+            json.writeFieldName("result");
+            writeResult(json, result, location);
+            json.writeEndObject();
+        } catch (IOException e) {
+            // Only the writer could fail, and a StringWriter doesn't.
+            throw new UncheckedIOException(e);
+        }
+        String message = buffer.toString();
+        if (buffer.getBuffer().capacity() > MAX_REUSED_BUFFER) {
+            BUFFERS.remove();
+        }
+        return message;
+    }
+
+    private static void writeResult(JsonGenerator json, JobResult result, ResultOffloader.Location location)
+            throws IOException {
+        json.writeStartObject();
+        json.writeStringField("jobId", result.getJobId());
+        json.writeStringField("status", result.getStatus().getName());
+        if (result.getExecutionTimeMs() != null) {
+            json.writeNumberField("executionTimeMs", result.getExecutionTimeMs());
+            json.writeBooleanField("outputTruncated", result.isOutputTruncated());
+        }
+        if (result.getCompileTimeMs() != null) {
+            json.writeNumberField("compileTimeMs", result.getCompileTimeMs());
+        }
+        if (result.getRunTimeMs() != null) {
+            json.writeNumberField("runTimeMs", result.getRunTimeMs());
+        }
+        if (result.getExitCode() != null) {
+            json.writeNumberField("exitCode", result.getExitCode());
+        }
+        if (result.getSignal() != null) {
+            json.writeNumberField("signal", result.getSignal());
+        }
+        ResourceUsage usage = result.getUsage();
+        if (usage != null) {
+            json.writeNumberField("cpuUserMs", usage.getCpuUserMs());
+            json.writeNumberField("cpuSystemMs", usage.getCpuSystemMs());
+            json.writeNumberField("peakMemoryBytes", usage.getPeakMemoryBytes());
+        }
+        if (result.getCases() != null) {
+            json.writeStringField("verdict", result.getVerdict().name());
+            if (location == null) {
+                writeCases(json, result.getCases());
+            }
+            json.writeNumberField("accepted", countAccepted(result.getCases()));
+            json.writeNumberField("total", result.getCases().size());
+        }
+        String message = result.getMessage();
+        if (message != null) {
+            if (location != null && message.length() > MAX_POINTER_MESSAGE) {
+                message = message.substring(0, MAX_POINTER_MESSAGE) + "...";
+            }
+            json.writeStringField("message", message);
+        }
+        if (location != null) {
+            json.writeObjectFieldStart("offloaded");
+            json.writeStringField("bucket", location.getBucket());
+            json.writeStringField("key", location.getKey());
+            json.writeStringField("encoding", "gzip");
+            json.writeNumberField("bytes", location.getBytes());
+            json.writeNumberField("compressedBytes", location.getCompressedBytes());
+            json.writeEndObject();
+        } else if (result.getResult() != null) {
+            json.writeFieldName("result");
+            json.writeRawValue(result.getResult());
+        }
+        if (location == null && result.getStdout() != null) {
+            json.writeStringField("stdout", result.getStdout());
+        }
+        if (location == null && result.getStderr() != null) {
+            json.writeStringField("stderr", result.getStderr());
+        }
+        json.writeEndObject();
+    }
+
+    private static void writeCases(JsonGenerator json, List<CaseResult> cases) throws IOException {
+        json.writeArrayFieldStart("cases");
+        for (CaseResult c : cases) {
+            json.writeStartObject();
+            json.writeStringField("name", c.getName());
+            json.writeStringField("verdict", c.getVerdict().name());
+            json.writeNumberField("exitCode", c.getExitCode());
+            json.writeNumberField("timeMs", c.getTimeMs());
+            json.writeStringField("output", c.getOutput());
+            json.writeStringField("stderr", c.getStderr());
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+    }
+
+    private static int countAccepted(List<CaseResult> cases) {
+        int accepted = 0;
+        for (CaseResult c : cases) {
+            if (c.getVerdict() == CaseResult.Verdict.ACCEPTED) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+}
@@ -0,0 +1,136 @@
+package com.util;
+
+/**
+ * Settings of one {@code worker.languages.<name>} entry. Commands may use
+ * {@code {file}} (the submitted file name), {@code {name}} (the file name
+ * without its extension) and {@code {entry}} (a bundle's entry point).
+ */
+public class LanguageProperties {
+    private String image;
+    private String compile;
+    private String compileBundle;
+    private String run;
+    private String runBundle;
+    private String defaultEntryPoint = "main";
+    // Path segments of letters, digits, '_', '-' and '.', never "..".
+    private String entryPointPattern = "([A-Za-z0-9_-]+[./])*[A-Za-z0-9_-]+";
+    private String compileOutputs;
+    private double cpus = 1.0;
+    private long memoryMb = 256;
+    private long pids = 64;
+    private boolean networkDisabled = true;
+    private int poolSize;
+    private String mode = "exec";
+
+    public String getImage() {
+        return image;
+    }
+
+    public void setImage(String image) {
+        this.image = image;
+    }
+
+    public String getCompile() {
+        return compile;
+    }
+
+    public void setCompile(String compile) {
+        this.compile = compile;
+    }
+
+    public String getCompileBundle() {
+        return compileBundle;
+    }
+
+    public void setCompileBundle(String compileBundle) {
+        this.compileBundle = compileBundle;
+    }
+
+    public String getRun() {
+        return run;
+    }
+
+    public void setRun(String run) {
+        this.run = run;
+    }
+
+    public String getRunBundle() {
+        return runBundle;
+    }
+
+    public void setRunBundle(String runBundle) {
+        this.runBundle = runBundle;
+    }
+
+    public String getDefaultEntryPoint() {
+        return defaultEntryPoint;
+    }
+
+    public void setDefaultEntryPoint(String defaultEntryPoint) {
+        this.defaultEntryPoint = defaultEntryPoint;
+    }
+
+    public String getEntryPointPattern() {
+        return entryPointPattern;
+    }
+
+    public void setEntryPointPattern(String entryPointPattern) {
+        this.entryPointPattern = entryPointPattern;
+    }
+
+    public String getCompileOutputs() {
+        return compileOutputs;
+    }
+
+    public void setCompileOutputs(String compileOutputs) {
+        this.compileOutputs = compileOutputs;
+    }
+
+    public double getCpus() {
+        return cpus;
+    }
+
+    public void setCpus(double cpus) {
+        this.cpus = cpus;
+    }
+
+    public long getMemoryMb() {
+        return memoryMb;
+    }
+
+    public void setMemoryMb(long memoryMb) {
+        this.memoryMb = memoryMb;
+    }
+
+    public long getPids() {
+        return pids;
+    }
+
+    public void setPids(long pids) {
+        this.pids = pids;
+    }
+
+    public boolean isNetworkDisabled() {
+        return networkDisabled;
+    }
+
+    public void setNetworkDisabled(boolean networkDisabled) {
+        this.networkDisabled = networkDisabled;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+}
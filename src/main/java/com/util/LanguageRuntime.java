@@ -0,0 +1,65 @@
+package com.util;
+
+import java.nio.file.PathMatcher;
+
+/**
+ * How submissions in one language are built and run. Commands are shell
+ * snippets run inside the language's image with the submission at
+ * {@code /app}; a single-file submission keeps its file name there, a bundle
+ * is unpacked as is.
+ */
+public interface LanguageRuntime {
+
+    /**
+     * Lower-case name that job messages use, e.g. {@code java}.
+     */
+    String getName();
+
+    String getImage();
+
+    /**
+     * Compiles a single-file submission, or null if the language has no
+     * compile step.
+     */
+    String compileCommand(String fileName);
+
+    /**
+     * Compiles an unpacked bundle, or null if the language has no compile
+     * step.
+     */
+    String compileBundleCommand();
+
+    String runCommand(String fileName);
+
+    String runBundleCommand(String entryPoint);
+
+    /**
+     * Entry point of a bundle that does not name one.
+     */
+    String getDefaultEntryPoint();
+
+    /**
+     * Whether a bundle's entry point is safe to put in a shell command.
+     */
+    boolean isValidEntryPoint(String entryPoint);
+
+    ResourceProfile getResourceProfile();
+
+    /**
+     * Number of warm containers to keep started, 0 for cold starts only.
+     */
+    int getPoolSize();
+
+    /**
+     * Whether warm containers run the in-JVM Java runner instead of
+     * exec'ing every job.
+     */
+    boolean isInJvm();
+
+    /**
+     * Files of a compiled single-file submission worth caching, matched
+     * against paths relative to {@code /app}, or null if compile output is
+     * not cached.
+     */
+    PathMatcher getCompileOutputs();
+}
@@ -0,0 +1,47 @@
+package com.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The languages this worker can run, looked up by the name in the job
+ * message.
+ */
+public class LanguageRuntimes {
+    private final Map<String, LanguageRuntime> runtimes = new HashMap<>();
+
+    public LanguageRuntimes(Collection<? extends LanguageRuntime> runtimes) {
+        for (LanguageRuntime runtime : runtimes) {
+            if (this.runtimes.put(runtime.getName(), runtime) != null) {
+                throw new IllegalArgumentException("Language " + runtime.getName() + " is defined twice");
+            }
+        }
+    }
+
+    /**
+     * Returns the runtime for {@code language}, or null if it is not
+     * supported.
+     */
+    public LanguageRuntime find(String language) {
+        if (language == null) {
+            return null;
+        }
+        LanguageRuntime runtime = runtimes.get(language);
+        return runtime != null ? runtime : runtimes.get(language.toLowerCase(Locale.ROOT));
+    }
+
+    public LanguageRuntime get(String language) {
+        LanguageRuntime runtime = find(language);
+        if (runtime == null) {
+            throw new IllegalArgumentException("Unsupported language: " + language);
+        }
+        return runtime;
+    }
+
+    public Collection<LanguageRuntime> getAll() {
+        return Collections.unmodifiableCollection(runtimes.values());
+    }
+}
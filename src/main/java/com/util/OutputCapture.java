@@ -0,0 +1,187 @@
+package com.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import com.util.docker.OutputSink;
+
+/**
+ * Bounded sink for container output. The first {@code RESULT:} line is picked
+ * out as bytes arrive; of everything else only the first and last few
+ * kilobytes are kept. Once more than {@code maxBytes} have been written the
+ * {@code onLimitExceeded} callback runs once so the caller can stop the
+ * container. A process's stdout and stderr are captured separately, with a
+ * {@link #sibling()} for the second stream sharing the limit.
+ */
+public class OutputCapture implements OutputSink {
+    private static final byte[] RESULT_PREFIX = "RESULT:".getBytes(StandardCharsets.US_ASCII);
+
+    private final Limit limit;
+    private final boolean scanResult;
+    private final int maxResultBytes;
+
+    private final byte[] head;
+    private int headLength;
+    private final byte[] tail;
+    private int tailPosition;
+    private long tailWritten;
+    private long totalBytes;
+
+    private int linePosition;
+    private boolean resultCandidate = true;
+    private final ByteArrayOutputStream resultLine = new ByteArrayOutputStream();
+    private String result;
+
+    public OutputCapture(long maxBytes, int headBytes, int tailBytes, int maxResultBytes, Runnable onLimitExceeded) {
+        this(new Limit(maxBytes, onLimitExceeded), true, headBytes, tailBytes, maxResultBytes);
+    }
+
+    private OutputCapture(Limit limit, boolean scanResult, int headBytes, int tailBytes, int maxResultBytes) {
+        this.limit = limit;
+        this.scanResult = scanResult;
+        this.maxResultBytes = maxResultBytes;
+        this.head = new byte[headBytes];
+        this.tail = new byte[tailBytes];
+    }
+
+    /**
+     * A capture for the process's other output stream: same head and tail
+     * sizes, counted against the same limit, and no {@code RESULT:} line.
+     */
+    public OutputCapture sibling() {
+        return new OutputCapture(limit, false, head.length, tail.length, 0);
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) {
+        synchronized (this) {
+            if (scanResult) {
+                for (int i = offset; i < offset + length; i++) {
+                    scan(data[i]);
+                }
+            }
+            keep(data, offset, length);
+            totalBytes += length;
+        }
+        limit.add(length);
+    }
+
+    private void scan(byte b) {
+        if (result != null) {
+            return;
+        }
+        if (b == '\n') {
+            if (resultCandidate && linePosition == RESULT_PREFIX.length) {
+                result = resultLine.toString(StandardCharsets.UTF_8);
+            }
+            linePosition = 0;
+            resultCandidate = true;
+            resultLine.reset();
+            return;
+        }
+        if (!resultCandidate) {
+            return;
+        }
+        if (linePosition < RESULT_PREFIX.length) {
+            resultCandidate = b == RESULT_PREFIX[linePosition];
+            linePosition++;
+        } else if (resultLine.size() < maxResultBytes) {
+            resultLine.write(b);
+        } else {
+            resultCandidate = false;
+            resultLine.reset();
+        }
+    }
+
+    private void keep(byte[] data, int offset, int length) {
+        int toHead = Math.min(length, head.length - headLength);
+        System.arraycopy(data, offset, head, headLength, toHead);
+        headLength += toHead;
+
+        int position = offset + toHead;
+        int remaining = length - toHead;
+        if (tail.length == 0 || remaining == 0) {
+            tailWritten += remaining;
+            return;
+        }
+        if (remaining > tail.length) {
+            position += remaining - tail.length;
+            tailWritten += remaining - tail.length;
+            remaining = tail.length;
+        }
+        while (remaining > 0) {
+            int n = Math.min(remaining, tail.length - tailPosition);
+            System.arraycopy(data, position, tail, tailPosition, n);
+            tailPosition = (tailPosition + n) % tail.length;
+            tailWritten += n;
+            position += n;
+            remaining -= n;
+        }
+    }
+
+    /**
+     * The payload of the first {@code RESULT:} line, or null if the program
+     * printed none.
+     */
+    public synchronized String getResult() {
+        if (result == null && scanResult && resultCandidate && linePosition == RESULT_PREFIX.length) {
+            return resultLine.toString(StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public boolean isLimitExceeded() {
+        return limit.isExceeded();
+    }
+
+    public synchronized boolean isTruncated() {
+        return tailWritten > tail.length;
+    }
+
+    public synchronized String getOutput() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        output.write(head, 0, headLength);
+        long dropped = tailWritten - tail.length;
+        if (dropped > 0) {
+            output.writeBytes(("\n... [" + dropped + " bytes truncated] ...\n").getBytes(StandardCharsets.UTF_8));
+            output.write(tail, tailPosition, tail.length - tailPosition);
+            output.write(tail, 0, tailPosition);
+        } else {
+            output.write(tail, 0, (int) tailWritten);
+        }
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private static class Limit {
+        private final long maxBytes;
+        private final Runnable onExceeded;
+        private long totalBytes;
+        private boolean exceeded;
+
+        Limit(long maxBytes, Runnable onExceeded) {
+            this.maxBytes = maxBytes;
+            this.onExceeded = onExceeded;
+        }
+
+        void add(long bytes) {
+            synchronized (this) {
+                totalBytes += bytes;
+                if (exceeded || totalBytes <= maxBytes) {
+                    return;
+                }
+                exceeded = true;
+            }
+            if (onExceeded != null) {
+                onExceeded.run();
+            }
+        }
+
+        synchronized boolean isExceeded() {
+            return exceeded;
+        }
+    }
+}
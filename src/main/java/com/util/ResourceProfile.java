@@ -0,0 +1,44 @@
+package com.util;
+
+import com.util.docker.ContainerSpec;
+
+/**
+ * Sandbox limits applied to every container that runs submissions of a
+ * language, whether started cold or kept warm in the pool.
+ */
+public class ResourceProfile {
+    private final double cpus;
+    private final long memoryMb;
+    private final long pids;
+    private final boolean networkDisabled;
+
+    public ResourceProfile(double cpus, long memoryMb, long pids, boolean networkDisabled) {
+        this.cpus = cpus;
+        this.memoryMb = memoryMb;
+        this.pids = pids;
+        this.networkDisabled = networkDisabled;
+    }
+
+    public ContainerSpec apply(ContainerSpec spec) {
+        return spec.nanoCpus((long) (cpus * 1_000_000_000L))
+                .memoryBytes(memoryMb * 1024 * 1024)
+                .pidsLimit(pids)
+                .networkDisabled(networkDisabled);
+    }
+
+    public double getCpus() {
+        return cpus;
+    }
+
+    public long getMemoryMb() {
+        return memoryMb;
+    }
+
+    public long getPids() {
+        return pids;
+    }
+
+    public boolean isNetworkDisabled() {
+        return networkDisabled;
+    }
+}
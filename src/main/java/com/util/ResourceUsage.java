@@ -0,0 +1,97 @@
+package com.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wall time, CPU time and peak memory of one execution, taken from the
+ * container's own cgroup (v2) rather than measured around the docker call.
+ */
+public class ResourceUsage {
+
+    private final long wallTimeMs;
+    private final long cpuUserMs;
+    private final long cpuSystemMs;
+    private final long peakMemoryBytes;
+
+    public ResourceUsage(long wallTimeMs, long cpuUserMs, long cpuSystemMs, long peakMemoryBytes) {
+        this.wallTimeMs = wallTimeMs;
+        this.cpuUserMs = cpuUserMs;
+        this.cpuSystemMs = cpuSystemMs;
+        this.peakMemoryBytes = peakMemoryBytes;
+    }
+
+    /**
+     * Builds the usage from two snapshots taken by
+     * {@link ContainerCgroups#snapshot} before and after the submission ran.
+     * Returns null if either snapshot is missing, e.g. because the run timed
+     * out. The memory high-water mark is never reset, so peak memory is only
+     * reported when it rose during the run.
+     */
+    public static ResourceUsage between(String start, String end) {
+        try {
+            if (start == null || end == null) {
+                return null;
+            }
+            Map<String, Double> before = parse(start);
+            Map<String, Double> after = parse(end);
+            if (!before.containsKey("time_usec") || !after.containsKey("time_usec")) {
+                return null;
+            }
+            long wallTimeMs = deltaMs(before, after, "time_usec");
+            long cpuUserMs = deltaMs(before, after, "user_usec");
+            long cpuSystemMs = deltaMs(before, after, "system_usec");
+            long peakMemoryBytes = after.containsKey("peak")
+                    && after.get("peak") > before.getOrDefault("peak", -1.0) ? after.get("peak").longValue() : -1;
+            return new ResourceUsage(wallTimeMs, cpuUserMs, cpuSystemMs, peakMemoryBytes);
+        } catch (RuntimeException e) {
+            System.err.println("Failed to read resource usage: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Map<String, Double> parse(String snapshot) {
+        Map<String, Double> values = new HashMap<>();
+        for (String line : snapshot.split("\n")) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length == 2) {
+                try {
+                    values.put(parts[0], Double.parseDouble(parts[1]));
+                } catch (NumberFormatException e) {
+                    // Not a counter (e.g. "max").
+                }
+            }
+        }
+        return values;
+    }
+
+    private static long deltaMs(Map<String, Double> before, Map<String, Double> after, String micros) {
+        if (!before.containsKey(micros) || !after.containsKey(micros)) {
+            return -1;
+        }
+        return (long) (after.get(micros) - before.get(micros)) / 1000;
+    }
+
+    public long getWallTimeMs() {
+        return wallTimeMs;
+    }
+
+    /**
+     * -1 if the container has no cgroup v2 cpu.stat.
+     */
+    public long getCpuUserMs() {
+        return cpuUserMs;
+    }
+
+    public long getCpuSystemMs() {
+        return cpuSystemMs;
+    }
+
+    /**
+     * -1 if unknown, including warm runs that stayed below an earlier job's
+     * high-water mark.
+     */
+    public long getPeakMemoryBytes() {
+        return peakMemoryBytes;
+    }
+}
@@ -0,0 +1,163 @@
+package com.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory cache of execution results keyed by a hash of the submission
+ * and the runner image it ran in. Concurrent requests for the same key share
+ * a single execution.
+ */
+@Component
+public class ResultCache {
+    private final boolean enabled;
+    private final long ttlMs;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<DockerRunner.ExecutionResponse>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ResultCache(@Value("${worker.result-cache.enabled:false}") boolean enabled,
+            @Value("${worker.result-cache.ttl-seconds:600}") long ttlSeconds,
+            @Value("${worker.result-cache.max-entries:10000}") int maxEntries) {
+        this.enabled = enabled;
+        this.ttlMs = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+    }
+
+    public interface Execution {
+        DockerRunner.ExecutionResponse run() throws Exception;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public String key(String language, String imageId, String fileName, byte[] source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(language.toLowerCase().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(imageId.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(fileName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(source);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the cached response for {@code key}, or runs {@code execution}
+     * and caches its response if {@code cacheable} accepts it. A caller that
+     * finds the same key already executing waits for that execution instead.
+     */
+    public DockerRunner.ExecutionResponse get(String key, Execution execution,
+            Predicate<DockerRunner.ExecutionResponse> cacheable) throws Exception {
+        if (!enabled) {
+            return execution.run();
+        }
+
+        DockerRunner.ExecutionResponse cached = lookup(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        CompletableFuture<DockerRunner.ExecutionResponse> future = new CompletableFuture<>();
+        CompletableFuture<DockerRunner.ExecutionResponse> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            try {
+                DockerRunner.ExecutionResponse shared = running.get();
+                if (shared != null) {
+                    hits.incrementAndGet();
+                    return shared;
+                }
+            } catch (ExecutionException e) {
+                // The shared execution failed; run this job on its own.
+            }
+            misses.incrementAndGet();
+            return execution.run();
+        }
+
+        misses.incrementAndGet();
+        try {
+            DockerRunner.ExecutionResponse response = execution.run();
+            boolean cache = cacheable.test(response);
+            if (cache) {
+                put(key, response);
+            }
+            future.complete(cache ? response : null);
+            return response;
+        } catch (Exception | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private synchronized DockerRunner.ExecutionResponse lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.storedAt >= ttlMs) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.response;
+    }
+
+    private synchronized void put(String key, DockerRunner.ExecutionResponse response) {
+        long now = System.currentTimeMillis();
+        entries.put(key, new Entry(response, now));
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (eldest.hasNext()) {
+            Entry entry = eldest.next();
+            if (entries.size() > maxEntries || now - entry.storedAt >= ttlMs) {
+                eldest.remove();
+            } else {
+                break;
+            }
+        }
+    }
+
+    private static class Entry {
+        private final DockerRunner.ExecutionResponse response;
+        private final long storedAt;
+
+        Entry(DockerRunner.ExecutionResponse response, long storedAt) {
+            this.response = response;
+            this.storedAt = storedAt;
+        }
+    }
+}
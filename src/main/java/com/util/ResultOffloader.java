@@ -0,0 +1,211 @@
+package com.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+/**
+ * Moves result messages that would not fit in SQS to S3. The message is
+ * gzipped and stored as is, so a consumer that follows the pointer reads the
+ * same JSON it would have received inline. Objects above {@code partBytes}
+ * are uploaded in parts, concurrently.
+ */
+@Component
+public class ResultOffloader {
+    // S3 rejects smaller parts, except for the last one.
+    private static final int MIN_PART_BYTES = 5 * 1024 * 1024;
+
+    private final S3AsyncClient s3AsyncClient;
+    private final String bucketName;
+    private final int thresholdBytes;
+    private final String prefix;
+    private final int partBytes;
+    private final MeterRegistry meterRegistry;
+
+    public ResultOffloader(S3AsyncClient s3AsyncClient,
+            @Value("${worker.result-offload.bucket:${aws.s3.bucket.name}}") String bucketName,
+            @Value("${worker.result-offload.threshold-bytes:196608}") int thresholdBytes,
+            @Value("${worker.result-offload.prefix:results/}") String prefix,
+            @Value("${worker.result-offload.part-bytes:8388608}") int partBytes,
+            MeterRegistry meterRegistry) {
+        this.s3AsyncClient = s3AsyncClient;
+        this.bucketName = bucketName;
+        this.thresholdBytes = thresholdBytes;
+        this.prefix = prefix;
+        this.partBytes = Math.max(MIN_PART_BYTES, partBytes);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Whether {@code body} is too large to send inline. 0 as the threshold
+     * keeps every result inline.
+     */
+    public boolean shouldOffload(String body) {
+        if (thresholdBytes <= 0 || body.length() <= thresholdBytes / 3) {
+            // Even if every character took three bytes it would fit.
+            return false;
+        }
+        return body.length() > thresholdBytes || body.getBytes(StandardCharsets.UTF_8).length > thresholdBytes;
+    }
+
+    /**
+     * Stores {@code body} gzipped under a new key for {@code jobId}.
+     */
+    public CompletableFuture<Location> upload(String jobId, String body) {
+        byte[] raw = body.getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = gzip(raw);
+        String key = prefix + (jobId != null ? jobId : "unknown") + "-" + UUID.randomUUID() + ".json.gz";
+        Location location = new Location(bucketName, key, raw.length, compressed.length);
+
+        long start = System.nanoTime();
+        CompletableFuture<Location> upload;
+        try {
+            upload = (compressed.length > partBytes ? uploadParts(key, compressed) : uploadWhole(key, compressed))
+                    .thenApply(done -> location);
+        } catch (RuntimeException e) {
+            upload = CompletableFuture.failedFuture(e);
+        }
+        return upload.whenComplete((done, error) -> {
+            String outcome = error == null ? "success" : "failure";
+            Timer.builder("worker.result_offload.duration")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (error == null) {
+                DistributionSummary.builder("worker.result_offload.bytes")
+                        .baseUnit("bytes")
+                        .register(meterRegistry)
+                        .record(compressed.length);
+                System.out.println("Offloaded result for jobId=" + jobId + " to s3://" + bucketName + "/" + key
+                        + " (" + raw.length + " bytes, " + compressed.length + " gzipped)");
+            } else {
+                System.err.println("Failed to offload result for jobId=" + jobId + ": " + error.getMessage());
+            }
+        });
+    }
+
+    private CompletableFuture<?> uploadWhole(String key, byte[] compressed) {
+        return s3AsyncClient.putObject(PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType("application/json")
+                .contentEncoding("gzip")
+                .contentLength((long) compressed.length)
+                .build(), AsyncRequestBody.fromBytes(compressed));
+    }
+
+    private CompletableFuture<?> uploadParts(String key, byte[] compressed) {
+        return s3AsyncClient.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType("application/json")
+                .contentEncoding("gzip")
+                .build())
+                .thenCompose(created -> {
+                    String uploadId = created.uploadId();
+                    List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+                    for (int offset = 0, number = 1; offset < compressed.length; offset += partBytes, number++) {
+                        byte[] part = Arrays.copyOfRange(compressed, offset,
+                                Math.min(offset + partBytes, compressed.length));
+                        int partNumber = number;
+                        parts.add(s3AsyncClient.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucketName)
+                                .key(key)
+                                .uploadId(uploadId)
+                                .partNumber(partNumber)
+                                .contentLength((long) part.length)
+                                .build(), AsyncRequestBody.fromBytes(part))
+                                .thenApply(response -> CompletedPart.builder()
+                                        .partNumber(partNumber)
+                                        .eTag(response.eTag())
+                                        .build()));
+                    }
+                    return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]))
+                            .thenCompose(done -> s3AsyncClient.completeMultipartUpload(
+                                    CompleteMultipartUploadRequest.builder()
+                                            .bucket(bucketName)
+                                            .key(key)
+                                            .uploadId(uploadId)
+                                            .multipartUpload(upload -> upload.parts(
+                                                    parts.stream().map(CompletableFuture::join).toList()))
+                                            .build()))
+                            .whenComplete((done, error) -> {
+                                if (error != null) {
+                                    // Otherwise the parts already uploaded are kept, and billed, until aborted.
+                                    s3AsyncClient.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                                            .bucket(bucketName)
+                                            .key(key)
+                                            .uploadId(uploadId)
+                                            .build());
+                                }
+                            });
+                });
+    }
+
+    private static byte[] gzip(byte[] raw) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(raw);
+        } catch (IOException e) {
+            // Only the stream could fail, and a ByteArrayOutputStream doesn't.
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Where an offloaded result message was stored.
+     */
+    public static class Location {
+        private final String bucket;
+        private final String key;
+        private final long bytes;
+        private final long compressedBytes;
+
+        public Location(String bucket, String key, long bytes, long compressedBytes) {
+            this.bucket = bucket;
+            this.key = key;
+            this.bytes = bytes;
+            this.compressedBytes = compressedBytes;
+        }
+
+        public String getBucket() {
+            return bucket;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getCompressedBytes() {
+            return compressedBytes;
+        }
+    }
+}
@@ -1,55 +1,359 @@
 package com.util;
 
-import org.springframework.stereotype.Service;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
 import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
 
+/**
+ * Publishes results and acknowledges request messages asynchronously. Entries
+ * are queued by the job threads and sent by a background flusher in batches of
+ * up to ten entries and 256 KiB per queue, either once a batch is full or once
+ * the oldest entry has waited for the linger time. Results too large for SQS are handed to
+ * the {@link ResultOffloader} and announced with a pointer once stored.
+ * Sends return a future that completes once SQS accepted the message, and
+ * callers acknowledge the request only then, so a request whose result could
+ * not be sent is never deleted.
+ */
 @Service
 public class ResultPublisher {
+    private static final int MAX_BATCH_SIZE = 10;
+    // SQS rejects a batch whose message bodies add up to more than this.
+    private static final int MAX_BATCH_BYTES = 256 * 1024;
+
     private final SqsClient sqsClient;
-    private final ObjectMapper objectMapper;
+    private final ResultOffloader resultOffloader;
+    private final MeterRegistry meterRegistry;
+    private final long lingerMs;
+    private final BlockingQueue<Pending> pending = new LinkedBlockingQueue<>();
+    private final Set<CompletableFuture<?>> offloading = ConcurrentHashMap.newKeySet();
+    private final Object signal = new Object();
+    private final Thread flusher;
+    private volatile boolean running = true;
 
-    public ResultPublisher(SqsClient sqsClient, ObjectMapper objectMapper) {
+    public ResultPublisher(SqsClient sqsClient, ResultOffloader resultOffloader, MeterRegistry meterRegistry,
+            @Value("${worker.publish.linger-ms:20}") long lingerMs) {
         this.sqsClient = sqsClient;
-        this.objectMapper = objectMapper;
+        this.resultOffloader = resultOffloader;
+        this.meterRegistry = meterRegistry;
+        this.lingerMs = lingerMs;
+        Gauge.builder("worker.publish.pending", pending, BlockingQueue::size)
+                .description("Results and acknowledgements waiting to be sent")
+                .register(meterRegistry);
+        Gauge.builder("worker.publish.offloading", offloading, Set::size)
+                .description("Results being stored in S3 before their pointer is sent")
+                .register(meterRegistry);
+        this.flusher = new Thread(this::runFlusher, "result-publisher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queues the result message for {@code result}. The future completes with
+     * the body once SQS accepted it, so the same message can be sent again
+     * later with {@link #forward}. It fails if the upload of an offloaded
+     * result or the send itself does.
+     */
+    public CompletableFuture<String> publishResult(String responseQueueUrl, JobResult result) {
+        String body = JobResultWriter.write(result);
+        if (!resultOffloader.shouldOffload(body)) {
+            return send(responseQueueUrl, result.getJobId(), body);
+        }
+
+        CompletableFuture<CompletableFuture<String>> uploaded = resultOffloader.upload(result.getJobId(), body)
+                .thenApply(location -> send(responseQueueUrl, result.getJobId(),
+                        JobResultWriter.writeOffloaded(result, location)));
+        offloading.add(uploaded);
+        uploaded.whenComplete((sent, error) -> offloading.remove(uploaded));
+        return uploaded.thenCompose(sent -> sent);
+    }
+
+    /**
+     * Sends {@code body} to {@code queueUrl} as is, e.g. a request moved to a
+     * dead-letter queue. The future completes once SQS accepted it.
+     */
+    public CompletableFuture<String> forward(String queueUrl, String body) {
+        return send(queueUrl, null, body);
     }
 
-    public void publishResult(String responseQueueUrl, String jobId, String result) {
+    public void acknowledge(String requestQueueUrl, String receiptHandle) {
+        enqueue(new Pending(Kind.DELETE, requestQueueUrl, null, receiptHandle));
+    }
+
+    private CompletableFuture<String> send(String queueUrl, String jobId, String body) {
+        Pending entry = new Pending(Kind.SEND, queueUrl, jobId, body);
+        enqueue(entry);
+        return entry.sent;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Waits up to {@code timeoutMs} for results still being offloaded, so
+     * their pointers are queued before the last flush.
+     */
+    public void awaitOffloads(long timeoutMs) {
+        CompletableFuture<?>[] running = offloading.toArray(new CompletableFuture<?>[0]);
+        if (running.length == 0) {
+            return;
+        }
         try {
-            ResultMessage resultMessage = new ResultMessage(jobId, result);
-            String body = objectMapper.writeValueAsString(resultMessage);
+            CompletableFuture.allOf(running).get(Math.max(1, timeoutMs), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Already logged by the offloader; those messages are retried.
+        } catch (TimeoutException e) {
+            System.err.println(offloading.size() + " result uploads still running");
+        }
+    }
 
-            sqsClient.sendMessage(SendMessageRequest.builder()
-                    .queueUrl(responseQueueUrl)
-                    .messageBody(body)
+    private void enqueue(Pending entry) {
+        pending.add(entry);
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    private void runFlusher() {
+        while (running) {
+            try {
+                Pending head = pending.peek();
+                long waitMs = head == null ? lingerMs : head.enqueuedAt + lingerMs - System.currentTimeMillis();
+                if (head == null || (waitMs > 0 && pending.size() < MAX_BATCH_SIZE)) {
+                    synchronized (signal) {
+                        signal.wait(Math.max(1, waitMs));
+                    }
+                    continue;
+                }
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Result publisher flush failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sends everything queued so far, results first. Acknowledgements queued
+     * as those results were accepted go out in the same flush.
+     */
+    public synchronized void flush() {
+        List<Pending> drained = new ArrayList<>();
+        pending.drainTo(drained);
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<Pending>> sends = new LinkedHashMap<>();
+        Map<String, List<Pending>> deletes = new LinkedHashMap<>();
+        for (Pending entry : drained) {
+            Map<String, List<Pending>> target = entry.kind == Kind.SEND ? sends : deletes;
+            target.computeIfAbsent(entry.queueUrl, key -> new ArrayList<>()).add(entry);
+        }
+
+        sends.forEach((queueUrl, entries) -> forEachBatch(entries, batch -> sendBatch(queueUrl, batch)));
+        for (Iterator<Pending> queued = pending.iterator(); queued.hasNext();) {
+            Pending entry = queued.next();
+            if (entry.kind == Kind.DELETE) {
+                queued.remove();
+                deletes.computeIfAbsent(entry.queueUrl, key -> new ArrayList<>()).add(entry);
+            }
+        }
+        deletes.forEach((queueUrl, entries) -> forEachBatch(entries, batch -> deleteBatch(queueUrl, batch)));
+    }
+
+    private void forEachBatch(List<Pending> entries, Consumer<List<Pending>> action) {
+        int start = 0;
+        long bytes = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            int size = entries.get(i).bytes;
+            if (i > start && (i - start == MAX_BATCH_SIZE || bytes + size > MAX_BATCH_BYTES)) {
+                action.accept(entries.subList(start, i));
+                start = i;
+                bytes = 0;
+            }
+            bytes += size;
+        }
+        if (start < entries.size()) {
+            action.accept(entries.subList(start, entries.size()));
+        }
+    }
+
+    private void sendBatch(String queueUrl, List<Pending> batch) {
+        List<SendMessageBatchRequestEntry> entries = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            entries.add(SendMessageBatchRequestEntry.builder()
+                    .id(Integer.toString(i))
+                    .messageBody(batch.get(i).payload)
                     .build());
+        }
 
-            System.out.println("Published result for jobId=" + jobId);
-        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
-            System.err.println("Failed to serialize result message: " + e.getMessage());
-        } catch (software.amazon.awssdk.services.sqs.model.SqsException e) {
+        long start = System.nanoTime();
+        try {
+            SendMessageBatchResponse response = sqsClient.sendMessageBatch(SendMessageBatchRequest.builder()
+                    .queueUrl(queueUrl)
+                    .entries(entries)
+                    .build());
+            recordBatch(Kind.SEND, batch, start);
+            System.out.println("Published " + response.successful().size() + " results to " + queueUrl);
+            for (BatchResultErrorEntry failed : response.failed()) {
+                sendSingle(queueUrl, batch.get(Integer.parseInt(failed.id())));
+            }
+            // The rest were accepted; the retried ones are already settled.
+            for (Pending entry : batch) {
+                entry.sent.complete(entry.payload);
+            }
+        } catch (SdkException e) {
+            System.err.println("Failed to send result batch to SQS: " + e.getMessage());
+            for (Pending entry : batch) {
+                sendSingle(queueUrl, entry);
+            }
+        }
+    }
+
+    private void sendSingle(String queueUrl, Pending entry) {
+        try {
+            sqsClient.sendMessage(SendMessageRequest.builder()
+                    .queueUrl(queueUrl)
+                    .messageBody(entry.payload)
+                    .build());
+            System.out.println(entry.jobId != null ? "Published result for jobId=" + entry.jobId
+                    : "Forwarded message to " + queueUrl);
+            entry.sent.complete(entry.payload);
+        } catch (SdkException e) {
             System.err.println("Failed to send message to SQS: " + e.getMessage());
+            meterRegistry.counter("worker.publish.failures", "operation", "send").increment();
+            entry.sent.completeExceptionally(e);
         }
     }
 
-    static class ResultMessage {
-        private final String jobId;
-        private final String result;
+    private void deleteBatch(String queueUrl, List<Pending> batch) {
+        List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            entries.add(DeleteMessageBatchRequestEntry.builder()
+                    .id(Integer.toString(i))
+                    .receiptHandle(batch.get(i).payload)
+                    .build());
+        }
 
-        public ResultMessage(String jobId, String result) {
-            this.jobId = jobId;
-            this.result = result;
+        long start = System.nanoTime();
+        try {
+            DeleteMessageBatchResponse response = sqsClient.deleteMessageBatch(DeleteMessageBatchRequest.builder()
+                    .queueUrl(queueUrl)
+                    .entries(entries)
+                    .build());
+            recordBatch(Kind.DELETE, batch, start);
+            for (BatchResultErrorEntry failed : response.failed()) {
+                deleteSingle(queueUrl, batch.get(Integer.parseInt(failed.id())));
+            }
+        } catch (SdkException e) {
+            System.err.println("Failed to delete message batch from SQS: " + e.getMessage());
+            for (Pending entry : batch) {
+                deleteSingle(queueUrl, entry);
+            }
         }
+    }
 
-        public String getJobId() {
-            return jobId;
+    private void deleteSingle(String queueUrl, Pending entry) {
+        try {
+            sqsClient.deleteMessage(DeleteMessageRequest.builder()
+                    .queueUrl(queueUrl)
+                    .receiptHandle(entry.payload)
+                    .build());
+        } catch (SdkException e) {
+            System.err.println("Failed to delete message from SQS: " + e.getMessage());
+            meterRegistry.counter("worker.publish.failures", "operation", "delete").increment();
         }
+    }
+
+    private void recordBatch(Kind kind, List<Pending> batch, long startNanos) {
+        String operation = kind.name().toLowerCase();
+        meterRegistry.timer("worker.publish.batch.duration", "operation", operation)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("worker.publish.batch.size")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .record(batch.size());
 
-        public String getResult() {
-            return result;
+        // Time from queueing a result or acknowledgement until SQS accepted it.
+        Timer latency = Timer.builder("worker.publish.latency")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        long now = System.currentTimeMillis();
+        for (Pending entry : batch) {
+            latency.record(now - entry.enqueuedAt, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        awaitOffloads(5000);
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private enum Kind {
+        SEND, DELETE
+    }
+
+    private static class Pending {
+        private final Kind kind;
+        private final String queueUrl;
+        private final String jobId;
+        private final String payload;
+        private final int bytes;
+        private final long enqueuedAt = System.currentTimeMillis();
+        private final CompletableFuture<String> sent = new CompletableFuture<>();
+
+        Pending(Kind kind, String queueUrl, String jobId, String payload) {
+            this.kind = kind;
+            this.queueUrl = queueUrl;
+            this.jobId = jobId;
+            this.payload = payload;
+            this.bytes = payload.getBytes(StandardCharsets.UTF_8).length;
         }
     }
 }
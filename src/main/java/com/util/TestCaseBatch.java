@@ -0,0 +1,133 @@
+package com.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.model.TestCase;
+
+/**
+ * Runs a program once per test case inside one sandbox. Inputs are written
+ * to {@code .cases/N.in} in the workspace and fed to the program on stdin;
+ * a shell loop runs each case under {@code timeout} and records its exit
+ * code and start and end uptime next to its capped stdout and stderr. Only
+ * stdout is compared with the expected output, which never enters the
+ * workspace.
+ */
+class TestCaseBatch {
+    static final String DIR = ".cases";
+    private static final int TIMEOUT_EXIT = 124;
+    private static final int KILLED_EXIT = 137;
+
+    private final List<TestCase> cases;
+    private final long caseTimeoutMs;
+    private final int maxOutputBytes;
+
+    TestCaseBatch(List<TestCase> cases, long caseTimeoutMs, int maxOutputBytes) {
+        this.cases = cases;
+        this.caseTimeoutMs = caseTimeoutMs;
+        this.maxOutputBytes = maxOutputBytes;
+    }
+
+    /**
+     * Time for the whole container: the usual budget for compiling plus
+     * every case running to its limit.
+     */
+    long timeoutMs(long baseTimeoutMs) {
+        return baseTimeoutMs + cases.size() * (caseTimeoutMs + 1000);
+    }
+
+    void writeInputs(Path workspace) throws IOException {
+        Path dir = Files.createDirectories(workspace.resolve(DIR));
+        for (int i = 0; i < cases.size(); i++) {
+            String input = cases.get(i).getInput();
+            Files.writeString(dir.resolve(i + ".in"), input != null ? input : "", StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Shell loop running {@code run} once per case, with stdout and stderr
+     * each piped through their own cap. One byte more than the limit is kept
+     * so an overflow can be told apart from output that fits.
+     */
+    String script(String run) {
+        String seconds = String.format(Locale.ROOT, "%.3f", caseTimeoutMs / 1000.0);
+        String dir = "/app/" + DIR + "/";
+        String cap = "head -c " + (maxOutputBytes + 1);
+        return "now() { read up idle < /proc/uptime; echo $up; }; i=0; while [ $i -lt " + cases.size() + " ]; do"
+                + " { { s=$(now); timeout -k 1 " + seconds + " " + run + " < " + dir + "$i.in 2>&3 3>&-; rc=$?;"
+                + " echo \"$rc $s $(now)\" > " + dir + "$i.status; }"
+                + " | " + cap + " > " + dir + "$i.out; } 3>&1 | " + cap + " > " + dir + "$i.err; i=$((i+1)); done";
+    }
+
+    List<CaseResult> readResults(Path workspace) throws IOException {
+        Path dir = workspace.resolve(DIR);
+        List<CaseResult> results = new ArrayList<>();
+        for (int i = 0; i < cases.size(); i++) {
+            TestCase testCase = cases.get(i);
+            String name = testCase.getName() != null ? testCase.getName() : String.valueOf(i + 1);
+            Path status = dir.resolve(i + ".status");
+            if (!Files.exists(status)) {
+                results.add(new CaseResult(name, CaseResult.Verdict.NOT_RUN, -1, 0, "", ""));
+                continue;
+            }
+
+            String[] parts = Files.readString(status).trim().split(" ");
+            int exitCode = Integer.parseInt(parts[0]);
+            long timeMs = Math.round((Double.parseDouble(parts[2]) - Double.parseDouble(parts[1])) * 1000);
+
+            byte[] output = readCapped(dir.resolve(i + ".out"));
+            byte[] errors = readCapped(dir.resolve(i + ".err"));
+            boolean overflow = output.length > maxOutputBytes || errors.length > maxOutputBytes;
+            String text = capped(output);
+            results.add(new CaseResult(name, verdict(testCase, exitCode, timeMs, overflow, text), exitCode, timeMs,
+                    text, capped(errors)));
+        }
+        return results;
+    }
+
+    private CaseResult.Verdict verdict(TestCase testCase, int exitCode, long timeMs, boolean overflow,
+            String output) {
+        if (exitCode == TIMEOUT_EXIT || (exitCode == KILLED_EXIT && timeMs >= caseTimeoutMs)) {
+            return CaseResult.Verdict.TIME_LIMIT_EXCEEDED;
+        }
+        if (overflow) {
+            return CaseResult.Verdict.OUTPUT_LIMIT_EXCEEDED;
+        }
+        if (exitCode != 0) {
+            return CaseResult.Verdict.RUNTIME_ERROR;
+        }
+        if (testCase.getExpectedOutput() == null) {
+            return CaseResult.Verdict.COMPLETED;
+        }
+        return normalize(output).equals(normalize(testCase.getExpectedOutput())) ? CaseResult.Verdict.ACCEPTED
+                : CaseResult.Verdict.WRONG_ANSWER;
+    }
+
+    // Trailing spaces on a line and trailing blank lines don't count against an answer.
+    static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder();
+        for (String line : text.replace("\r\n", "\n").split("\n")) {
+            normalized.append(line.stripTrailing()).append('\n');
+        }
+        return normalized.toString().stripTrailing();
+    }
+
+    private String capped(byte[] output) {
+        return new String(output, 0, Math.min(output.length, maxOutputBytes), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readCapped(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return new byte[0];
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            return in.readNBytes(maxOutputBytes + 1);
+        }
+    }
+}
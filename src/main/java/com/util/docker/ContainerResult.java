@@ -0,0 +1,19 @@
+package com.util.docker;
+
+public class ContainerResult {
+    private final int exitCode;
+    private final boolean timedOut;
+
+    public ContainerResult(int exitCode, boolean timedOut) {
+        this.exitCode = exitCode;
+        this.timedOut = timedOut;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+}
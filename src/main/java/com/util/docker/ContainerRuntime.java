@@ -0,0 +1,37 @@
+package com.util.docker;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal set of container operations the worker needs. Output is streamed to
+ * the given sinks as it is produced; timeouts kill the container (or exec'd
+ * process) and are reported through {@link ContainerResult#isTimedOut()}.
+ */
+public interface ContainerRuntime {
+
+    String create(ContainerSpec spec) throws IOException;
+
+    void start(String containerId) throws IOException;
+
+    void kill(String containerId) throws IOException;
+
+    void remove(String containerId) throws IOException;
+
+    boolean isRunning(String containerId) throws IOException;
+
+    /**
+     * Ids of all containers, running or stopped, that carry every one of the
+     * given labels.
+     */
+    List<String> list(Map<String, String> labels) throws IOException;
+
+    /**
+     * Returns the content-addressed id of a local image, e.g. {@code sha256:...}.
+     */
+    String imageId(String image) throws IOException;
+
+    ContainerResult exec(String containerId, List<String> command, OutputSink stdout, OutputSink stderr,
+            long timeoutMs) throws IOException, InterruptedException;
+}
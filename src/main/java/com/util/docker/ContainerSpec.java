@@ -0,0 +1,124 @@
+package com.util.docker;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ContainerSpec {
+    private final String name;
+    private final String image;
+    private final List<String> command;
+    private final List<String> binds = new ArrayList<>();
+    private final Map<String, String> labels = new LinkedHashMap<>();
+    private final Map<String, String> tmpfs = new LinkedHashMap<>();
+    private String workingDir;
+    private long memoryBytes;
+    private long nanoCpus;
+    private long pidsLimit;
+    private boolean networkDisabled;
+    private boolean readOnlyRootfs;
+
+    public ContainerSpec(String name, String image, List<String> command) {
+        this.name = name;
+        this.image = image;
+        this.command = List.copyOf(command);
+    }
+
+    public ContainerSpec bind(String hostPath, String containerPath) {
+        binds.add(hostPath + ":" + containerPath);
+        return this;
+    }
+
+    public ContainerSpec label(String key, String value) {
+        labels.put(key, value);
+        return this;
+    }
+
+    /**
+     * Mounts a fresh tmpfs at {@code containerPath}, e.g. with options
+     * {@code rw,size=64m}.
+     */
+    public ContainerSpec tmpfs(String containerPath, String options) {
+        tmpfs.put(containerPath, options);
+        return this;
+    }
+
+    public ContainerSpec readOnlyRootfs(boolean readOnlyRootfs) {
+        this.readOnlyRootfs = readOnlyRootfs;
+        return this;
+    }
+
+    public ContainerSpec workingDir(String workingDir) {
+        this.workingDir = workingDir;
+        return this;
+    }
+
+    public ContainerSpec memoryBytes(long memoryBytes) {
+        this.memoryBytes = memoryBytes;
+        return this;
+    }
+
+    public ContainerSpec nanoCpus(long nanoCpus) {
+        this.nanoCpus = nanoCpus;
+        return this;
+    }
+
+    public ContainerSpec pidsLimit(long pidsLimit) {
+        this.pidsLimit = pidsLimit;
+        return this;
+    }
+
+    public ContainerSpec networkDisabled(boolean networkDisabled) {
+        this.networkDisabled = networkDisabled;
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getImage() {
+        return image;
+    }
+
+    public List<String> getCommand() {
+        return command;
+    }
+
+    public List<String> getBinds() {
+        return binds;
+    }
+
+    public Map<String, String> getLabels() {
+        return labels;
+    }
+
+    public Map<String, String> getTmpfs() {
+        return tmpfs;
+    }
+
+    public boolean isReadOnlyRootfs() {
+        return readOnlyRootfs;
+    }
+
+    public String getWorkingDir() {
+        return workingDir;
+    }
+
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public long getNanoCpus() {
+        return nanoCpus;
+    }
+
+    public long getPidsLimit() {
+        return pidsLimit;
+    }
+
+    public boolean isNetworkDisabled() {
+        return networkDisabled;
+    }
+}
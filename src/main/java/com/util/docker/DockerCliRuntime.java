@@ -0,0 +1,187 @@
+package com.util.docker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ContainerRuntime} backed by the {@code docker} command line client.
+ * Used when the Engine socket is not reachable from the worker.
+ */
+public class DockerCliRuntime implements ContainerRuntime {
+    private static final long COMMAND_TIMEOUT_SECONDS = 30;
+
+    @Override
+    public String create(ContainerSpec spec) throws IOException {
+        List<String> command = new ArrayList<>(List.of("docker", "create"));
+        addRunOptions(command, spec);
+        command.add(spec.getImage());
+        command.addAll(spec.getCommand());
+        return docker(command).trim();
+    }
+
+    @Override
+    public void start(String containerId) throws IOException {
+        docker(List.of("docker", "start", containerId));
+    }
+
+    @Override
+    public void kill(String containerId) throws IOException {
+        runQuietly(List.of("docker", "kill", containerId));
+    }
+
+    @Override
+    public void remove(String containerId) throws IOException {
+        runQuietly(List.of("docker", "rm", "-f", containerId));
+    }
+
+    @Override
+    public boolean isRunning(String containerId) throws IOException {
+        try {
+            return docker(List.of("docker", "inspect", "-f", "{{.State.Running}}", containerId)).trim()
+                    .equals("true");
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public List<String> list(Map<String, String> labels) throws IOException {
+        List<String> command = new ArrayList<>(List.of("docker", "ps", "-aq", "--no-trunc"));
+        for (Map.Entry<String, String> label : labels.entrySet()) {
+            command.add("--filter");
+            command.add("label=" + label.getKey() + "=" + label.getValue());
+        }
+        return docker(command).lines().map(String::trim).filter(id -> !id.isEmpty()).toList();
+    }
+
+    @Override
+    public String imageId(String image) throws IOException {
+        return docker(List.of("docker", "image", "inspect", "-f", "{{.Id}}", image)).trim();
+    }
+
+    @Override
+    public ContainerResult exec(String containerId, List<String> command, OutputSink stdout, OutputSink stderr,
+            long timeoutMs) throws IOException, InterruptedException {
+        List<String> execCommand = new ArrayList<>(List.of("docker", "exec", containerId));
+        execCommand.addAll(command);
+        ContainerResult result = runProcess(execCommand, stdout, stderr, timeoutMs);
+        if (result.isTimedOut()) {
+            // Killing the CLI does not stop the exec'd process, so stop the container.
+            kill(containerId);
+        }
+        return result;
+    }
+
+    private ContainerResult runProcess(List<String> command, OutputSink stdout, OutputSink stderr, long timeoutMs)
+            throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).start();
+        Thread stdoutPump = pump(process.getInputStream(), stdout);
+        Thread stderrPump = pump(process.getErrorStream(), stderr);
+
+        boolean finished = process.waitFor(timeoutMs, TimeUnit.MILLISECONDS);
+        if (!finished) {
+            process.destroyForcibly();
+            process.waitFor(15, TimeUnit.SECONDS);
+            return new ContainerResult(-1, true);
+        }
+
+        stdoutPump.join();
+        stderrPump.join();
+        return new ContainerResult(process.exitValue(), false);
+    }
+
+    private static void addRunOptions(List<String> command, ContainerSpec spec) {
+        if (spec.getName() != null) {
+            command.add("--name");
+            command.add(spec.getName());
+        }
+        for (String bind : spec.getBinds()) {
+            command.add("-v");
+            command.add(bind);
+        }
+        for (Map.Entry<String, String> tmpfs : spec.getTmpfs().entrySet()) {
+            command.add("--tmpfs");
+            command.add(tmpfs.getKey() + ":" + tmpfs.getValue());
+        }
+        if (spec.isReadOnlyRootfs()) {
+            command.add("--read-only");
+        }
+        for (Map.Entry<String, String> label : spec.getLabels().entrySet()) {
+            command.add("--label");
+            command.add(label.getKey() + "=" + label.getValue());
+        }
+        if (spec.getWorkingDir() != null) {
+            command.add("-w");
+            command.add(spec.getWorkingDir());
+        }
+        if (spec.getMemoryBytes() > 0) {
+            command.add("--memory=" + spec.getMemoryBytes());
+            command.add("--memory-swap=" + spec.getMemoryBytes());
+        }
+        if (spec.getNanoCpus() > 0) {
+            command.add("--cpus=" + (spec.getNanoCpus() / 1_000_000_000.0));
+        }
+        if (spec.getPidsLimit() > 0) {
+            command.add("--pids-limit=" + spec.getPidsLimit());
+        }
+        if (spec.isNetworkDisabled()) {
+            command.add("--network=none");
+        }
+    }
+
+    private static Thread pump(InputStream in, OutputSink sink) {
+        Thread thread = new Thread(() -> {
+            byte[] buffer = new byte[8192];
+            try (in) {
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    sink.write(buffer, 0, n);
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error reading process output: " + e.getMessage());
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void runQuietly(List<String> command) throws IOException {
+        try {
+            docker(command);
+        } catch (IOException e) {
+            if (!e.getMessage().contains("No such container")) {
+                throw e;
+            }
+        }
+    }
+
+    private static String docker(List<String> command) throws IOException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream in = process.getInputStream()) {
+            in.transferTo(output);
+            boolean finished = process.waitFor(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (!finished) {
+                process.destroyForcibly();
+                throw new IOException(String.join(" ", command.subList(0, 2)) + " timed out");
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running " + String.join(" ", command.subList(0, 2)));
+        }
+
+        String text = output.toString(StandardCharsets.UTF_8);
+        if (process.exitValue() != 0) {
+            throw new IOException(String.join(" ", command.subList(0, 2)) + " failed: " + text.trim());
+        }
+        return text;
+    }
+}
@@ -0,0 +1,243 @@
+package com.util.docker;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * {@link ContainerRuntime} that talks to the Docker Engine API directly over
+ * its Unix socket instead of forking a {@code docker} CLI process per call.
+ */
+public class DockerEngineRuntime implements ContainerRuntime {
+    private static final String API = "/v1.41";
+
+    private final UnixSocketHttpClient client;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService timeouts;
+
+    public DockerEngineRuntime(UnixSocketHttpClient client, ObjectMapper objectMapper) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.timeouts = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "docker-engine-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String create(ContainerSpec spec) throws IOException {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("Image", spec.getImage());
+        ArrayNode cmd = body.putArray("Cmd");
+        spec.getCommand().forEach(cmd::add);
+        if (spec.getWorkingDir() != null) {
+            body.put("WorkingDir", spec.getWorkingDir());
+        }
+        if (!spec.getLabels().isEmpty()) {
+            ObjectNode labels = body.putObject("Labels");
+            spec.getLabels().forEach(labels::put);
+        }
+        body.put("AttachStdout", true);
+        body.put("AttachStderr", true);
+        body.put("NetworkDisabled", spec.isNetworkDisabled());
+
+        ObjectNode hostConfig = body.putObject("HostConfig");
+        ArrayNode binds = hostConfig.putArray("Binds");
+        spec.getBinds().forEach(binds::add);
+        if (!spec.getTmpfs().isEmpty()) {
+            ObjectNode tmpfs = hostConfig.putObject("Tmpfs");
+            spec.getTmpfs().forEach(tmpfs::put);
+        }
+        if (spec.isReadOnlyRootfs()) {
+            hostConfig.put("ReadonlyRootfs", true);
+        }
+        if (spec.getMemoryBytes() > 0) {
+            hostConfig.put("Memory", spec.getMemoryBytes());
+            hostConfig.put("MemorySwap", spec.getMemoryBytes());
+        }
+        if (spec.getNanoCpus() > 0) {
+            hostConfig.put("NanoCpus", spec.getNanoCpus());
+        }
+        if (spec.getPidsLimit() > 0) {
+            hostConfig.put("PidsLimit", spec.getPidsLimit());
+        }
+        if (spec.isNetworkDisabled()) {
+            hostConfig.put("NetworkMode", "none");
+        }
+
+        String path = API + "/containers/create";
+        if (spec.getName() != null) {
+            path += "?name=" + URLEncoder.encode(spec.getName(), StandardCharsets.UTF_8);
+        }
+        JsonNode response = requestJson("POST", path, objectMapper.writeValueAsBytes(body));
+        return response.get("Id").asText();
+    }
+
+    @Override
+    public void start(String containerId) throws IOException {
+        request("POST", API + "/containers/" + containerId + "/start", null, 304);
+    }
+
+    @Override
+    public void kill(String containerId) throws IOException {
+        request("POST", API + "/containers/" + containerId + "/kill", null, 404, 409);
+    }
+
+    @Override
+    public void remove(String containerId) throws IOException {
+        request("DELETE", API + "/containers/" + containerId + "?force=true", null, 404);
+    }
+
+    @Override
+    public boolean isRunning(String containerId) throws IOException {
+        try (UnixSocketHttpClient.Response response = client.execute("GET",
+                API + "/containers/" + containerId + "/json", null)) {
+            if (response.getStatus() == 404) {
+                return false;
+            }
+            checkStatus(response, "GET inspect");
+            return objectMapper.readTree(response.readBody()).path("State").path("Running").asBoolean(false);
+        }
+    }
+
+    @Override
+    public List<String> list(Map<String, String> labels) throws IOException {
+        ObjectNode filters = objectMapper.createObjectNode();
+        ArrayNode label = filters.putArray("label");
+        labels.forEach((key, value) -> label.add(key + "=" + value));
+        JsonNode containers = requestJson("GET", API + "/containers/json?all=true&filters="
+                + URLEncoder.encode(objectMapper.writeValueAsString(filters), StandardCharsets.UTF_8), null);
+        List<String> ids = new ArrayList<>();
+        containers.forEach(container -> ids.add(container.get("Id").asText()));
+        return ids;
+    }
+
+    @Override
+    public String imageId(String image) throws IOException {
+        return requestJson("GET", API + "/images/" + image + "/json", null).get("Id").asText();
+    }
+
+    @Override
+    public ContainerResult exec(String containerId, List<String> command, OutputSink stdout, OutputSink stderr,
+            long timeoutMs) throws IOException, InterruptedException {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("AttachStdout", true);
+        body.put("AttachStderr", true);
+        ArrayNode cmd = body.putArray("Cmd");
+        command.forEach(cmd::add);
+        String execId = requestJson("POST", API + "/containers/" + containerId + "/exec",
+                objectMapper.writeValueAsBytes(body)).get("Id").asText();
+
+        // The Engine has no way to kill a single exec'd process, so a timeout
+        // kills the whole container and the caller must not reuse it.
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> deadline = scheduleKill(containerId, timeoutMs, timedOut);
+        try {
+            try (UnixSocketHttpClient.Response response = client.execute("POST", API + "/exec/" + execId + "/start",
+                    "{\"Detach\":false,\"Tty\":false}".getBytes(StandardCharsets.UTF_8))) {
+                checkStatus(response, "POST exec start");
+                demultiplex(response.getBody(), stdout, stderr);
+            }
+        } finally {
+            deadline.cancel(false);
+        }
+
+        if (timedOut.get()) {
+            return new ContainerResult(-1, true);
+        }
+        JsonNode inspect = requestJson("GET", API + "/exec/" + execId + "/json", null);
+        return new ContainerResult(inspect.path("ExitCode").asInt(-1), false);
+    }
+
+    private ScheduledFuture<?> scheduleKill(String containerId, long timeoutMs, AtomicBoolean timedOut) {
+        return timeouts.schedule(() -> {
+            timedOut.set(true);
+            try {
+                kill(containerId);
+            } catch (IOException e) {
+                System.err.println("Failed to kill container " + containerId + ": " + e.getMessage());
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Splits Docker's multiplexed stream: every frame is an 8 byte header
+     * (stream type, three padding bytes, big-endian payload length) followed
+     * by the payload.
+     */
+    static void demultiplex(InputStream in, OutputSink stdout, OutputSink stderr) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] header = new byte[8];
+        byte[] buffer = new byte[8192];
+        while (true) {
+            try {
+                data.readFully(header);
+            } catch (EOFException e) {
+                return;
+            }
+            OutputSink sink = header[0] == 2 ? stderr : stdout;
+            long remaining = ((header[4] & 0xffL) << 24) | ((header[5] & 0xff) << 16)
+                    | ((header[6] & 0xff) << 8) | (header[7] & 0xff);
+            while (remaining > 0) {
+                int n = data.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (n == -1) {
+                    return;
+                }
+                sink.write(buffer, 0, n);
+                remaining -= n;
+            }
+        }
+    }
+
+    private JsonNode requestJson(String method, String path, byte[] body) throws IOException {
+        try (UnixSocketHttpClient.Response response = client.execute(method, path, body)) {
+            checkStatus(response, method + " " + path);
+            return objectMapper.readTree(response.readBody());
+        }
+    }
+
+    private void request(String method, String path, byte[] body, int... allowedErrors) throws IOException {
+        try (UnixSocketHttpClient.Response response = client.execute(method, path, body)) {
+            for (int allowed : allowedErrors) {
+                if (response.getStatus() == allowed) {
+                    return;
+                }
+            }
+            checkStatus(response, method + " " + path);
+        }
+    }
+
+    private void checkStatus(UnixSocketHttpClient.Response response, String operation) throws IOException {
+        if (response.getStatus() >= 300) {
+            String message = new String(response.readBody(), StandardCharsets.UTF_8);
+            try {
+                message = objectMapper.readTree(message).path("message").asText(message);
+            } catch (IOException e) {
+                // Not a JSON error body; keep the raw text.
+            }
+            throw new IOException("Docker API " + operation + " failed with " + response.getStatus() + ": "
+                    + message);
+        }
+    }
+
+    public void shutdown() {
+        timeouts.shutdownNow();
+    }
+}
@@ -0,0 +1,12 @@
+package com.util.docker;
+
+/**
+ * Receives raw bytes written by a container to one of its output streams.
+ */
+@FunctionalInterface
+public interface OutputSink {
+    OutputSink DISCARD = (data, offset, length) -> {
+    };
+
+    void write(byte[] data, int offset, int length);
+}
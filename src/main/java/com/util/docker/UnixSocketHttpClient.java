@@ -0,0 +1,230 @@
+package com.util.docker;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Just enough HTTP/1.1 to talk to the Docker Engine API over its Unix socket.
+ * Every request uses its own connection, which the Engine handles cheaply and
+ * which keeps streaming responses (logs, exec output) independent of each
+ * other.
+ */
+public class UnixSocketHttpClient {
+    private final Path socketPath;
+
+    public UnixSocketHttpClient(Path socketPath) {
+        this.socketPath = socketPath;
+    }
+
+    public Path getSocketPath() {
+        return socketPath;
+    }
+
+    public Response execute(String method, String path, byte[] body) throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+
+            StringBuilder head = new StringBuilder()
+                    .append(method).append(' ').append(path).append(" HTTP/1.1\r\n")
+                    .append("Host: docker\r\n")
+                    .append("Connection: close\r\n");
+            if (body != null) {
+                head.append("Content-Type: application/json\r\n")
+                        .append("Content-Length: ").append(body.length).append("\r\n");
+            }
+            head.append("\r\n");
+
+            OutputStream out = Channels.newOutputStream(channel);
+            out.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+            if (body != null) {
+                out.write(body);
+            }
+            out.flush();
+
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel), 8192);
+            String statusLine = readLine(in);
+            String[] statusParts = statusLine.split(" ", 3);
+            if (statusParts.length < 2 || !statusParts[0].startsWith("HTTP/")) {
+                throw new IOException("Malformed HTTP status line: " + statusLine);
+            }
+            int status = Integer.parseInt(statusParts[1]);
+
+            Map<String, String> headers = new HashMap<>();
+            String line;
+            while (!(line = readLine(in)).isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                            line.substring(colon + 1).trim());
+                }
+            }
+
+            InputStream bodyStream;
+            if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+                bodyStream = new ChunkedInputStream(in);
+            } else if (headers.containsKey("content-length")) {
+                bodyStream = new LimitedInputStream(in, Long.parseLong(headers.get("content-length")));
+            } else {
+                bodyStream = in;
+            }
+            return new Response(status, headers, bodyStream, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            line.append((char) b);
+        }
+        if (line.length() == 0) {
+            throw new IOException("Unexpected end of stream");
+        }
+        return line.toString();
+    }
+
+    public static class Response implements Closeable {
+        private final int status;
+        private final Map<String, String> headers;
+        private final InputStream body;
+        private final SocketChannel channel;
+
+        Response(int status, Map<String, String> headers, InputStream body, SocketChannel channel) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+            this.channel = channel;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getHeader(String name) {
+            return headers.get(name.toLowerCase(Locale.ROOT));
+        }
+
+        public InputStream getBody() {
+            return body;
+        }
+
+        public byte[] readBody() throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            body.transferTo(buffer);
+            return buffer.toByteArray();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+    }
+
+    private static class ChunkedInputStream extends FilterInputStream {
+        private long chunkRemaining;
+        private boolean finished;
+
+        ChunkedInputStream(InputStream in) {
+            super(in);
+        }
+
+        private boolean nextChunk() throws IOException {
+            if (finished) {
+                return false;
+            }
+            if (chunkRemaining == 0) {
+                String sizeLine = readLine(in);
+                if (sizeLine.isEmpty()) {
+                    // CRLF terminating the previous chunk.
+                    sizeLine = readLine(in);
+                }
+                int extension = sizeLine.indexOf(';');
+                chunkRemaining = Long.parseLong(
+                        (extension >= 0 ? sizeLine.substring(0, extension) : sizeLine).trim(), 16);
+                if (chunkRemaining == 0) {
+                    finished = true;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int n = read(single, 0, 1);
+            return n == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (!nextChunk()) {
+                return -1;
+            }
+            int n = in.read(buffer, offset, (int) Math.min(length, chunkRemaining));
+            if (n == -1) {
+                throw new IOException("Unexpected end of chunked stream");
+            }
+            chunkRemaining -= n;
+            return n;
+        }
+    }
+}
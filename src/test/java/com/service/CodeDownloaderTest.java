@@ -0,0 +1,88 @@
+package com.service;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.ArgumentMatchers.any;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.util.BundleExtractor;
+
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+@ExtendWith(MockitoExtension.class)
+public class CodeDownloaderTest {
+
+    @Mock
+    private S3AsyncClient s3AsyncClient;
+
+    @TempDir
+    private Path workspace;
+
+    private CodeDownloader codeDownloader;
+
+    @BeforeEach
+    public void setup() {
+        codeDownloader = new CodeDownloader(s3AsyncClient, "bucket-name", 1, new BundleExtractor(100, 1 << 20));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDownload_limitsConcurrentRequests() throws Exception {
+        // Arrange
+        CompletableFuture<GetObjectResponse> first = new CompletableFuture<>();
+        when(s3AsyncClient.getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class)))
+                .thenReturn(first)
+                .thenReturn(CompletableFuture.completedFuture(GetObjectResponse.builder().build()));
+
+        // Act
+        CompletableFuture<Path> a = codeDownloader.download("submissions/A.java", workspace);
+        CompletableFuture<Path> b = codeDownloader.download("submissions/B.java", workspace);
+
+        // Assert
+        verify(s3AsyncClient, times(1)).getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class));
+        assertEquals(1, codeDownloader.getWaiting());
+        assertFalse(b.isDone());
+
+        first.complete(GetObjectResponse.builder().build());
+
+        ArgumentCaptor<GetObjectRequest> requests = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(s3AsyncClient, times(2)).getObject(requests.capture(), any(AsyncResponseTransformer.class));
+        assertEquals("submissions/B.java", requests.getAllValues().get(1).key());
+        assertEquals("bucket-name", requests.getAllValues().get(1).bucket());
+        assertEquals(workspace.resolve("A.java"), a.get());
+        assertEquals(workspace.resolve("B.java"), b.get());
+        assertEquals(0, codeDownloader.getRunning());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDownload_failsWhenObjectIsMissing() {
+        when(s3AsyncClient.getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class)))
+                .thenReturn(CompletableFuture.failedFuture(NoSuchKeyException.builder().message("missing").build()));
+
+        CompletableFuture<Path> download = codeDownloader.download("submissions/A.java", workspace);
+
+        ExecutionException error = assertThrows(ExecutionException.class, download::get);
+        assertTrue(error.getCause() instanceof NoSuchKeyException);
+        assertEquals(0, codeDownloader.getRunning());
+    }
+}
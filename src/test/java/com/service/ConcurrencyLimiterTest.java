@@ -0,0 +1,69 @@
+package com.service;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ConcurrencyLimiterTest {
+
+    private JobExecutor jobExecutor;
+    private ConcurrencyLimiter limiter;
+
+    @BeforeEach
+    public void setup() {
+        jobExecutor = new JobExecutor(4, 4, "platform", new SourceQueues("", "queue-url"));
+        limiter = new ConcurrencyLimiter(jobExecutor, new SimpleMeterRegistry(), true, 2, 6, 0, 0.9, 0.1, 0.2, 2.0,
+                "/nonexistent");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        limiter.shutdown();
+        jobExecutor.shutdown();
+    }
+
+    @Test
+    public void testNextConcurrency_increasesByOneOnlyWhenSaturated() {
+        assertEquals(4, limiter.nextConcurrency(4, 0.5, 0.5, false));
+        assertEquals(5, limiter.nextConcurrency(4, 0.5, 0.5, true));
+        assertEquals(6, limiter.nextConcurrency(6, 0.5, 0.5, true));
+    }
+
+    @Test
+    public void testNextConcurrency_decreasesUnderHostPressure() {
+        assertEquals(4, limiter.nextConcurrency(6, 0.95, 0.5, true));
+        assertEquals(3, limiter.nextConcurrency(4, 0.5, 0.05, true));
+        assertEquals(2, limiter.nextConcurrency(2, 0.95, 0.05, true));
+    }
+
+    @Test
+    public void testNextConcurrency_decreasesWhenJobsTimeOut() {
+        for (int i = 0; i < 10; i++) {
+            limiter.record(TimeUnit.MILLISECONDS.toNanos(100), i < 3);
+        }
+
+        assertEquals(3, limiter.nextConcurrency(4, -1, -1, true));
+    }
+
+    @Test
+    public void testNextConcurrency_decreasesWhenLatencyRisesAboveBaseline() {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            limiter.record(TimeUnit.MILLISECONDS.toNanos(100), false);
+        }
+        assertEquals(5, limiter.nextConcurrency(4, -1, -1, true));
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            limiter.record(TimeUnit.MILLISECONDS.toNanos(300), false);
+        }
+
+        // Assert
+        assertEquals(3, limiter.nextConcurrency(5, -1, -1, true));
+    }
+}
@@ -0,0 +1,177 @@
+package com.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class JobExecutorTest {
+
+    private JobExecutor jobExecutor;
+
+    @BeforeEach
+    public void setup() {
+        jobExecutor = new JobExecutor(3, 2, "platform", new SourceQueues("", "queue-url"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jobExecutor.shutdown();
+    }
+
+    @Test
+    public void testAcquireSlots_limitedByConcurrencyPlusQueueCapacity() throws InterruptedException {
+        assertEquals(5, jobExecutor.acquireSlots(SourceQueues.DEFAULT_QUEUE, 10));
+        assertEquals(0, jobExecutor.getAvailableSlots());
+
+        jobExecutor.releaseSlots(SourceQueues.DEFAULT_QUEUE, 5);
+        assertEquals(5, jobExecutor.getAvailableSlots());
+    }
+
+    @Test
+    public void testSubmit_runsAtMostConcurrencyJobsAtOnce() throws InterruptedException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(5);
+
+        int slots = jobExecutor.acquireSlots(SourceQueues.DEFAULT_QUEUE, 5);
+        for (int i = 0; i < slots; i++) {
+            jobExecutor.submit(SourceQueues.DEFAULT_QUEUE, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        Thread.sleep(100);
+        assertEquals(3, jobExecutor.getInFlight());
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(3, maxRunning.get());
+    }
+
+    @Test
+    public void testSubmit_releasesSlotWhenJobFails() throws InterruptedException {
+        jobExecutor.acquireSlots(SourceQueues.DEFAULT_QUEUE, 1);
+        jobExecutor.submit(SourceQueues.DEFAULT_QUEUE, () -> {
+            throw new IllegalStateException("boom");
+        });
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (jobExecutor.getAvailableSlots() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(5, jobExecutor.getAvailableSlots());
+    }
+
+    @Test
+    public void testSetConcurrency_startsBufferedJobsAndThrottlesReceiving() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(5);
+        int slots = jobExecutor.acquireSlots(SourceQueues.DEFAULT_QUEUE, 5);
+        for (int i = 0; i < slots; i++) {
+            jobExecutor.submit(SourceQueues.DEFAULT_QUEUE, () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(jobExecutor.takeSaturated());
+
+        jobExecutor.setConcurrency(5);
+        Thread.sleep(100);
+        assertEquals(5, jobExecutor.getInFlight());
+        assertEquals(2, jobExecutor.getAvailableSlots());
+
+        jobExecutor.setConcurrency(1);
+        assertEquals(0, jobExecutor.getAvailableSlots());
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (jobExecutor.getAvailableSlots() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, jobExecutor.getAvailableSlots());
+        assertFalse(jobExecutor.takeSaturated());
+    }
+
+    @Test
+    public void testAcquireSlots_keepsReservedSlotsForTheirQueue() throws InterruptedException {
+        JobExecutor executor = new JobExecutor(2, 1, "platform",
+                new SourceQueues("interactive:1:1:url-1,bulk:1:0:url-2", ""));
+        try {
+            assertEquals(2, executor.acquireSlots("bulk", 10));
+            assertEquals(1, executor.acquireSlots("interactive", 10));
+            assertEquals(0, executor.getAvailableSlots());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubmit_startsBufferedJobsInProportionToWeight() throws InterruptedException {
+        // Arrange
+        JobExecutor executor = new JobExecutor(1, 10, "platform",
+                new SourceQueues("interactive:3:0:url-1,bulk:1:0:url-2", ""));
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(11);
+        try {
+            executor.acquireSlots("bulk", 5);
+            executor.acquireSlots("interactive", 6);
+
+            // Act
+            executor.submit("bulk", () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+            for (int i = 1; i <= 4; i++) {
+                String bulk = "b" + i;
+                executor.submit("bulk", () -> {
+                    order.add(bulk);
+                    done.countDown();
+                });
+            }
+            for (int i = 1; i <= 6; i++) {
+                String interactive = "i" + i;
+                executor.submit("interactive", () -> {
+                    order.add(interactive);
+                    done.countDown();
+                });
+            }
+            assertEquals(6, executor.getBuffered("interactive"));
+            release.countDown();
+
+            // Assert
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            // The blocking job counts as bulk's first start.
+            assertEquals(List.of("i1", "i2", "i3", "i4", "b1", "i5", "i6", "b2", "b3", "b4"), order);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
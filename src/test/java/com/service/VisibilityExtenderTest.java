@@ -0,0 +1,80 @@
+package com.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import org.mockito.Mock;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+
+@ExtendWith(MockitoExtension.class)
+public class VisibilityExtenderTest {
+
+    @Mock
+    private SqsClient sqsClient;
+
+    private VisibilityExtender visibilityExtender;
+
+    private static final String QUEUE_URL = "https://sqs.example.com/queue";
+
+    @BeforeEach
+    public void setup() {
+        visibilityExtender = new VisibilityExtender(sqsClient, 1);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        visibilityExtender.shutdown();
+    }
+
+    @Test
+    public void testExtendExpiring_skipsFreshLeases() {
+        visibilityExtender.track(QUEUE_URL, "receipt-1");
+
+        visibilityExtender.extendExpiring();
+
+        verify(sqsClient, never()).changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class));
+    }
+
+    @Test
+    public void testExtendExpiring_extendsLeasesCloseToTimeout() throws InterruptedException {
+        when(sqsClient.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+                .thenReturn(ChangeMessageVisibilityBatchResponse.builder().build());
+        visibilityExtender.track(QUEUE_URL, "receipt-1");
+        visibilityExtender.track(QUEUE_URL, "receipt-2");
+
+        Thread.sleep(600);
+        visibilityExtender.extendExpiring();
+
+        ArgumentCaptor<ChangeMessageVisibilityBatchRequest> captor = ArgumentCaptor
+                .forClass(ChangeMessageVisibilityBatchRequest.class);
+        verify(sqsClient, atLeastOnce()).changeMessageVisibilityBatch(captor.capture());
+        ChangeMessageVisibilityBatchRequest request = captor.getValue();
+        assertEquals(QUEUE_URL, request.queueUrl());
+        assertEquals(2, request.entries().size());
+        assertEquals(1, request.entries().get(0).visibilityTimeout());
+    }
+
+    @Test
+    public void testUntrack_stopsExtending() throws InterruptedException {
+        visibilityExtender.track(QUEUE_URL, "receipt-1");
+        visibilityExtender.untrack("receipt-1");
+
+        Thread.sleep(600);
+        visibilityExtender.extendExpiring();
+
+        assertEquals(0, visibilityExtender.getTrackedCount());
+        verify(sqsClient, never()).changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class));
+    }
+}
@@ -1,19 +1,33 @@
 package com.service;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
-import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -22,13 +36,23 @@ import org.springframework.test.util.ReflectionTestUtils;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.model.JobMessage;
+import com.model.TestCase;
+import com.util.CaseResult;
+import com.util.ConfiguredLanguageRuntime;
+import com.util.DedupeStore;
 import com.util.DockerRunner;
+import com.util.JobResult;
+import com.util.JobResultWriter;
+import com.util.LanguageProperties;
+import com.util.LanguageRuntime;
+import com.util.LanguageRuntimes;
+import com.util.ResultCache;
 import com.util.ResultPublisher;
 
-import software.amazon.awssdk.services.s3.S3Client;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
 import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
 import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
 import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
 
@@ -39,7 +63,7 @@ public class WorkerServiceTest {
     private SqsClient sqsClient;
 
     @Mock
-    private S3Client s3Client;
+    private CodeDownloader codeDownloader;
 
     @Mock
     private DockerRunner dockerRunner;
@@ -50,18 +74,38 @@ public class WorkerServiceTest {
     @Mock
     private ObjectMapper objectMapper;
 
+    @Mock
+    private VisibilityExtender visibilityExtender;
+
+    @Mock
+    private ConcurrencyLimiter concurrencyLimiter;
+
+    @TempDir
+    private Path workspaceRoot;
+
     private WorkerService workerService;
+    private SimpleMeterRegistry meterRegistry;
+    private SourceQueues sourceQueues;
+    private DedupeStore dedupeStore;
 
     private static final String REQUEST_QUEUE_URL = "request-queue-url";
     private static final String RESPONSE_QUEUE_URL = "response-queue-url";
-    private static final String BUCKET_NAME = "bucket-name";
 
     @BeforeEach
-    public void setup() {
-        workerService = new WorkerService(sqsClient, s3Client, dockerRunner, resultPublisher, objectMapper);
-        ReflectionTestUtils.setField(workerService, "REQUEST_QUEUE_URL", REQUEST_QUEUE_URL);
+    public void setup() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        sourceQueues = new SourceQueues("", REQUEST_QUEUE_URL);
+        JobExecutor jobExecutor = new JobExecutor(2, 2, "platform", sourceQueues);
+        dedupeStore = new DedupeStore(true, 3600, 100, 65536, "");
+        workerService = new WorkerService(sqsClient, codeDownloader, dockerRunner, resultPublisher, objectMapper,
+                jobExecutor, visibilityExtender, new ResultCache(false, 0, 0), meterRegistry,
+                new WorkspaceManager(jobExecutor, workspaceRoot.toString(), 2), sourceQueues,
+                concurrencyLimiter, new LanguageRuntimes(List.of(language("java"), language("python"))), dedupeStore);
         ReflectionTestUtils.setField(workerService, "RESPONSE_QUEUE_URL", RESPONSE_QUEUE_URL);
-        ReflectionTestUtils.setField(workerService, "BUCKET_NAME", BUCKET_NAME);
+        lenient().when(resultPublisher.publishResult(anyString(), any())).thenAnswer(
+                invocation -> CompletableFuture.completedFuture(JobResultWriter.write(invocation.getArgument(1))));
+        lenient().when(resultPublisher.forward(anyString(), anyString())).thenAnswer(
+                invocation -> CompletableFuture.completedFuture(invocation.getArgument(1)));
     }
 
     @Test
@@ -85,16 +129,15 @@ public class WorkerServiceTest {
         when(objectMapper.readValue(anyString(), eq(JobMessage.class))).thenReturn(mockJob);
 
         Path mockPath = Files.createTempFile("test", ".java");
-        doAnswer(invocation -> {
-            return null;
-        }).when(s3Client).getObject(any(software.amazon.awssdk.services.s3.model.GetObjectRequest.class), any(Path.class));
+        when(codeDownloader.download(eq("path/file.java"), any(Path.class)))
+                .thenReturn(CompletableFuture.completedFuture(mockPath));
 
         DockerRunner.ExecutionResponse execResponse = new DockerRunner.ExecutionResponse("RESULT:{\"success\":true}", 100L);
         when(dockerRunner.runContainer(eq("java"), anyString())).thenReturn(execResponse);
 
         Thread workerThread = new Thread(() -> {
             try {
-                workerService.start();
+                workerService.poll(sourceQueues.getQueues().get(0));
             } catch (Exception e) {
                 // Expected when we mock empty responses to exit loop
             }
@@ -104,13 +147,194 @@ public class WorkerServiceTest {
         Thread.sleep(100);
         workerThread.interrupt();
 
-        verify(resultPublisher).publishResult(eq(RESPONSE_QUEUE_URL), eq("job-123"), 
-                contains("\"success\":true"));
-        verify(sqsClient).deleteMessage(any(DeleteMessageRequest.class));
+        verify(resultPublisher, timeout(1000)).publishResult(eq(RESPONSE_QUEUE_URL),
+                resultContaining("\"status\":\"success\"", "\"result\":{\"success\":true}"));
+        verify(resultPublisher, timeout(1000)).acknowledge(REQUEST_QUEUE_URL, "receipt-handle");
+        verify(visibilityExtender, timeout(1000)).untrack("receipt-handle");
+        assertEquals(1.0, meterRegistry.counter("worker.job.outcome", "queue", "default", "language", "java",
+                "outcome", "success")
+                .count());
+        assertEquals(1, meterRegistry.timer("worker.job.stage", "stage", "execute", "queue", "default",
+                "language", "java").count());
+
+        Files.deleteIfExists(mockPath);
+    }
+
+    @Test
+    public void testStart_leavesMessageWhenResultCannotBePublished() throws Exception {
+        // Arrange
+        Message mockMessage = mock(Message.class);
+        when(mockMessage.body())
+                .thenReturn("{\"jobId\":\"job-123\", \"language\":\"java\", \"s3Key\":\"path/file.java\"}");
+        when(mockMessage.receiptHandle()).thenReturn("receipt-handle");
+
+        ReceiveMessageResponse mockResponse = mock(ReceiveMessageResponse.class);
+        when(mockResponse.messages()).thenReturn(List.of(mockMessage));
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(mockResponse)
+                .thenReturn(mock(ReceiveMessageResponse.class));
+
+        JobMessage mockJob = new JobMessage();
+        mockJob.setJobId("job-123");
+        mockJob.setLanguage("java");
+        mockJob.setS3Key("path/file.java");
+        when(objectMapper.readValue(anyString(), eq(JobMessage.class))).thenReturn(mockJob);
+
+        Path mockPath = Files.createTempFile("test", ".java");
+        when(codeDownloader.download(eq("path/file.java"), any(Path.class)))
+                .thenReturn(CompletableFuture.completedFuture(mockPath));
+        when(dockerRunner.runContainer(eq("java"), anyString()))
+                .thenReturn(new DockerRunner.ExecutionResponse("RESULT:{\"success\":true}", 100L));
+        // An offloaded result whose upload failed.
+        doReturn(CompletableFuture.failedFuture(new RuntimeException("S3 unavailable")))
+                .when(resultPublisher).publishResult(anyString(), any());
+
+        // Act
+        Thread workerThread = new Thread(() -> workerService.poll(sourceQueues.getQueues().get(0)));
+        workerThread.start();
+        Thread.sleep(100);
+        workerThread.interrupt();
+
+        // Assert
+        verify(resultPublisher, timeout(1000)).publishResult(eq(RESPONSE_QUEUE_URL), any());
+        verify(visibilityExtender, timeout(1000)).untrack("receipt-handle");
+        verify(resultPublisher, never()).acknowledge(anyString(), anyString());
+        assertEquals(0, dedupeStore.getSize());
 
         Files.deleteIfExists(mockPath);
     }
 
+    @Test
+    public void testStart_runsBundleFromItsEntryPoint() throws Exception {
+        Message mockMessage = mock(Message.class);
+        when(mockMessage.body()).thenReturn("{\"jobId\":\"job-123\"}");
+        when(mockMessage.receiptHandle()).thenReturn("receipt-handle");
+
+        ReceiveMessageResponse mockResponse = mock(ReceiveMessageResponse.class);
+        when(mockResponse.messages()).thenReturn(List.of(mockMessage));
+
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(mockResponse)
+                .thenReturn(mock(ReceiveMessageResponse.class));
+
+        JobMessage mockJob = new JobMessage();
+        mockJob.setJobId("job-123");
+        mockJob.setLanguage("java");
+        mockJob.setBundleKey("path/project.zip");
+        mockJob.setEntryPoint("app.Main");
+        when(objectMapper.readValue(anyString(), eq(JobMessage.class))).thenReturn(mockJob);
+
+        when(codeDownloader.downloadBundle(eq("path/project.zip"), any(Path.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(1)));
+
+        DockerRunner.ExecutionResponse execResponse = new DockerRunner.ExecutionResponse("RESULT:{\"success\":true}", 100L);
+        when(dockerRunner.runBundle(eq("java"), any(Path.class), eq("app.Main"))).thenReturn(execResponse);
+
+        Thread workerThread = new Thread(() -> {
+            try {
+                workerService.poll(sourceQueues.getQueues().get(0));
+            } catch (Exception e) {
+                // Expected when we mock empty responses to exit loop
+            }
+        });
+
+        workerThread.start();
+        Thread.sleep(100);
+        workerThread.interrupt();
+
+        verify(resultPublisher, timeout(1000)).publishResult(eq(RESPONSE_QUEUE_URL),
+                resultContaining("\"status\":\"success\"", "\"result\":{\"success\":true}"));
+        verify(resultPublisher, timeout(1000)).acknowledge(REQUEST_QUEUE_URL, "receipt-handle");
+    }
+
+    @Test
+    public void testStart_reportsVerdictPerTestCase() throws Exception {
+        Message mockMessage = mock(Message.class);
+        when(mockMessage.body()).thenReturn("{\"jobId\":\"job-123\"}");
+        when(mockMessage.receiptHandle()).thenReturn("receipt-handle");
+
+        ReceiveMessageResponse mockResponse = mock(ReceiveMessageResponse.class);
+        when(mockResponse.messages()).thenReturn(List.of(mockMessage));
+
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(mockResponse)
+                .thenReturn(mock(ReceiveMessageResponse.class));
+
+        List<TestCase> testCases = List.of(new TestCase("first", "1 2\n", "3"));
+        JobMessage mockJob = new JobMessage();
+        mockJob.setJobId("job-123");
+        mockJob.setLanguage("python");
+        mockJob.setS3Key("path/main.py");
+        mockJob.setTestCases(testCases);
+        when(objectMapper.readValue(anyString(), eq(JobMessage.class))).thenReturn(mockJob);
+
+        Path mockPath = Files.createTempFile("test", ".py");
+        when(codeDownloader.download(eq("path/main.py"), any(Path.class)))
+                .thenReturn(CompletableFuture.completedFuture(mockPath));
+
+        DockerRunner.ExecutionResponse execResponse = new DockerRunner.ExecutionResponse("", null, false,
+                DockerRunner.ExecutionResponse.Status.COMPLETED, null, 40L,
+                List.of(new CaseResult("first", CaseResult.Verdict.ACCEPTED, 0, 20L, "3\n", "")));
+        when(dockerRunner.runTestCases(eq("python"), eq(mockPath), eq(null), eq(testCases), eq(0L)))
+                .thenReturn(execResponse);
+
+        Thread workerThread = new Thread(() -> {
+            try {
+                workerService.poll(sourceQueues.getQueues().get(0));
+            } catch (Exception e) {
+                // Expected when we mock empty responses to exit loop
+            }
+        });
+
+        workerThread.start();
+        Thread.sleep(100);
+        workerThread.interrupt();
+
+        verify(resultPublisher, timeout(1000)).publishResult(eq(RESPONSE_QUEUE_URL),
+                resultContaining("\"verdict\":\"ACCEPTED\",\"cases\":[{\"name\":\"first\",\"verdict\":\"ACCEPTED\","
+                        + "\"exitCode\":0,\"timeMs\":20,\"output\":\"3\\n\",\"stderr\":\"\"}],\"accepted\":1,\"total\":1"));
+
+        Files.deleteIfExists(mockPath);
+    }
+
+    @Test
+    public void testStart_receivesUpToFreeCapacityAndTracksVisibility() throws Exception {
+        Message mockMessage = mock(Message.class);
+        when(mockMessage.body())
+                .thenReturn("{\"jobId\":\"job-123\", \"language\":\"java\", \"s3Key\":\"path/file.java\"}");
+        when(mockMessage.receiptHandle()).thenReturn("receipt-handle");
+
+        ReceiveMessageResponse mockResponse = mock(ReceiveMessageResponse.class);
+        when(mockResponse.messages()).thenReturn(List.of(mockMessage));
+
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(mockResponse)
+                .thenReturn(mock(ReceiveMessageResponse.class));
+        when(visibilityExtender.getVisibilityTimeoutSeconds()).thenReturn(60);
+
+        JobMessage mockJob = new JobMessage("job-123", "path/file.java", "java");
+        when(objectMapper.readValue(anyString(), eq(JobMessage.class))).thenReturn(mockJob);
+        when(codeDownloader.download(eq("path/file.java"), any(Path.class)))
+                .thenReturn(CompletableFuture.completedFuture(Files.createTempFile("test", ".java")));
+
+        DockerRunner.ExecutionResponse execResponse = new DockerRunner.ExecutionResponse("RESULT:{\"success\":true}", 100L);
+        when(dockerRunner.runContainer(eq("java"), anyString())).thenReturn(execResponse);
+
+        Thread workerThread = new Thread(() -> workerService.poll(sourceQueues.getQueues().get(0)));
+        workerThread.start();
+        Thread.sleep(100);
+        workerThread.interrupt();
+
+        ArgumentCaptor<ReceiveMessageRequest> requestCaptor = ArgumentCaptor.forClass(ReceiveMessageRequest.class);
+        verify(sqsClient, atLeastOnce()).receiveMessage(requestCaptor.capture());
+        ReceiveMessageRequest firstRequest = requestCaptor.getAllValues().get(0);
+        assertEquals(4, firstRequest.maxNumberOfMessages());
+        assertEquals(60, firstRequest.visibilityTimeout());
+
+        verify(visibilityExtender).track(REQUEST_QUEUE_URL, "receipt-handle");
+        verify(visibilityExtender, timeout(1000)).untrack("receipt-handle");
+    }
+
     @Test
     public void testStart_withErrorOutput() throws Exception {
         Message mockMessage = mock(Message.class);
@@ -132,6 +356,8 @@ public class WorkerServiceTest {
         when(objectMapper.readValue(anyString(), eq(JobMessage.class))).thenReturn(mockJob);
 
         Path mockPath = Files.createTempFile("test", ".java");
+        when(codeDownloader.download(eq("path/file.java"), any(Path.class)))
+                .thenReturn(CompletableFuture.completedFuture(mockPath));
 
         DockerRunner.ExecutionResponse execResponse = new DockerRunner.ExecutionResponse(
                 "Error \"message\"\nStack trace", 100L);
@@ -139,7 +365,55 @@ public class WorkerServiceTest {
 
         Thread workerThread = new Thread(() -> {
             try {
-                workerService.start();
+                workerService.poll(sourceQueues.getQueues().get(0));
+            } catch (Exception e) {
+                // Expected
+            }
+        });
+
+        workerThread.start();
+        Thread.sleep(100);
+        workerThread.interrupt();
+
+        verify(resultPublisher, timeout(1000)).publishResult(eq(RESPONSE_QUEUE_URL),
+                resultContaining("\"status\":\"runtime_error\"", "\"message\":\"Error \\\"message\\\"\""));
+
+        Files.deleteIfExists(mockPath);
+    }
+
+    @Test
+    public void testStart_reportsNonzeroExitWithStderrAndPhases() throws Exception {
+        Message mockMessage = mock(Message.class);
+        when(mockMessage.body())
+                .thenReturn("{\"jobId\":\"job-123\", \"language\":\"java\", \"s3Key\":\"path/file.java\"}");
+        when(mockMessage.receiptHandle()).thenReturn("receipt-handle");
+
+        ReceiveMessageResponse mockResponse = mock(ReceiveMessageResponse.class);
+        when(mockResponse.messages()).thenReturn(List.of(mockMessage));
+
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(mockResponse)
+                .thenReturn(mock(ReceiveMessageResponse.class));
+
+        JobMessage mockJob = new JobMessage();
+        mockJob.setJobId("job-123");
+        mockJob.setLanguage("java");
+        mockJob.setS3Key("path/file.java");
+        when(objectMapper.readValue(anyString(), eq(JobMessage.class))).thenReturn(mockJob);
+
+        Path mockPath = Files.createTempFile("test", ".java");
+        when(codeDownloader.download(eq("path/file.java"), any(Path.class)))
+                .thenReturn(CompletableFuture.completedFuture(mockPath));
+
+        // A RESULT line was printed before the crash; the exit code still wins.
+        DockerRunner.ExecutionResponse execResponse = new DockerRunner.ExecutionResponse(
+                "RESULT:42\n", "Exception in thread \"main\"\n\tat Main.main", "42", false,
+                DockerRunner.ExecutionResponse.Status.COMPLETED, 134, null, 300L, 20L, 320L, null);
+        when(dockerRunner.runContainer(eq("java"), anyString())).thenReturn(execResponse);
+
+        Thread workerThread = new Thread(() -> {
+            try {
+                workerService.poll(sourceQueues.getQueues().get(0));
             } catch (Exception e) {
                 // Expected
             }
@@ -149,10 +423,10 @@ public class WorkerServiceTest {
         Thread.sleep(100);
         workerThread.interrupt();
 
-        verify(resultPublisher).publishResult(eq(RESPONSE_QUEUE_URL), eq("job-123"), 
-                contains("\"status\":\"error\""));
-        verify(resultPublisher).publishResult(eq(RESPONSE_QUEUE_URL), eq("job-123"), 
-                contains("\"message\":\"Error 'message'\""));
+        verify(resultPublisher, timeout(1000)).publishResult(eq(RESPONSE_QUEUE_URL),
+                resultContaining("\"status\":\"runtime_error\"", "\"compileTimeMs\":300", "\"runTimeMs\":20",
+                        "\"exitCode\":134", "\"signal\":6", "\"message\":\"Exception in thread \\\"main\\\"\"",
+                        "\"stdout\":\"RESULT:42\\n\""));
 
         Files.deleteIfExists(mockPath);
     }
@@ -162,6 +436,7 @@ public class WorkerServiceTest {
         Message mockMessage = mock(Message.class);
         when(mockMessage.body())
                 .thenReturn("{\"jobId\":\"job-123\", \"language\":\"java\", \"s3Key\":\"path/file.java\"}");
+        when(mockMessage.receiptHandle()).thenReturn("receipt-handle");
 
         ReceiveMessageResponse mockResponse = mock(ReceiveMessageResponse.class);
         when(mockResponse.messages()).thenReturn(List.of(mockMessage));
@@ -176,11 +451,13 @@ public class WorkerServiceTest {
         mockJob.setS3Key("path/file.java");
         when(objectMapper.readValue(anyString(), eq(JobMessage.class))).thenReturn(mockJob);
 
+        when(codeDownloader.download(eq("path/file.java"), any(Path.class)))
+                .thenReturn(CompletableFuture.completedFuture(Files.createTempFile("test", ".java")));
         when(dockerRunner.runContainer(eq("java"), anyString())).thenThrow(new RuntimeException("Docker error"));
 
         Thread workerThread = new Thread(() -> {
             try {
-                workerService.start();
+                workerService.poll(sourceQueues.getQueues().get(0));
             } catch (Exception e) {
                 // Expected
             }
@@ -190,14 +467,17 @@ public class WorkerServiceTest {
         Thread.sleep(100);
         workerThread.interrupt();
 
-        verify(resultPublisher).publishResult(eq(RESPONSE_QUEUE_URL), eq("job-123"),
-                contains("Container Execution Error"));
+        verify(resultPublisher, timeout(1000)).publishResult(eq(RESPONSE_QUEUE_URL),
+                resultContaining("\"jobId\":\"job-123\"", "Container Execution Error"));
+        // An error is still an answer; leaving the message would run it again and again.
+        verify(resultPublisher, timeout(1000)).acknowledge(REQUEST_QUEUE_URL, "receipt-handle");
     }
 
     @Test
     public void testStart_handlesJsonProcessingException() throws Exception {
         Message mockMessage = mock(Message.class);
         when(mockMessage.body()).thenReturn("invalid-json");
+        when(mockMessage.receiptHandle()).thenReturn("receipt-handle");
 
         ReceiveMessageResponse mockResponse = mock(ReceiveMessageResponse.class);
         when(mockResponse.messages()).thenReturn(List.of(mockMessage));
@@ -211,7 +491,7 @@ public class WorkerServiceTest {
 
         Thread workerThread = new Thread(() -> {
             try {
-                workerService.start();
+                workerService.poll(sourceQueues.getQueues().get(0));
             } catch (Exception e) {
                 // Expected
             }
@@ -221,7 +501,265 @@ public class WorkerServiceTest {
         Thread.sleep(100);
         workerThread.interrupt();
 
-        verify(resultPublisher).publishResult(eq(RESPONSE_QUEUE_URL), eq("unknown"), 
-                contains("JSON Processing Error"));
+        verify(resultPublisher, timeout(1000)).publishResult(eq(RESPONSE_QUEUE_URL),
+                resultContaining("\"status\":\"invalid_message\"", "JSON Processing Error"));
+        verify(resultPublisher, timeout(1000)).acknowledge(REQUEST_QUEUE_URL, "receipt-handle");
+    }
+
+    @Test
+    public void testStart_remembersResultOffThePublisherThread() throws Exception {
+        // Arrange
+        List<String> writers = new CopyOnWriteArrayList<>();
+        ReflectionTestUtils.setField(workerService, "dedupeStore", new DedupeStore(true, 3600, 100, 65536, "") {
+            @Override
+            public synchronized void put(String key, String result) {
+                writers.add(Thread.currentThread().getName());
+                super.put(key, result);
+            }
+        });
+        Message mockMessage = mock(Message.class);
+        when(mockMessage.body())
+                .thenReturn("{\"jobId\":\"job-123\", \"language\":\"java\", \"s3Key\":\"path/file.java\"}");
+        when(mockMessage.receiptHandle()).thenReturn("receipt-handle");
+
+        ReceiveMessageResponse mockResponse = mock(ReceiveMessageResponse.class);
+        when(mockResponse.messages()).thenReturn(List.of(mockMessage));
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(mockResponse)
+                .thenReturn(mock(ReceiveMessageResponse.class));
+
+        JobMessage mockJob = new JobMessage();
+        mockJob.setJobId("job-123");
+        mockJob.setLanguage("java");
+        mockJob.setS3Key("path/file.java");
+        when(objectMapper.readValue(anyString(), eq(JobMessage.class))).thenReturn(mockJob);
+
+        Path mockPath = Files.createTempFile("test", ".java");
+        when(codeDownloader.download(eq("path/file.java"), any(Path.class)))
+                .thenReturn(CompletableFuture.completedFuture(mockPath));
+        when(dockerRunner.runContainer(eq("java"), anyString()))
+                .thenReturn(new DockerRunner.ExecutionResponse("RESULT:{\"success\":true}", 100L));
+        CompletableFuture<String> sent = new CompletableFuture<>();
+        doReturn(sent).when(resultPublisher).publishResult(anyString(), any());
+
+        // Act
+        Thread workerThread = new Thread(() -> workerService.poll(sourceQueues.getQueues().get(0)));
+        workerThread.start();
+        verify(resultPublisher, timeout(1000)).publishResult(eq(RESPONSE_QUEUE_URL), any());
+        Thread flusher = new Thread(() -> sent.complete("{\"jobId\":\"job-123\"}"), "result-publisher");
+        flusher.start();
+        flusher.join();
+        workerThread.interrupt();
+
+        // Assert
+        verify(resultPublisher, timeout(1000)).acknowledge(REQUEST_QUEUE_URL, "receipt-handle");
+        long deadline = System.currentTimeMillis() + 1000;
+        while (writers.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of("dedupe-writer"), writers);
+
+        Files.deleteIfExists(mockPath);
+    }
+
+    @Test
+    public void testStart_resendsResultOfJobThatAlreadyRan() throws Exception {
+        // Arrange
+        String earlier = "{\"jobId\":\"job-123\",\"result\":{\"earlier\":true}}";
+        dedupeStore.put("job-123", earlier);
+        Message mockMessage = mock(Message.class);
+        when(mockMessage.body())
+                .thenReturn("{\"jobId\":\"job-123\", \"language\":\"java\", \"s3Key\":\"path/file.java\"}");
+        when(mockMessage.receiptHandle()).thenReturn("receipt-handle");
+
+        ReceiveMessageResponse mockResponse = mock(ReceiveMessageResponse.class);
+        when(mockResponse.messages()).thenReturn(List.of(mockMessage));
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(mockResponse)
+                .thenReturn(mock(ReceiveMessageResponse.class));
+
+        JobMessage mockJob = new JobMessage();
+        mockJob.setJobId("job-123");
+        mockJob.setLanguage("java");
+        mockJob.setS3Key("path/file.java");
+        when(objectMapper.readValue(anyString(), eq(JobMessage.class))).thenReturn(mockJob);
+
+        // Act
+        Thread workerThread = new Thread(() -> workerService.poll(sourceQueues.getQueues().get(0)));
+        workerThread.start();
+        Thread.sleep(100);
+        workerThread.interrupt();
+
+        // Assert
+        verify(resultPublisher, timeout(1000)).forward(RESPONSE_QUEUE_URL, earlier);
+        verify(resultPublisher, timeout(1000)).acknowledge(REQUEST_QUEUE_URL, "receipt-handle");
+        verify(codeDownloader, never()).download(anyString(), any(Path.class));
+        verify(dockerRunner, never()).runContainer(anyString(), anyString());
+    }
+
+    @Test
+    public void testStart_deadLettersMessageReceivedTooOften() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(workerService, "maxReceives", 5);
+        ReflectionTestUtils.setField(workerService, "DEAD_LETTER_QUEUE_URL", "dead-letter-queue-url");
+        String body = "{\"jobId\":\"job-123\", \"language\":\"java\", \"s3Key\":\"path/file.java\"}";
+        Message mockMessage = mock(Message.class);
+        when(mockMessage.body()).thenReturn(body);
+        when(mockMessage.receiptHandle()).thenReturn("receipt-handle");
+        when(mockMessage.attributes()).thenReturn(Map.of(MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT, "6"));
+
+        ReceiveMessageResponse mockResponse = mock(ReceiveMessageResponse.class);
+        when(mockResponse.messages()).thenReturn(List.of(mockMessage));
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(mockResponse)
+                .thenReturn(mock(ReceiveMessageResponse.class));
+
+        JobMessage mockJob = new JobMessage();
+        mockJob.setJobId("job-123");
+        mockJob.setLanguage("java");
+        mockJob.setS3Key("path/file.java");
+        when(objectMapper.readValue(anyString(), eq(JobMessage.class))).thenReturn(mockJob);
+        when(codeDownloader.download(eq("path/file.java"), any(Path.class)))
+                .thenReturn(new CompletableFuture<>());
+
+        // Act
+        Thread workerThread = new Thread(() -> workerService.poll(sourceQueues.getQueues().get(0)));
+        workerThread.start();
+        Thread.sleep(100);
+        workerThread.interrupt();
+
+        // Assert
+        verify(resultPublisher, timeout(1000)).forward("dead-letter-queue-url", body);
+        verify(resultPublisher, timeout(1000)).publishResult(eq(RESPONSE_QUEUE_URL),
+                resultContaining("after 6 attempts"));
+        verify(resultPublisher, timeout(1000)).acknowledge(REQUEST_QUEUE_URL, "receipt-handle");
+        verify(dockerRunner, never()).runContainer(anyString(), anyString());
+    }
+
+    @Test
+    public void testStop_handsBackBufferedJobsAndWaitsForRunningOnes() throws Exception {
+        // Arrange
+        CountDownLatch release = receiveThreeBlockingJobs(false);
+        ReflectionTestUtils.setField(workerService, "drainSeconds", 5L);
+        workerService.start();
+        verify(dockerRunner, timeout(1000).times(2)).runContainer(eq("java"), anyString());
+
+        // Act
+        new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        }).start();
+        workerService.stop();
+
+        // Assert
+        verify(visibilityExtender).release(REQUEST_QUEUE_URL, List.of("r3"));
+        verify(resultPublisher, times(2)).acknowledge(eq(REQUEST_QUEUE_URL), anyString());
+        verify(resultPublisher).flush();
+        assertFalse(workerService.isRunning());
+    }
+
+    @Test
+    public void testStop_removesContainersAndHandsBackJobsAfterDeadline() throws Exception {
+        // Arrange
+        CountDownLatch release = receiveThreeBlockingJobs(true);
+        when(dockerRunner.removeRunningContainers()).thenAnswer(invocation -> {
+            release.countDown();
+            return 2;
+        });
+        ReflectionTestUtils.setField(workerService, "drainSeconds", 0L);
+        workerService.start();
+        verify(dockerRunner, timeout(1000).times(2)).runContainer(eq("java"), anyString());
+
+        // Act
+        workerService.stop();
+
+        // Assert
+        verify(visibilityExtender).release(REQUEST_QUEUE_URL, List.of("r3"));
+        verify(visibilityExtender).release(REQUEST_QUEUE_URL, List.of("r1"));
+        verify(visibilityExtender).release(REQUEST_QUEUE_URL, List.of("r2"));
+        verify(resultPublisher, never()).publishResult(anyString(), any());
+        verify(resultPublisher, never()).acknowledge(anyString(), anyString());
+    }
+
+    @Test
+    public void testStop_publishesJobsThatFinishAfterDeadline() throws Exception {
+        // Arrange
+        CountDownLatch release = receiveThreeBlockingJobs(false);
+        when(dockerRunner.removeRunningContainers()).thenAnswer(invocation -> {
+            release.countDown();
+            return 2;
+        });
+        ReflectionTestUtils.setField(workerService, "drainSeconds", 0L);
+        workerService.start();
+        verify(dockerRunner, timeout(1000).times(2)).runContainer(eq("java"), anyString());
+
+        // Act
+        workerService.stop();
+
+        // Assert
+        verify(visibilityExtender).release(REQUEST_QUEUE_URL, List.of("r3"));
+        verify(visibilityExtender, never()).release(REQUEST_QUEUE_URL, List.of("r1"));
+        verify(visibilityExtender, never()).release(REQUEST_QUEUE_URL, List.of("r2"));
+        verify(resultPublisher, times(2)).publishResult(eq(RESPONSE_QUEUE_URL), any());
+        verify(resultPublisher).acknowledge(REQUEST_QUEUE_URL, "r1");
+        verify(resultPublisher).acknowledge(REQUEST_QUEUE_URL, "r2");
+    }
+
+    // Two of the three jobs start and block until the latch opens; the third stays buffered. Once released, the
+    // running jobs fail as if their containers had been removed, or finish normally.
+    private CountDownLatch receiveThreeBlockingJobs(boolean containersRemoved) throws Exception {
+        List<Message> messages = List.of(message("r1"), message("r2"), message("r3"));
+        ReceiveMessageResponse mockResponse = mock(ReceiveMessageResponse.class);
+        when(mockResponse.messages()).thenReturn(messages);
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class)))
+                .thenReturn(mockResponse)
+                .thenReturn(mock(ReceiveMessageResponse.class));
+
+        JobMessage job = new JobMessage();
+        job.setJobId("job-123");
+        job.setLanguage("java");
+        job.setS3Key("path/file.java");
+        job.setCacheable(false);
+        when(objectMapper.readValue(anyString(), eq(JobMessage.class))).thenReturn(job);
+        Path source = Files.writeString(workspaceRoot.resolve("Main.java"), "class Main {}");
+        when(codeDownloader.download(eq("path/file.java"), any(Path.class)))
+                .thenReturn(CompletableFuture.completedFuture(source));
+
+        CountDownLatch release = new CountDownLatch(1);
+        when(dockerRunner.runContainer(eq("java"), anyString())).thenAnswer(invocation -> {
+            release.await();
+            if (containersRemoved) {
+                throw new IOException("No such container");
+            }
+            return new DockerRunner.ExecutionResponse("RESULT:{\"success\":true}", 100L);
+        });
+        return release;
+    }
+
+    private static LanguageRuntime language(String name) {
+        LanguageProperties properties = new LanguageProperties();
+        properties.setImage(name + "-runner");
+        properties.setRun(name + " /app/{file}");
+        return new ConfiguredLanguageRuntime(name, properties);
+    }
+
+    private static Message message(String receiptHandle) {
+        return Message.builder().body("{}").receiptHandle(receiptHandle).build();
+    }
+
+    private static JobResult resultContaining(String... parts) {
+        return argThat(result -> {
+            String body = JobResultWriter.write(result);
+            for (String part : parts) {
+                if (!body.contains(part)) {
+                    return false;
+                }
+            }
+            return true;
+        });
     }
 }
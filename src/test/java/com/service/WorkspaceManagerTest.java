@@ -0,0 +1,68 @@
+package com.service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class WorkspaceManagerTest {
+
+    @TempDir
+    private Path root;
+
+    @Test
+    public void testRelease_emptiesSlotAndReusesIt() throws Exception {
+        // Arrange
+        WorkspaceManager manager = new WorkspaceManager(new JobExecutor(1, 1, "platform", new SourceQueues("", "queue-url")), root.toString(), 1);
+        WorkspaceManager.Workspace workspace = manager.acquire();
+        Path dir = workspace.getDir();
+        Files.writeString(dir.resolve("Main.java"), "class Main {}");
+        Files.createDirectories(dir.resolve("pkg"));
+        Files.writeString(dir.resolve("pkg/Main.class"), "bytes");
+
+        // Act
+        workspace.close();
+        workspace.close();
+
+        // Assert
+        assertEquals(1, manager.getFreeSlots());
+        assertTrue(Files.isDirectory(dir));
+        assertFalse(Files.list(dir).findAny().isPresent());
+        assertEquals(dir, manager.acquire().getDir());
+    }
+
+    @Test
+    public void testAcquire_createsOverflowWorkspaceWhenSlotsAreTaken() throws Exception {
+        WorkspaceManager manager = new WorkspaceManager(new JobExecutor(1, 1, "platform", new SourceQueues("", "queue-url")), root.toString(), 1);
+        WorkspaceManager.Workspace slot = manager.acquire();
+
+        WorkspaceManager.Workspace overflow = manager.acquire();
+        Files.writeString(overflow.getDir().resolve("main.py"), "print(1)");
+        overflow.close();
+
+        assertNotEquals(slot.getDir(), overflow.getDir());
+        assertFalse(Files.exists(overflow.getDir()));
+        assertEquals(0, manager.getFreeSlots());
+    }
+
+    @Test
+    public void testStartup_removesLeftoversAndSizesFromExecutor() throws Exception {
+        // Arrange
+        Files.createDirectories(root.resolve("job-orphan/nested"));
+        Files.createDirectories(root.resolve("slot-0"));
+        Files.writeString(root.resolve("slot-0/Main.class"), "bytes");
+
+        // Act
+        WorkspaceManager manager = new WorkspaceManager(new JobExecutor(2, 3, "platform", new SourceQueues("", "queue-url")), root.toString(), 0);
+
+        // Assert
+        assertFalse(Files.exists(root.resolve("job-orphan")));
+        assertFalse(Files.exists(root.resolve("slot-0/Main.class")));
+        assertEquals(5, manager.getFreeSlots());
+    }
+}
@@ -0,0 +1,98 @@
+package com.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BundleExtractorTest {
+
+    @TempDir
+    private Path workspace;
+
+    @Test
+    public void testExtract_unpacksZipIntoWorkspace() throws Exception {
+        // Arrange
+        BundleExtractor extractor = new BundleExtractor(10, 1024);
+        byte[] zip = zip("app/Main.java", "class Main {}", "app/util/Helper.java", "class Helper {}");
+
+        // Act
+        long written = extractor.extract(new ByteArrayInputStream(zip), "project.zip", workspace);
+
+        // Assert
+        assertEquals(28, written);
+        assertEquals("class Main {}", Files.readString(workspace.resolve("app/Main.java")));
+        assertEquals("class Helper {}", Files.readString(workspace.resolve("app/util/Helper.java")));
+    }
+
+    @Test
+    public void testExtract_unpacksGzippedTar() throws Exception {
+        BundleExtractor extractor = new BundleExtractor(10, 1024);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new GzipCompressorOutputStream(bytes))) {
+            byte[] data = "print(1)".getBytes(StandardCharsets.UTF_8);
+            TarArchiveEntry entry = new TarArchiveEntry("pkg/main.py");
+            entry.setSize(data.length);
+            tar.putArchiveEntry(entry);
+            tar.write(data);
+            tar.closeArchiveEntry();
+        }
+
+        extractor.extract(new ByteArrayInputStream(bytes.toByteArray()), "project.tar.gz", workspace);
+
+        assertEquals("print(1)", Files.readString(workspace.resolve("pkg/main.py")));
+    }
+
+    @Test
+    public void testExtract_rejectsEntriesOutsideWorkspace() throws Exception {
+        BundleExtractor extractor = new BundleExtractor(10, 1024);
+        byte[] zip = zip("../escape.txt", "nope");
+
+        assertThrows(InvalidBundleException.class,
+                () -> extractor.extract(new ByteArrayInputStream(zip), "project.zip", workspace));
+        assertFalse(Files.exists(workspace.resolveSibling("escape.txt")));
+    }
+
+    @Test
+    public void testExtract_enforcesEntryAndSizeLimits() throws Exception {
+        byte[] zip = zip("A.java", "0123456789", "B.java", "0123456789");
+
+        assertThrows(InvalidBundleException.class, () -> new BundleExtractor(1, 1024)
+                .extract(new ByteArrayInputStream(zip), "project.zip", workspace));
+        InvalidBundleException tooLarge = assertThrows(InvalidBundleException.class, () -> new BundleExtractor(10, 15)
+                .extract(new ByteArrayInputStream(zip), "project.zip", workspace));
+        assertTrue(tooLarge.getMessage().contains("larger than 15 bytes"));
+    }
+
+    @Test
+    public void testExtract_rejectsUnknownFormat() {
+        assertThrows(InvalidBundleException.class, () -> new BundleExtractor(10, 1024)
+                .extract(new ByteArrayInputStream(new byte[0]), "project.rar", workspace));
+    }
+
+    private static byte[] zip(String... namesAndContents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zip.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
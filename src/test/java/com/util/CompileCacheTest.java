@@ -0,0 +1,110 @@
+package com.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CompileCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testStoreAndRestore_copiesClassFilesIntoWorkspace() throws IOException {
+        // Arrange
+        CompileCache cache = new CompileCache(tempDir.resolve("cache").toString(), 1024 * 1024, true);
+        String key = cache.key("Main.java", "class Main {}".getBytes(), "sha256:image");
+        Path compiled = Files.createDirectories(tempDir.resolve("compiled"));
+        Files.writeString(compiled.resolve("Main.java"), "class Main {}");
+        Files.write(compiled.resolve("Main.class"), new byte[] { 1, 2, 3 });
+        Path fresh = Files.createDirectories(tempDir.resolve("fresh"));
+
+        // Act
+        boolean missed = cache.restore(key, fresh);
+        cache.store(key, compiled);
+        boolean hit = cache.restore(key, fresh);
+
+        // Assert
+        assertFalse(missed);
+        assertTrue(hit);
+        assertArrayEquals(new byte[] { 1, 2, 3 }, Files.readAllBytes(fresh.resolve("Main.class")));
+        assertFalse(Files.exists(fresh.resolve("Main.java")));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    @Test
+    public void testKey_changesWithImage() {
+        CompileCache cache = new CompileCache(tempDir.resolve("cache").toString(), 1024, true);
+
+        String first = cache.key("Main.java", "class Main {}".getBytes(), "sha256:one");
+        String second = cache.key("Main.java", "class Main {}".getBytes(), "sha256:two");
+
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    public void testStore_evictsLeastRecentlyUsedEntriesPastSizeLimit() throws IOException {
+        // Arrange
+        CompileCache cache = new CompileCache(tempDir.resolve("cache").toString(), 250, true);
+        Path workspace = Files.createDirectories(tempDir.resolve("workspace"));
+        Files.write(workspace.resolve("Main.class"), new byte[100]);
+
+        // Act
+        cache.store("a", workspace);
+        cache.store("b", workspace);
+        cache.restore("a", Files.createDirectories(tempDir.resolve("touch")));
+        cache.store("c", workspace);
+
+        // Assert
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(200, cache.getSizeBytes());
+        assertTrue(Files.exists(tempDir.resolve("cache").resolve("a")));
+        assertFalse(Files.exists(tempDir.resolve("cache").resolve("b")));
+        assertTrue(Files.exists(tempDir.resolve("cache").resolve("c")));
+    }
+
+    @Test
+    public void testStore_defersDeletingEvictedEntryUntilRestoreIsDone() throws IOException {
+        // Arrange
+        CompileCache cache = new CompileCache(tempDir.resolve("cache").toString(), 150, true);
+        Path workspace = Files.createDirectories(tempDir.resolve("workspace"));
+        Files.write(workspace.resolve("Main.class"), new byte[100]);
+        cache.store("a", workspace);
+
+        // Act
+        assertTrue(cache.acquire("a"));
+        cache.store("b", workspace);
+        boolean keptWhileRead = Files.exists(tempDir.resolve("cache").resolve("a"));
+        cache.release("a");
+
+        // Assert
+        assertTrue(keptWhileRead);
+        assertFalse(Files.exists(tempDir.resolve("cache").resolve("a")));
+        assertEquals(1, cache.getEntryCount());
+        assertFalse(cache.restore("a", Files.createDirectories(tempDir.resolve("restored"))));
+    }
+
+    @Test
+    public void testConstructor_reloadsEntriesFromDisk() throws IOException {
+        Path root = tempDir.resolve("cache");
+        Path workspace = Files.createDirectories(tempDir.resolve("workspace"));
+        Files.write(workspace.resolve("Main.class"), new byte[10]);
+        new CompileCache(root.toString(), 1024, true).store("a", workspace);
+
+        CompileCache reloaded = new CompileCache(root.toString(), 1024, true);
+
+        assertEquals(1, reloaded.getEntryCount());
+        assertEquals(10, reloaded.getSizeBytes());
+        assertTrue(reloaded.restore("a", Files.createDirectories(tempDir.resolve("restored"))));
+    }
+}
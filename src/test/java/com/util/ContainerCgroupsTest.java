@@ -0,0 +1,48 @@
+package com.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ContainerCgroupsTest {
+
+    @TempDir
+    private Path cgroup;
+
+    @Test
+    public void testSnapshot_readsSystemdScopeFromHost() throws IOException {
+        // Arrange
+        Path scope = Files.createDirectories(cgroup.resolve("system.slice").resolve("docker-abc123.scope"));
+        Files.writeString(scope.resolve("cpu.stat"), "usage_usec 5000\nuser_usec 4000\nsystem_usec 1000\n");
+        Files.writeString(scope.resolve("memory.peak"), "1048576\n");
+        ContainerCgroups cgroups = new ContainerCgroups(cgroup);
+
+        // Act
+        String start = cgroups.snapshot("abc123");
+        Files.writeString(scope.resolve("cpu.stat"), "usage_usec 30000\nuser_usec 24000\nsystem_usec 6000\n");
+        Files.writeString(scope.resolve("memory.peak"), "2097152\n");
+        ResourceUsage usage = ResourceUsage.between(start, cgroups.snapshot("abc123"));
+
+        // Assert
+        assertEquals(20, usage.getCpuUserMs());
+        assertEquals(5, usage.getCpuSystemMs());
+        assertEquals(2097152, usage.getPeakMemoryBytes());
+        assertTrue(usage.getWallTimeMs() >= 0);
+    }
+
+    @Test
+    public void testSnapshot_onlyMeasuresWallTimeWithoutCgroup() {
+        ContainerCgroups cgroups = new ContainerCgroups(cgroup.resolve("missing"));
+
+        ResourceUsage usage = ResourceUsage.between(cgroups.snapshot("abc123"), cgroups.snapshot("abc123"));
+
+        assertTrue(usage.getWallTimeMs() >= 0);
+        assertEquals(-1, usage.getCpuUserMs());
+        assertEquals(-1, usage.getPeakMemoryBytes());
+    }
+}
@@ -0,0 +1,233 @@
+package com.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.util.docker.ContainerResult;
+import com.util.docker.ContainerRuntime;
+import com.util.docker.ContainerSpec;
+import com.util.docker.OutputSink;
+
+public class ContainerPoolTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FakeRuntime runtime;
+    private ContainerPool pool;
+
+    @BeforeEach
+    public void setup() {
+        runtime = new FakeRuntime();
+        runtime.leftovers.add("crashed-1");
+        pool = new ContainerPool(runtime, new LanguageRuntimes(List.of(language("python", 2))), 3, 3600, 32,
+                "worker-a", tempDir.toString());
+        pool.warmUp();
+        await(() -> pool.getIdleCount("python") == 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testWarmUp_startsSandboxedContainers() {
+        assertEquals(2, runtime.created.size());
+        for (ContainerSpec spec : runtime.created) {
+            assertTrue(spec.isReadOnlyRootfs());
+            assertEquals("rw,nosuid,nodev,size=32m", spec.getTmpfs().get("/tmp"));
+            assertTrue(spec.getBinds().get(0).endsWith(":/app"));
+            assertEquals(Map.of("coding-platform-worker", "pool", "coding-platform-worker.owner", "worker-a"),
+                    spec.getLabels());
+        }
+        assertNull(pool.borrow("java"));
+    }
+
+    @Test
+    public void testWarmUp_removesContainersLeftByEarlierRun() {
+        assertEquals(List.of("crashed-1"), runtime.removedBeforeCreate);
+        assertEquals(List.of(Map.of("coding-platform-worker", "pool", "coding-platform-worker.owner", "worker-a")),
+                runtime.listed);
+    }
+
+    @Test
+    public void testRelease_resetsContainerBeforeReuse() throws Exception {
+        // Arrange
+        ContainerPool.PooledContainer container = pool.borrow("python");
+        Files.writeString(container.getWorkDir().resolve("main.py"), "print(1)");
+
+        // Act
+        pool.release(container, true);
+        await(() -> pool.getIdleCount("python") == 2);
+
+        // Assert
+        List<String> reset = runtime.execs.get(container.getId()).get(0);
+        assertTrue(reset.get(2).contains("kill -9 -1"));
+        assertTrue(reset.get(2).contains("/tmp/*"));
+        assertTrue(reset.get(2).contains("/dev/shm/*"));
+        assertFalse(Files.exists(container.getWorkDir().resolve("main.py")));
+        assertEquals(Set.of("crashed-1"), runtime.removed);
+        assertEquals(1, container.getUses());
+    }
+
+    @Test
+    public void testRelease_replacesContainerThatCannotBeReset() {
+        // Arrange
+        ContainerPool.PooledContainer container = pool.borrow("python");
+        runtime.resetExitCode = 1;
+
+        // Act
+        pool.release(container, true);
+        await(() -> pool.getIdleCount("python") == 2 && runtime.created.size() == 3);
+
+        // Assert
+        assertEquals(Set.of("crashed-1", container.getId()), runtime.removed);
+        assertFalse(Files.exists(container.getWorkDir()));
+    }
+
+    @Test
+    public void testRelease_replacesMisbehavingContainerWithoutReset() {
+        ContainerPool.PooledContainer container = pool.borrow("python");
+
+        pool.release(container, false);
+        await(() -> pool.getIdleCount("python") == 2 && runtime.created.size() == 3);
+
+        assertEquals(Set.of("crashed-1", container.getId()), runtime.removed);
+        assertNull(runtime.execs.get(container.getId()));
+    }
+
+    @Test
+    public void testRelease_replacesContainersAtReuseLimit() {
+        // Arrange
+        List<String> original = runtime.created.stream().map(ContainerSpec::getName).toList();
+
+        // Act
+        for (int use = 1; use <= 3; use++) {
+            pool.release(pool.borrow("python"), true);
+            pool.release(pool.borrow("python"), true);
+            int uses = use;
+            await(() -> pool.getIdleCount("python") == 2 && (uses < 3 || runtime.created.size() == 4));
+        }
+
+        // Assert
+        assertTrue(runtime.removed.containsAll(original));
+        assertEquals(original.size() + 1, runtime.removed.size());
+        for (String id : original) {
+            assertEquals(2, runtime.execs.get(id).size());
+        }
+    }
+
+    @Test
+    public void testCheckHealth_replacesStoppedIdleContainer() {
+        // Arrange
+        String stopped = runtime.created.get(0).getName();
+        runtime.stopped.add(stopped);
+
+        // Act
+        pool.checkHealth();
+        await(() -> pool.getIdleCount("python") == 2 && runtime.created.size() == 3);
+
+        // Assert
+        assertEquals(Set.of("crashed-1", stopped), runtime.removed);
+        ContainerPool.PooledContainer container = pool.borrow("python");
+        assertNotNull(container);
+        assertNotEquals(stopped, container.getId());
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met within 5s");
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static LanguageRuntime language(String name, int poolSize) {
+        LanguageProperties properties = new LanguageProperties();
+        properties.setImage(name + "-runner");
+        properties.setRun(name + " /app/{file}");
+        properties.setPoolSize(poolSize);
+        return new ConfiguredLanguageRuntime(name, properties);
+    }
+
+    // Containers are identified by their name, and nothing is actually run.
+    private static class FakeRuntime implements ContainerRuntime {
+        private final List<ContainerSpec> created = new CopyOnWriteArrayList<>();
+        private final Map<String, List<List<String>>> execs = new ConcurrentHashMap<>();
+        private final Set<String> removed = ConcurrentHashMap.newKeySet();
+        private final Set<String> stopped = ConcurrentHashMap.newKeySet();
+        private final List<String> leftovers = new CopyOnWriteArrayList<>();
+        private final List<Map<String, String>> listed = new CopyOnWriteArrayList<>();
+        private final List<String> removedBeforeCreate = new CopyOnWriteArrayList<>();
+        private volatile int resetExitCode;
+
+        @Override
+        public String create(ContainerSpec spec) {
+            created.add(spec);
+            return spec.getName();
+        }
+
+        @Override
+        public void start(String containerId) {
+        }
+
+        @Override
+        public void kill(String containerId) {
+        }
+
+        @Override
+        public void remove(String containerId) {
+            removed.add(containerId);
+            if (created.isEmpty()) {
+                removedBeforeCreate.add(containerId);
+            }
+        }
+
+        @Override
+        public List<String> list(Map<String, String> labels) {
+            listed.add(labels);
+            return List.copyOf(leftovers);
+        }
+
+        @Override
+        public boolean isRunning(String containerId) {
+            return !stopped.contains(containerId);
+        }
+
+        @Override
+        public String imageId(String image) {
+            return "sha256:" + image;
+        }
+
+        @Override
+        public ContainerResult exec(String containerId, List<String> command, OutputSink stdout, OutputSink stderr,
+                long timeoutMs) {
+            execs.computeIfAbsent(containerId, id -> new CopyOnWriteArrayList<>()).add(command);
+            return new ContainerResult(resetExitCode, false);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.util;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DedupeStoreTest {
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    public void testGet_returnsStoredResultUntilItExpires() {
+        DedupeStore store = new DedupeStore(true, 60, 10, 1024, "");
+        DedupeStore expired = new DedupeStore(true, 0, 10, 1024, "");
+
+        store.put("job-1", "{\"ok\":true}");
+        expired.put("job-1", "{\"ok\":true}");
+
+        assertEquals("{\"ok\":true}", store.get("job-1"));
+        assertNull(store.get("job-2"));
+        assertNull(expired.get("job-1"));
+    }
+
+    @Test
+    public void testPut_dropsOldestEntriesBeyondMaxAndSkipsLargeResults() {
+        DedupeStore store = new DedupeStore(true, 60, 2, 8, "");
+
+        store.put("job-1", "one");
+        store.put("job-2", "two");
+        store.put("job-3", "three");
+        store.put("job-4", "too large to keep");
+
+        assertNull(store.get("job-1"));
+        assertEquals("two", store.get("job-2"));
+        assertEquals("three", store.get("job-3"));
+        assertNull(store.get("job-4"));
+        assertEquals(2, store.getSize());
+    }
+
+    @Test
+    public void testLoad_restoresEntriesFromFileAndSkipsTruncatedLines() throws Exception {
+        // Arrange
+        Path file = dir.resolve("dedupe").resolve("results.log");
+        DedupeStore first = new DedupeStore(true, 60, 10, 1024, file.toString());
+        first.put("job-1", "line one\nline two\twith tab");
+        first.put("job-2", "{\"ok\":true}");
+        first.close();
+        // A crash in the middle of a write leaves half a line behind.
+        Files.writeString(file, "12345\tam9i", StandardOpenOption.APPEND);
+
+        // Act
+        DedupeStore second = new DedupeStore(true, 60, 10, 1024, file.toString());
+
+        // Assert
+        assertEquals("line one\nline two\twith tab", second.get("job-1"));
+        assertEquals("{\"ok\":true}", second.get("job-2"));
+        assertEquals(2, second.getSize());
+        assertEquals(2, Files.readAllLines(file).size());
+        second.close();
+    }
+}
@@ -0,0 +1,164 @@
+package com.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.Mockito.mock;
+
+import com.util.docker.ContainerResult;
+import com.util.docker.ContainerRuntime;
+import com.util.docker.ContainerSpec;
+import com.util.docker.OutputSink;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DockerRunnerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FakeRuntime runtime;
+    private CompileCache compileCache;
+    private DockerRunner dockerRunner;
+
+    @BeforeEach
+    public void setup() {
+        runtime = new FakeRuntime(tempDir.resolve("cgroup"));
+        compileCache = new CompileCache(tempDir.resolve("cache").toString(), 1024 * 1024, true);
+        LanguageProperties java = new LanguageProperties();
+        java.setImage("java-runner");
+        java.setCompile("javac /app/{file}");
+        java.setRun("java -cp /app {name}");
+        java.setCompileOutputs("**.class");
+        dockerRunner = new DockerRunner(runtime, mock(ContainerPool.class), null, compileCache,
+                new LanguageRuntimes(List.of(new ConfiguredLanguageRuntime("java", java))),
+                new SimpleMeterRegistry(), tempDir.resolve("cgroup").toString(), 1024, 512, 512, 1024, 10, 2000, 10000, 1024);
+    }
+
+    @Test
+    public void testRunContainer_cachesCompileOutputsBeforeSubmissionRuns() throws Exception {
+        // Arrange
+        Path source = Files.createDirectories(tempDir.resolve("job")).resolve("Main.java");
+        Files.writeString(source, "public class Main {}");
+
+        // Act
+        DockerRunner.ExecutionResponse response = dockerRunner.runContainer("java", source.toString());
+
+        // Assert
+        assertEquals(DockerRunner.ExecutionResponse.Status.COMPLETED, response.getStatus());
+        assertEquals("tampered", Files.readString(source.resolveSibling("Main.class")));
+        Path restored = Files.createDirectories(tempDir.resolve("restored"));
+        assertTrue(compileCache.restore(compileCache.key("Main.java", Files.readAllBytes(source), "sha256:java-runner"),
+                restored));
+        assertEquals("compiled", Files.readString(restored.resolve("Main.class")));
+        assertEquals(List.of("compile", "run"), runtime.phases);
+        assertTrue(runtime.removed.containsAll(runtime.binds.keySet()));
+        assertTrue(response.getCompileTimeMs() >= 0);
+        assertTrue(response.getRunTimeMs() >= 0);
+        assertEquals(2, response.getUsage().getCpuUserMs());
+        assertEquals(-1, response.getUsage().getPeakMemoryBytes());
+    }
+
+    @Test
+    public void testRunContainer_skipsRunAndCacheWhenCompileFails() throws Exception {
+        // Arrange
+        Path source = Files.createDirectories(tempDir.resolve("job")).resolve("Main.java");
+        Files.writeString(source, "public class Main {");
+        runtime.compileExitCode = 1;
+
+        // Act
+        DockerRunner.ExecutionResponse response = dockerRunner.runContainer("java", source.toString());
+
+        // Assert
+        assertEquals(DockerRunner.ExecutionResponse.Status.COMPILE_ERROR, response.getStatus());
+        assertEquals(List.of("compile"), runtime.phases);
+        assertEquals(0, compileCache.getEntryCount());
+    }
+
+    // Compiling writes a class file into the bound workspace; running overwrites it, as a submission could.
+    // Each compile or run uses one millisecond of CPU in the container's cgroup, which sits where the cgroupfs
+    // driver puts it.
+    private static class FakeRuntime implements ContainerRuntime {
+        private final Path cgroupDir;
+        private final Map<String, Path> binds = new ConcurrentHashMap<>();
+        private final List<String> phases = new CopyOnWriteArrayList<>();
+        private final List<String> removed = new CopyOnWriteArrayList<>();
+        private volatile int compileExitCode;
+        private volatile int cpuUserMs;
+
+        FakeRuntime(Path cgroupDir) {
+            this.cgroupDir = cgroupDir;
+        }
+
+        @Override
+        public String create(ContainerSpec spec) throws IOException {
+            binds.put(spec.getName(), Path.of(spec.getBinds().get(0).split(":")[0]));
+            writeCgroup(spec.getName());
+            return spec.getName();
+        }
+
+        @Override
+        public void start(String containerId) {
+        }
+
+        @Override
+        public void kill(String containerId) {
+        }
+
+        @Override
+        public void remove(String containerId) {
+            removed.add(containerId);
+        }
+
+        @Override
+        public boolean isRunning(String containerId) {
+            return true;
+        }
+
+        @Override
+        public List<String> list(Map<String, String> labels) {
+            return List.of();
+        }
+
+        @Override
+        public String imageId(String image) {
+            return "sha256:" + image;
+        }
+
+        @Override
+        public ContainerResult exec(String containerId, List<String> command, OutputSink stdout, OutputSink stderr,
+                long timeoutMs) throws IOException {
+            String script = command.get(2);
+            cpuUserMs++;
+            writeCgroup(containerId);
+            String phase = script.startsWith("javac") ? "compile" : "run";
+            phases.add(phase);
+            Path classFile = binds.get(containerId).resolve("Main.class");
+            if (phase.equals("compile")) {
+                if (compileExitCode != 0) {
+                    return new ContainerResult(compileExitCode, false);
+                }
+                Files.writeString(classFile, "compiled");
+            } else {
+                Files.writeString(classFile, "tampered");
+            }
+            return new ContainerResult(0, false);
+        }
+
+        private void writeCgroup(String containerId) throws IOException {
+            Path dir = Files.createDirectories(cgroupDir.resolve("docker").resolve(containerId));
+            Files.writeString(dir.resolve("cpu.stat"), "user_usec " + cpuUserMs * 1000 + "\nsystem_usec 0\n");
+            Files.writeString(dir.resolve("memory.peak"), "100\n");
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class HostLoadTest {
+
+    @TempDir
+    private Path proc;
+
+    @Test
+    public void testCpuBusy_measuresBetweenCalls() throws IOException {
+        HostLoad hostLoad = new HostLoad(proc);
+        Files.writeString(proc.resolve("stat"), "cpu  100 0 100 700 100 0 0 0 0 0\ncpu0 100 0 100 700 100 0 0 0 0 0\n");
+        assertEquals(-1, hostLoad.cpuBusy());
+
+        Files.writeString(proc.resolve("stat"), "cpu  250 0 150 740 110 0 0 0 0 0\n");
+
+        assertEquals(0.8, hostLoad.cpuBusy(), 1e-9);
+    }
+
+    @Test
+    public void testMemoryAvailable_readsMeminfo() throws IOException {
+        Files.writeString(proc.resolve("meminfo"),
+                "MemTotal:        8000000 kB\nMemFree:          500000 kB\nMemAvailable:    2000000 kB\n");
+
+        assertEquals(0.25, new HostLoad(proc).memoryAvailable(), 1e-9);
+    }
+
+    @Test
+    public void testMemoryAvailable_unknownWithoutProc() {
+        assertEquals(-1, new HostLoad(proc.resolve("missing")).memoryAvailable());
+    }
+}
@@ -0,0 +1,135 @@
+package com.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class InJvmRunnerClientTest {
+
+    @TempDir
+    Path tempDir;
+
+    private InJvmRunnerClient client;
+    private ServerSocketChannel server;
+    private Path socket;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        client = new InJvmRunnerClient(new ObjectMapper());
+        socket = tempDir.resolve(InJvmRunnerClient.SOCKET_NAME);
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        client.shutdown();
+        server.close();
+    }
+
+    @Test
+    public void testRun_streamsOutputAndReadsStatus() throws Exception {
+        AtomicReference<String> request = new AtomicReference<>();
+        serveOnce(channel -> {
+            request.set(readLine(Channels.newInputStream(channel)));
+            OutputStream out = Channels.newOutputStream(channel);
+            out.write(frame(1, "RESULT:{\"ok\":true}\n"));
+            out.write(frame(2, "warning\n"));
+            out.write(frame(3, "{\"exitCode\":0,\"compileMs\":12,\"runMs\":3,\"clean\":true,"
+                    + "\"cpuUserMs\":9,\"cpuSystemMs\":2,\"peakMemoryBytes\":1048576}"));
+        });
+
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        InJvmRunnerClient.RunResult result = client.run(socket, "Main.java", stdout::write, stderr::write, 5000);
+
+        assertEquals("RUN Main.java", request.get());
+        assertEquals(0, result.getExitCode());
+        assertEquals(12, result.getCompileMs());
+        assertEquals(3, result.getRunMs());
+        assertTrue(result.isClean());
+        assertFalse(result.isTimedOut());
+        assertEquals(15, result.getUsage().getWallTimeMs());
+        assertEquals(9, result.getUsage().getCpuUserMs());
+        assertEquals(2, result.getUsage().getCpuSystemMs());
+        assertEquals(1048576, result.getUsage().getPeakMemoryBytes());
+        assertEquals("RESULT:{\"ok\":true}\n", stdout.toString(StandardCharsets.UTF_8));
+        assertEquals("warning\n", stderr.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRun_timesOutWhenRunnerNeverAnswers() throws Exception {
+        serveOnce(channel -> {
+            readLine(Channels.newInputStream(channel));
+            Channels.newOutputStream(channel).write(frame(1, "still running\n"));
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        InJvmRunnerClient.RunResult result = client.run(socket, "Main.java", (data, offset, length) -> {
+        }, (data, offset, length) -> {
+        }, 200);
+
+        assertTrue(result.isTimedOut());
+        assertFalse(result.isClean());
+    }
+
+    private void serveOnce(Handler handler) {
+        Thread thread = new Thread(() -> {
+            try (SocketChannel channel = server.accept()) {
+                handler.handle(channel);
+            } catch (IOException e) {
+                // Test is over.
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            line.append((char) b);
+        }
+        return line.toString();
+    }
+
+    private static byte[] frame(int type, String payload) {
+        byte[] data = payload.getBytes(StandardCharsets.UTF_8);
+        byte[] frame = new byte[8 + data.length];
+        frame[0] = (byte) type;
+        frame[4] = (byte) (data.length >>> 24);
+        frame[5] = (byte) (data.length >>> 16);
+        frame[6] = (byte) (data.length >>> 8);
+        frame[7] = (byte) data.length;
+        System.arraycopy(data, 0, frame, 8, data.length);
+        return frame;
+    }
+
+    private interface Handler {
+        void handle(SocketChannel channel) throws IOException;
+    }
+}
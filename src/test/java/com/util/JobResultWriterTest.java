@@ -0,0 +1,91 @@
+package com.util;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class JobResultWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testWrite_escapesOutputAndEmbedsResultPayload() throws Exception {
+        // Arrange
+        JobResult result = new JobResult("job-1", JobResult.Status.RUNTIME_ERROR);
+        result.setExecutionTimeMs(42L);
+        result.setCompileTimeMs(30L);
+        result.setRunTimeMs(12L);
+        result.setExitCode(139);
+        result.setSignal(11);
+        result.setUsage(new ResourceUsage(50, 10, 2, 4096));
+        result.setResult("{\"answer\":[1,2]}");
+        result.setStdout("partial");
+        result.setStderr("line \"one\"\n\tC:\\path");
+
+        // Act
+        JsonNode message = objectMapper.readTree(JobResultWriter.write(result));
+
+        // Assert
+        assertEquals("job-1", message.get("jobId").asText());
+        JsonNode body = message.get("result");
+        assertEquals("runtime_error", body.get("status").asText());
+        assertEquals(42, body.get("executionTimeMs").asLong());
+        assertEquals(30, body.get("compileTimeMs").asLong());
+        assertEquals(12, body.get("runTimeMs").asLong());
+        assertEquals(139, body.get("exitCode").asInt());
+        assertEquals(11, body.get("signal").asInt());
+        assertEquals(10, body.get("cpuUserMs").asLong());
+        assertEquals(4096, body.get("peakMemoryBytes").asLong());
+        assertEquals(2, body.get("result").get("answer").get(1).asInt());
+        assertEquals("partial", body.get("stdout").asText());
+        assertEquals("line \"one\"\n\tC:\\path", body.get("stderr").asText());
+    }
+
+    @Test
+    public void testWrite_reportsCasesWithCountsAndFirstFailingVerdict() throws Exception {
+        // Arrange
+        JobResult result = new JobResult("job-2", JobResult.Status.SUCCESS);
+        result.setCases(List.of(
+                new CaseResult("first", CaseResult.Verdict.ACCEPTED, 0, 5L, "3\n", ""),
+                new CaseResult("second", CaseResult.Verdict.WRONG_ANSWER, 0, 7L, "4\n", "warning\n"),
+                new CaseResult("third", CaseResult.Verdict.TIME_LIMIT_EXCEEDED, 137, 1000L, "", "")));
+
+        // Act
+        JsonNode body = objectMapper.readTree(JobResultWriter.write(result)).get("result");
+
+        // Assert
+        assertEquals("WRONG_ANSWER", body.get("verdict").asText());
+        assertEquals(1, body.get("accepted").asInt());
+        assertEquals(3, body.get("total").asInt());
+        assertEquals("second", body.get("cases").get(1).get("name").asText());
+        assertEquals("warning\n", body.get("cases").get(1).get("stderr").asText());
+        assertEquals(137, body.get("cases").get(2).get("exitCode").asInt());
+        assertFalse(body.has("stdout"));
+        assertFalse(body.has("exitCode"));
+    }
+
+    @Test
+    public void testWrite_errorCarriesOnlyStatusAndMessage() {
+        String json = JobResultWriter.write(JobResult.error("job-3", JobResult.Status.INVALID_BUNDLE, "bad"));
+
+        assertEquals("{\"jobId\":\"job-3\",\"result\":{\"jobId\":\"job-3\",\"status\":\"invalid_bundle\","
+                + "\"message\":\"bad\"}}", json);
+    }
+
+    @Test
+    public void testIsJson_acceptsOneValueOnly() {
+        assertTrue(JobResultWriter.isJson("{\"ok\":true}"));
+        assertTrue(JobResultWriter.isJson(" [1, 2] "));
+        assertTrue(JobResultWriter.isJson("\"text\""));
+        assertFalse(JobResultWriter.isJson("{\"ok\":true} trailing"));
+        assertFalse(JobResultWriter.isJson("{\"ok\":"));
+        assertFalse(JobResultWriter.isJson("not json"));
+        assertFalse(JobResultWriter.isJson(""));
+    }
+}
@@ -0,0 +1,80 @@
+package com.util;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class LanguageRuntimesTest {
+
+    @Test
+    public void testConfiguredRuntime_expandsCommandTemplates() {
+        LanguageProperties properties = new LanguageProperties();
+        properties.setImage("tkoppine/java-runner");
+        properties.setCompile("javac /app/{file}");
+        properties.setRun("java -cp /app {name}");
+        properties.setRunBundle("java -cp /app {entry}");
+        properties.setEntryPointPattern("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)*");
+        properties.setCompileOutputs("**.class");
+
+        LanguageRuntime runtime = new ConfiguredLanguageRuntime("Java", properties);
+
+        assertEquals("java", runtime.getName());
+        assertEquals("javac /app/'Main.java'", runtime.compileCommand("Main.java"));
+        assertEquals("java -cp /app 'Main'", runtime.runCommand("Main.java"));
+        assertEquals("java -cp /app 'com.example.App'", runtime.runBundleCommand("com.example.App"));
+        assertNull(runtime.compileBundleCommand());
+        assertTrue(runtime.isValidEntryPoint("com.example.App"));
+        assertFalse(runtime.isValidEntryPoint("App; rm -rf /"));
+        assertTrue(runtime.getCompileOutputs().matches(Path.of("com/example/App.class")));
+        assertFalse(runtime.getCompileOutputs().matches(Path.of("App.java")));
+    }
+
+    @Test
+    public void testConfiguredRuntime_quotesHostileFileNames() throws Exception {
+        LanguageProperties properties = new LanguageProperties();
+        properties.setImage("python:3.12");
+        properties.setRun("printf %s {file}; printf %s {name}");
+        LanguageRuntime runtime = new ConfiguredLanguageRuntime("python", properties);
+        String fileName = "x'; echo pwned; $(id) `id` \"'.py";
+
+        Process process = new ProcessBuilder("sh", "-c", runtime.runCommand(fileName)).start();
+
+        assertEquals(fileName + "x'; echo pwned; $(id) `id` \"'",
+                new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        assertEquals(0, process.waitFor());
+    }
+
+    @Test
+    public void testConfiguredRuntime_defaultEntryPointPatternRejectsParentDirectories() {
+        LanguageProperties properties = new LanguageProperties();
+        properties.setImage("node:20");
+        properties.setRun("node /app/{file}");
+        LanguageRuntime runtime = new ConfiguredLanguageRuntime("node", properties);
+
+        assertTrue(runtime.isValidEntryPoint("src/index.js"));
+        assertFalse(runtime.isValidEntryPoint("../index.js"));
+        assertFalse(runtime.isValidEntryPoint("/etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> runtime.runBundleCommand("src/index.js"));
+    }
+
+    @Test
+    public void testGet_looksUpCaseInsensitively() {
+        LanguageProperties properties = new LanguageProperties();
+        properties.setImage("gcc:13");
+        properties.setRun("/app/main");
+        LanguageRuntime cpp = new ConfiguredLanguageRuntime("cpp", properties);
+        LanguageRuntimes runtimes = new LanguageRuntimes(List.of(cpp));
+
+        assertSame(cpp, runtimes.get("CPP"));
+        assertNull(runtimes.find("go"));
+        assertThrows(IllegalArgumentException.class, () -> runtimes.get("go"));
+    }
+}
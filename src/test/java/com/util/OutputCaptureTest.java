@@ -0,0 +1,100 @@
+package com.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class OutputCaptureTest {
+
+    @Test
+    public void testWrite_findsResultLineSplitAcrossChunks() {
+        OutputCapture capture = new OutputCapture(1024, 64, 64, 1024, null);
+
+        write(capture, "debug line\nRESU");
+        write(capture, "LT:{\"ok\":true}\nRESULT:{\"ok\":false}\n");
+
+        assertEquals("{\"ok\":true}", capture.getResult());
+        assertEquals("debug line\nRESULT:{\"ok\":true}\nRESULT:{\"ok\":false}\n", capture.getOutput());
+        assertFalse(capture.isTruncated());
+    }
+
+    @Test
+    public void testWrite_findsResultOnLastLineWithoutNewline() {
+        OutputCapture capture = new OutputCapture(1024, 64, 64, 1024, null);
+
+        write(capture, "xRESULT:no\nRESULT:{\"ok\":true}");
+
+        assertEquals("{\"ok\":true}", capture.getResult());
+    }
+
+    @Test
+    public void testWrite_keepsOnlyHeadAndTail() {
+        // Arrange
+        OutputCapture capture = new OutputCapture(1024, 4, 4, 1024, null);
+
+        // Act
+        write(capture, "0123456789");
+        write(capture, "abcdef");
+
+        // Assert
+        assertTrue(capture.isTruncated());
+        assertEquals(16, capture.getTotalBytes());
+        assertEquals("0123\n... [8 bytes truncated] ...\ncdef", capture.getOutput());
+        assertNull(capture.getResult());
+    }
+
+    @Test
+    public void testWrite_signalsLimitOnce() {
+        // Arrange
+        AtomicInteger signals = new AtomicInteger();
+        OutputCapture capture = new OutputCapture(8, 4, 4, 1024, signals::incrementAndGet);
+
+        // Act
+        write(capture, "12345678");
+        write(capture, "9");
+        write(capture, "more output");
+
+        // Assert
+        assertTrue(capture.isLimitExceeded());
+        assertEquals(1, signals.get());
+    }
+
+    @Test
+    public void testWrite_ignoresResultLinePastLimit() {
+        OutputCapture capture = new OutputCapture(1024, 64, 64, 4, null);
+
+        write(capture, "RESULT:123456\n");
+
+        assertNull(capture.getResult());
+    }
+
+    @Test
+    public void testSibling_sharesLimitButNotResult() {
+        // Arrange
+        AtomicInteger signals = new AtomicInteger();
+        OutputCapture stdout = new OutputCapture(12, 64, 64, 1024, signals::incrementAndGet);
+        OutputCapture stderr = stdout.sibling();
+
+        // Act
+        write(stderr, "RESULT:1\n");
+        write(stdout, "abcd");
+        write(stderr, "efgh");
+
+        // Assert
+        assertNull(stderr.getResult());
+        assertTrue(stdout.isLimitExceeded());
+        assertTrue(stderr.isLimitExceeded());
+        assertEquals(1, signals.get());
+        assertEquals("abcd", stdout.getOutput());
+    }
+
+    private static void write(OutputCapture capture, String text) {
+        byte[] data = text.getBytes(StandardCharsets.UTF_8);
+        capture.write(data, 0, data.length);
+    }
+}
@@ -0,0 +1,55 @@
+package com.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+
+public class ResourceUsageTest {
+
+    @Test
+    public void testBetween_readsDeltasFromCgroupSnapshots() {
+        // Arrange
+        String start = "time_usec 1000250000\n"
+                + "usage_usec 5000\nuser_usec 4000\nsystem_usec 1000\nnr_periods 0\npeak 1000\n";
+        String end = "time_usec 1001750000\n"
+                + "usage_usec 305000\nuser_usec 254000\nsystem_usec 51000\nnr_periods 0\npeak 52428800\n";
+
+        // Act
+        ResourceUsage usage = ResourceUsage.between(start, end);
+
+        // Assert
+        assertEquals(1500, usage.getWallTimeMs());
+        assertEquals(250, usage.getCpuUserMs());
+        assertEquals(50, usage.getCpuSystemMs());
+        assertEquals(52428800, usage.getPeakMemoryBytes());
+    }
+
+    @Test
+    public void testBetween_reportsUnknownCountersWithoutCgroupV2() {
+        String start = "time_usec 10000000\n";
+        String end = "time_usec 10300000\n";
+
+        ResourceUsage usage = ResourceUsage.between(start, end);
+
+        assertEquals(300, usage.getWallTimeMs());
+        assertEquals(-1, usage.getCpuUserMs());
+        assertEquals(-1, usage.getCpuSystemMs());
+        assertEquals(-1, usage.getPeakMemoryBytes());
+    }
+
+    @Test
+    public void testBetween_omitsPeakNotRaisedDuringRun() {
+        String start = "time_usec 10000000\npeak 104857600\n";
+        String end = "time_usec 10300000\npeak 104857600\n";
+
+        ResourceUsage usage = ResourceUsage.between(start, end);
+
+        assertEquals(300, usage.getWallTimeMs());
+        assertEquals(-1, usage.getPeakMemoryBytes());
+    }
+
+    @Test
+    public void testBetween_returnsNullWhenRunDidNotFinish() {
+        assertNull(ResourceUsage.between("time_usec 10000000\n", null));
+    }
+}
@@ -0,0 +1,152 @@
+package com.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+
+public class ResultCacheTest {
+
+    private static final DockerRunner.ExecutionResponse RESPONSE = new DockerRunner.ExecutionResponse(
+            "RESULT:{\"ok\":true}", 10L);
+
+    @Test
+    public void testGet_returnsCachedResponseWithoutRunningAgain() throws Exception {
+        // Arrange
+        ResultCache cache = new ResultCache(true, 60, 10);
+        AtomicInteger runs = new AtomicInteger();
+        ResultCache.Execution execution = () -> {
+            runs.incrementAndGet();
+            return RESPONSE;
+        };
+
+        // Act
+        cache.get("key", execution, response -> true);
+        DockerRunner.ExecutionResponse second = cache.get("key", execution, response -> true);
+
+        // Assert
+        assertSame(RESPONSE, second);
+        assertEquals(1, runs.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testGet_doesNotCacheRejectedResponses() throws Exception {
+        ResultCache cache = new ResultCache(true, 60, 10);
+        AtomicInteger runs = new AtomicInteger();
+
+        cache.get("key", () -> {
+            runs.incrementAndGet();
+            return RESPONSE;
+        }, response -> false);
+        cache.get("key", () -> {
+            runs.incrementAndGet();
+            return RESPONSE;
+        }, response -> false);
+
+        assertEquals(2, runs.get());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testGet_expiresEntriesAfterTtl() throws Exception {
+        ResultCache cache = new ResultCache(true, 0, 10);
+        AtomicInteger runs = new AtomicInteger();
+
+        cache.get("key", () -> {
+            runs.incrementAndGet();
+            return RESPONSE;
+        }, response -> true);
+        cache.get("key", () -> {
+            runs.incrementAndGet();
+            return RESPONSE;
+        }, response -> true);
+
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    public void testGet_evictsLeastRecentlyUsedPastMaxEntries() throws Exception {
+        // Arrange
+        ResultCache cache = new ResultCache(true, 60, 2);
+        AtomicInteger runs = new AtomicInteger();
+        ResultCache.Execution execution = () -> {
+            runs.incrementAndGet();
+            return RESPONSE;
+        };
+
+        // Act
+        cache.get("a", execution, response -> true);
+        cache.get("b", execution, response -> true);
+        cache.get("a", execution, response -> true);
+        cache.get("c", execution, response -> true);
+        cache.get("a", execution, response -> true);
+        cache.get("b", execution, response -> true);
+
+        // Assert
+        assertEquals(2, cache.getSize());
+        assertEquals(4, runs.get());
+    }
+
+    @Test
+    public void testGet_sharesConcurrentExecutionOfSameKey() throws Exception {
+        // Arrange
+        ResultCache cache = new ResultCache(true, 60, 10);
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // Act
+            Future<DockerRunner.ExecutionResponse> first = executor.submit(() -> cache.get("key", () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                release.await();
+                return RESPONSE;
+            }, response -> true));
+            started.await(1, TimeUnit.SECONDS);
+            Future<DockerRunner.ExecutionResponse> second = executor.submit(() -> cache.get("key", () -> {
+                runs.incrementAndGet();
+                return RESPONSE;
+            }, response -> true));
+            Thread.sleep(100);
+            release.countDown();
+
+            // Assert
+            assertSame(RESPONSE, first.get(1, TimeUnit.SECONDS));
+            assertSame(RESPONSE, second.get(1, TimeUnit.SECONDS));
+            assertEquals(1, runs.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGet_runsDirectlyWhenDisabled() throws Exception {
+        ResultCache cache = new ResultCache(false, 60, 10);
+
+        cache.get("key", () -> RESPONSE, response -> true);
+
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void testKey_changesWithRunnerImage() {
+        ResultCache cache = new ResultCache(true, 60, 10);
+
+        String first = cache.key("python", "sha256:one", "main.py", "print(1)".getBytes());
+        String second = cache.key("python", "sha256:two", "main.py", "print(1)".getBytes());
+
+        assertNotEquals(first, second);
+    }
+}
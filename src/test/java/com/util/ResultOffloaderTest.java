@@ -0,0 +1,170 @@
+package com.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+@ExtendWith(MockitoExtension.class)
+public class ResultOffloaderTest {
+
+    @Mock
+    private S3AsyncClient s3AsyncClient;
+
+    @Test
+    public void testShouldOffload_countsEncodedBytes() {
+        ResultOffloader offloader = new ResultOffloader(s3AsyncClient, "bucket", 30, "results/", 0,
+                new SimpleMeterRegistry());
+        ResultOffloader disabled = new ResultOffloader(s3AsyncClient, "bucket", 0, "results/", 0,
+                new SimpleMeterRegistry());
+
+        assertFalse(offloader.shouldOffload("a".repeat(30)));
+        assertTrue(offloader.shouldOffload("a".repeat(31)));
+        // Twenty characters, forty bytes.
+        assertTrue(offloader.shouldOffload("é".repeat(20)));
+        assertFalse(disabled.shouldOffload("a".repeat(1000)));
+    }
+
+    @Test
+    public void testUpload_storesGzippedBodyInOneRequest() throws Exception {
+        // Arrange
+        ResultOffloader offloader = new ResultOffloader(s3AsyncClient, "bucket", 10, "results/", 0,
+                new SimpleMeterRegistry());
+        String body = "{\"jobId\":\"job-1\",\"result\":{\"output\":\"" + "line\\n".repeat(1000) + "\"}}";
+        ArgumentCaptor<AsyncRequestBody> bodyCaptor = ArgumentCaptor.forClass(AsyncRequestBody.class);
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), bodyCaptor.capture()))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+
+        // Act
+        ResultOffloader.Location location = offloader.upload("job-1", body).get();
+
+        // Assert
+        ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3AsyncClient).putObject(requestCaptor.capture(), any(AsyncRequestBody.class));
+        assertEquals("bucket", location.getBucket());
+        assertEquals(requestCaptor.getValue().key(), location.getKey());
+        assertTrue(location.getKey().startsWith("results/job-1-") && location.getKey().endsWith(".json.gz"));
+        assertEquals(body.length(), location.getBytes());
+        assertTrue(location.getCompressedBytes() < location.getBytes() / 10);
+
+        byte[] stored = read(bodyCaptor.getValue());
+        assertEquals(location.getCompressedBytes(), stored.length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(stored))) {
+            assertEquals(body, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testUpload_sendsLargeBodyInPartsAndCompletesThemInOrder() throws Exception {
+        // Arrange
+        ResultOffloader offloader = new ResultOffloader(s3AsyncClient, "bucket", 10, "results/", 0,
+                new SimpleMeterRegistry());
+        String body = incompressible(7 * 1024 * 1024);
+        when(s3AsyncClient.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(
+                        CreateMultipartUploadResponse.builder().uploadId("upload-1").build()));
+        when(s3AsyncClient.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class)))
+                .thenAnswer(invocation -> {
+                    UploadPartRequest request = invocation.getArgument(0);
+                    return CompletableFuture.completedFuture(
+                            UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build());
+                });
+        when(s3AsyncClient.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(CompleteMultipartUploadResponse.builder().build()));
+
+        // Act
+        ResultOffloader.Location location = offloader.upload("job-2", body).get();
+
+        // Assert
+        ArgumentCaptor<UploadPartRequest> partCaptor = ArgumentCaptor.forClass(UploadPartRequest.class);
+        verify(s3AsyncClient, times(2)).uploadPart(partCaptor.capture(), any(AsyncRequestBody.class));
+        assertEquals(5L * 1024 * 1024, partCaptor.getAllValues().get(0).contentLength());
+        assertEquals(location.getCompressedBytes() - 5L * 1024 * 1024,
+                partCaptor.getAllValues().get(1).contentLength());
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor = ArgumentCaptor
+                .forClass(CompleteMultipartUploadRequest.class);
+        verify(s3AsyncClient).completeMultipartUpload(completeCaptor.capture());
+        List<CompletedPart> parts = completeCaptor.getValue().multipartUpload().parts();
+        assertEquals("upload-1", completeCaptor.getValue().uploadId());
+        assertEquals(List.of("etag-1", "etag-2"), parts.stream().map(CompletedPart::eTag).toList());
+        verify(s3AsyncClient, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    public void testUpload_abortsPartsWhenOneFails() {
+        // Arrange
+        ResultOffloader offloader = new ResultOffloader(s3AsyncClient, "bucket", 10, "results/", 0,
+                new SimpleMeterRegistry());
+        when(s3AsyncClient.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(
+                        CreateMultipartUploadResponse.builder().uploadId("upload-1").build()));
+        when(s3AsyncClient.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(UploadPartResponse.builder().eTag("etag").build()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("connection reset")));
+
+        // Act
+        CompletableFuture<ResultOffloader.Location> upload = offloader.upload("job-3",
+                incompressible(7 * 1024 * 1024));
+
+        // Assert
+        assertThrows(ExecutionException.class, upload::get);
+        ArgumentCaptor<AbortMultipartUploadRequest> abortCaptor = ArgumentCaptor
+                .forClass(AbortMultipartUploadRequest.class);
+        verify(s3AsyncClient).abortMultipartUpload(abortCaptor.capture());
+        assertEquals("upload-1", abortCaptor.getValue().uploadId());
+        verify(s3AsyncClient, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    // Random base64 still gzips to about three quarters of its size.
+    private static String incompressible(int chars) {
+        byte[] random = new byte[chars * 3 / 4];
+        new Random(42).nextBytes(random);
+        return Base64.getEncoder().encodeToString(random);
+    }
+
+    private static byte[] read(AsyncRequestBody body) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.subscribe((ByteBuffer buffer) -> {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            out.write(bytes, 0, bytes.length);
+        }).get();
+        return out.toByteArray();
+    }
+}
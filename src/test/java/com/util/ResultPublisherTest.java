@@ -1,21 +1,39 @@
 package com.util;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import static org.mockito.ArgumentMatchers.any;
 import org.mockito.Mock;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
 import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
 import software.amazon.awssdk.services.sqs.model.SqsException;
 
@@ -26,80 +44,230 @@ public class ResultPublisherTest {
     private SqsClient sqsClient;
 
     @Mock
-    private ObjectMapper objectMapper;
+    private S3AsyncClient s3AsyncClient;
 
     private ResultPublisher resultPublisher;
 
     private final String QUEUE_URL = "https://sqs.example.com/queue";
     private final String JOB_ID = "job-123";
-    private final String RESULT = "test result";
+    private final String MESSAGE = "test message";
 
     @BeforeEach
     public void setup() {
-        resultPublisher = new ResultPublisher(sqsClient, objectMapper);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ResultOffloader resultOffloader = new ResultOffloader(s3AsyncClient, "bucket", 1024, "results/", 0,
+                meterRegistry);
+        resultPublisher = new ResultPublisher(sqsClient, resultOffloader, meterRegistry, 60000);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        resultPublisher.shutdown();
     }
 
     @Test
-    public void testPublishResult_Success() throws JsonProcessingException {
+    public void testPublishResult_Success() throws Exception {
         // Arrange
-        String expectedJson = "{\"jobId\":\"job-123\",\"result\":\"test result\"}";
-        when(objectMapper.writeValueAsString(any())).thenReturn(expectedJson);
+        String expectedJson = "{\"jobId\":\"job-123\",\"result\":{\"jobId\":\"job-123\",\"status\":\"error\","
+                + "\"message\":\"test message\"}}";
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(SendMessageBatchResponse.builder().build());
 
         // Act
-        resultPublisher.publishResult(QUEUE_URL, JOB_ID, RESULT);
+        CompletableFuture<String> published = resultPublisher.publishResult(QUEUE_URL, error(JOB_ID));
+        resultPublisher.flush();
+        String body = published.get();
 
         // Assert
-        ArgumentCaptor<SendMessageRequest> requestCaptor = ArgumentCaptor.forClass(SendMessageRequest.class);
-        verify(sqsClient).sendMessage(requestCaptor.capture());
+        ArgumentCaptor<SendMessageBatchRequest> requestCaptor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient).sendMessageBatch(requestCaptor.capture());
 
-        SendMessageRequest capturedRequest = requestCaptor.getValue();
+        SendMessageBatchRequest capturedRequest = requestCaptor.getValue();
         assertEquals(QUEUE_URL, capturedRequest.queueUrl());
-        assertEquals(expectedJson, capturedRequest.messageBody());
+        assertEquals(1, capturedRequest.entries().size());
+        assertEquals(expectedJson, capturedRequest.entries().get(0).messageBody());
+        assertEquals(expectedJson, body);
+    }
 
-        ArgumentCaptor<ResultPublisher.ResultMessage> messageCaptor = ArgumentCaptor
-                .forClass(ResultPublisher.ResultMessage.class);
-        verify(objectMapper).writeValueAsString(messageCaptor.capture());
+    @Test
+    public void testPublishResult_OffloadsLargeResultAndSendsPointer() throws Exception {
+        // Arrange
+        JobResult result = new JobResult(JOB_ID, JobResult.Status.RUNTIME_ERROR);
+        result.setMessage(MESSAGE);
+        result.setStderr("x".repeat(4096));
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(SendMessageBatchResponse.builder().build());
+
+        // Act
+        CompletableFuture<String> published = resultPublisher.publishResult(QUEUE_URL, result);
+        resultPublisher.flush();
+        String body = published.get();
 
-        ResultPublisher.ResultMessage capturedMessage = messageCaptor.getValue();
-        assertEquals(JOB_ID, capturedMessage.getJobId());
-        assertEquals(RESULT, capturedMessage.getResult());
+        // Assert
+        ArgumentCaptor<PutObjectRequest> putCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3AsyncClient).putObject(putCaptor.capture(), any(AsyncRequestBody.class));
+        assertEquals("bucket", putCaptor.getValue().bucket());
+        assertEquals("gzip", putCaptor.getValue().contentEncoding());
+        assertTrue(putCaptor.getValue().key().startsWith("results/job-123-"));
+
+        ArgumentCaptor<SendMessageBatchRequest> requestCaptor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient).sendMessageBatch(requestCaptor.capture());
+        String sent = requestCaptor.getValue().entries().get(0).messageBody();
+        assertEquals(body, sent);
+        assertTrue(sent.contains("\"status\":\"runtime_error\",\"message\":\"test message\",\"offloaded\":{"
+                + "\"bucket\":\"bucket\",\"key\":\"" + putCaptor.getValue().key() + "\",\"encoding\":\"gzip\""));
+        assertFalse(sent.contains("xxxx"));
     }
 
     @Test
-    public void testPublishResult_JsonProcessingException() throws JsonProcessingException {
+    public void testPublishResult_SqsException() {
         // Arrange
-        when(objectMapper.writeValueAsString(any())).thenThrow(new JsonProcessingException("Serialization error") {
-        });
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenThrow(SqsException.builder().message("SQS error").build());
+        when(sqsClient.sendMessage(any(SendMessageRequest.class)))
+                .thenThrow(SqsException.builder().message("SQS error").build());
 
         // Act
-        resultPublisher.publishResult(QUEUE_URL, JOB_ID, RESULT);
+        resultPublisher.publishResult(QUEUE_URL, error(JOB_ID));
+        resultPublisher.flush();
 
         // Assert
-        verify(sqsClient, never()).sendMessage(any(SendMessageRequest.class));
+        verify(sqsClient).sendMessageBatch(any(SendMessageBatchRequest.class));
+        verify(sqsClient).sendMessage(any(SendMessageRequest.class));
     }
 
     @Test
-    public void testPublishResult_SqsException() throws JsonProcessingException {
+    public void testPublishResult_NeverAcknowledgesUnsentResult() {
         // Arrange
-        String expectedJson = "{\"jobId\":\"job-123\",\"result\":\"test result\"}";
-        when(objectMapper.writeValueAsString(any())).thenReturn(expectedJson);
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenThrow(SqsException.builder().message("SQS error").build());
         when(sqsClient.sendMessage(any(SendMessageRequest.class)))
                 .thenThrow(SqsException.builder().message("SQS error").build());
 
         // Act
-        resultPublisher.publishResult(QUEUE_URL, JOB_ID, RESULT);
+        CompletableFuture<String> published = resultPublisher.publishResult(QUEUE_URL, error(JOB_ID))
+                .thenApply(body -> {
+                    resultPublisher.acknowledge("request-queue", "receipt-1");
+                    return body;
+                });
+        resultPublisher.flush();
 
         // Assert
-        verify(sqsClient).sendMessage(any(SendMessageRequest.class));
+        assertThrows(ExecutionException.class, published::get);
+        verify(sqsClient, never()).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+        assertEquals(0, resultPublisher.getPendingCount());
+    }
+
+    @Test
+    public void testPublishResult_RetriesFailedEntriesIndividually() {
+        // Arrange
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(SendMessageBatchResponse.builder()
+                        .failed(BatchResultErrorEntry.builder().id("1").code("InternalError").senderFault(false)
+                                .build())
+                        .build());
+
+        // Act
+        resultPublisher.publishResult(QUEUE_URL, error("a"));
+        resultPublisher.publishResult(QUEUE_URL, error("b"));
+        resultPublisher.flush();
+
+        // Assert
+        ArgumentCaptor<SendMessageRequest> requestCaptor = ArgumentCaptor.forClass(SendMessageRequest.class);
+        verify(sqsClient).sendMessage(requestCaptor.capture());
+        assertTrue(requestCaptor.getValue().messageBody().startsWith("{\"jobId\":\"b\""));
     }
 
     @Test
-    public void testResultMessage() {
-        // Arrange & Act
-        ResultPublisher.ResultMessage message = new ResultPublisher.ResultMessage(JOB_ID, RESULT);
+    public void testPublishResult_SplitsIntoBatchesOfTen() {
+        // Arrange
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(SendMessageBatchResponse.builder().build());
+
+        // Act
+        for (int i = 0; i < 25; i++) {
+            resultPublisher.publishResult(QUEUE_URL, error("job-" + i));
+        }
+        resultPublisher.flush();
 
         // Assert
-        assertEquals(JOB_ID, message.getJobId());
-        assertEquals(RESULT, message.getResult());
+        ArgumentCaptor<SendMessageBatchRequest> requestCaptor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient, atLeast(3)).sendMessageBatch(requestCaptor.capture());
+        int sent = 0;
+        for (SendMessageBatchRequest request : requestCaptor.getAllValues()) {
+            assertTrue(request.entries().size() <= 10);
+            sent += request.entries().size();
+        }
+        assertEquals(25, sent);
+    }
+
+    @Test
+    public void testForward_SplitsBatchesAtSqsPayloadLimit() {
+        // Arrange
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(SendMessageBatchResponse.builder().build());
+        String body = "x".repeat(100 * 1024);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            resultPublisher.forward(QUEUE_URL, body);
+        }
+        resultPublisher.flush();
+
+        // Assert
+        ArgumentCaptor<SendMessageBatchRequest> requestCaptor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient, times(3)).sendMessageBatch(requestCaptor.capture());
+        int sent = 0;
+        for (SendMessageBatchRequest request : requestCaptor.getAllValues()) {
+            int bytes = request.entries().stream().mapToInt(entry -> entry.messageBody().length()).sum();
+            assertTrue(bytes <= 256 * 1024);
+            sent += request.entries().size();
+        }
+        assertEquals(5, sent);
+    }
+
+    @Test
+    public void testAcknowledge_DeletesInBatchAfterResults() {
+        // Arrange
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(SendMessageBatchResponse.builder().build());
+        when(sqsClient.deleteMessageBatch(any(DeleteMessageBatchRequest.class)))
+                .thenReturn(DeleteMessageBatchResponse.builder().build());
+
+        // Act
+        resultPublisher.publishResult(QUEUE_URL, error(JOB_ID));
+        resultPublisher.acknowledge("request-queue", "receipt-1");
+        resultPublisher.acknowledge("request-queue", "receipt-2");
+        resultPublisher.flush();
+
+        // Assert
+        InOrder inOrder = inOrder(sqsClient);
+        inOrder.verify(sqsClient).sendMessageBatch(any(SendMessageBatchRequest.class));
+        ArgumentCaptor<DeleteMessageBatchRequest> deleteCaptor = ArgumentCaptor
+                .forClass(DeleteMessageBatchRequest.class);
+        inOrder.verify(sqsClient).deleteMessageBatch(deleteCaptor.capture());
+        assertEquals("request-queue", deleteCaptor.getValue().queueUrl());
+        assertEquals(2, deleteCaptor.getValue().entries().size());
+        assertEquals("receipt-1", deleteCaptor.getValue().entries().get(0).receiptHandle());
+    }
+
+    @Test
+    public void testShutdown_FlushesPendingEntries() {
+        // Arrange
+        when(sqsClient.deleteMessageBatch(any(DeleteMessageBatchRequest.class)))
+                .thenReturn(DeleteMessageBatchResponse.builder().build());
+        resultPublisher.acknowledge("request-queue", "receipt-1");
+
+        // Act
+        resultPublisher.shutdown();
+
+        // Assert
+        verify(sqsClient).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+    }
+
+    private JobResult error(String jobId) {
+        return JobResult.error(jobId, JobResult.Status.ERROR, MESSAGE);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,71 @@
+package com.util;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.model.TestCase;
+
+public class TestCaseBatchTest {
+
+    @TempDir
+    private Path workspace;
+
+    @Test
+    public void testScript_runsEveryCaseWithItsInputAndLimits() throws Exception {
+        // Arrange
+        Path program = workspace.resolve("prog.sh");
+        Files.writeString(program, "read line\n"
+                + "case \"$line\" in\n"
+                + "  sleep) sleep 5 ;;\n"
+                + "  fail) echo oops; echo broken >&2; exit 3 ;;\n"
+                + "  big) yes | head -c 100 ;;\n"
+                + "  *) echo \"$line\"; echo debug >&2 ;;\n"
+                + "esac\n");
+        TestCaseBatch batch = new TestCaseBatch(List.of(
+                new TestCase("echo", "hello\n", "hello  \n\n"),
+                new TestCase("wrong", "hello\n", "bye"),
+                new TestCase(null, "sleep\n", null),
+                new TestCase("fail", "fail\n", null),
+                new TestCase("big", "big\n", null),
+                new TestCase("free", "anything\n", null)), 500, 16);
+        batch.writeInputs(workspace);
+        // The script addresses the container's /app mount.
+        String script = batch.script("sh /app/prog.sh").replace("/app/", workspace + "/");
+
+        // Act
+        Process process = new ProcessBuilder("sh", "-c", script).start();
+        process.waitFor();
+        List<CaseResult> results = batch.readResults(workspace);
+
+        // Assert
+        assertEquals(CaseResult.Verdict.ACCEPTED, results.get(0).getVerdict());
+        assertEquals("hello\n", results.get(0).getOutput());
+        assertEquals("debug\n", results.get(0).getStderr());
+        assertEquals(CaseResult.Verdict.WRONG_ANSWER, results.get(1).getVerdict());
+        assertEquals("3", results.get(2).getName());
+        assertEquals(CaseResult.Verdict.TIME_LIMIT_EXCEEDED, results.get(2).getVerdict());
+        assertEquals(CaseResult.Verdict.RUNTIME_ERROR, results.get(3).getVerdict());
+        assertEquals(3, results.get(3).getExitCode());
+        assertEquals("oops\n", results.get(3).getOutput());
+        assertEquals("broken\n", results.get(3).getStderr());
+        assertEquals(CaseResult.Verdict.OUTPUT_LIMIT_EXCEEDED, results.get(4).getVerdict());
+        assertEquals(16, results.get(4).getOutput().length());
+        assertEquals(CaseResult.Verdict.COMPLETED, results.get(5).getVerdict());
+    }
+
+    @Test
+    public void testReadResults_marksCasesThatNeverRan() throws Exception {
+        TestCaseBatch batch = new TestCaseBatch(List.of(new TestCase("only", "", null)), 500, 16);
+        batch.writeInputs(workspace);
+
+        List<CaseResult> results = batch.readResults(workspace);
+
+        assertEquals(CaseResult.Verdict.NOT_RUN, results.get(0).getVerdict());
+        assertEquals(-1, results.get(0).getExitCode());
+    }
+}
@@ -0,0 +1,260 @@
+package com.util.docker;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.URLEncoder;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class DockerEngineRuntimeTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private StubDaemon daemon;
+    private DockerEngineRuntime runtime;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        Path socket = tempDir.resolve("docker.sock");
+        daemon = new StubDaemon(socket);
+        runtime = new DockerEngineRuntime(new UnixSocketHttpClient(socket), objectMapper);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        runtime.shutdown();
+        daemon.close();
+    }
+
+    @Test
+    public void testCreate_sendsSandboxSettings() throws Exception {
+        daemon.handle("POST /v1.41/containers/create?name=job-1", request -> chunkedJson("{\"Id\":\"abc\"}"));
+
+        ContainerSpec spec = new ContainerSpec("job-1", "tkoppine/python-runner", List.of("sleep", "infinity"))
+                .bind("/tmp/job", "/app")
+                .tmpfs("/tmp", "rw,size=64m")
+                .readOnlyRootfs(true)
+                .memoryBytes(256L * 1024 * 1024)
+                .pidsLimit(64)
+                .networkDisabled(true);
+
+        assertEquals("abc", runtime.create(spec));
+
+        JsonNode created = objectMapper.readTree(daemon.bodyOf("POST /v1.41/containers/create?name=job-1"));
+        assertEquals("tkoppine/python-runner", created.get("Image").asText());
+        assertEquals("infinity", created.get("Cmd").get(1).asText());
+        assertEquals("/tmp/job:/app", created.get("HostConfig").get("Binds").get(0).asText());
+        assertEquals("rw,size=64m", created.get("HostConfig").get("Tmpfs").get("/tmp").asText());
+        assertTrue(created.get("HostConfig").get("ReadonlyRootfs").asBoolean());
+        assertEquals(256L * 1024 * 1024, created.get("HostConfig").get("Memory").asLong());
+        assertEquals(64, created.get("HostConfig").get("PidsLimit").asInt());
+        assertEquals("none", created.get("HostConfig").get("NetworkMode").asText());
+    }
+
+    @Test
+    public void testExec_separatesStdoutAndStderr() throws Exception {
+        daemon.handle("POST /v1.41/containers/abc/exec", request -> json(201, "{\"Id\":\"exec-2\"}"));
+        daemon.handle("POST /v1.41/exec/exec-2/start",
+                request -> raw(200, concat(frame(1, "hello\n"), frame(2, "oops\n"), frame(1, "RESULT:{}\n"))));
+        daemon.handle("GET /v1.41/exec/exec-2/json", request -> json(200, "{\"ExitCode\":3,\"Running\":false}"));
+
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        ContainerResult result = runtime.exec("abc", List.of("sh", "-c", "python x.py"), stdout::write,
+                stderr::write, 5000);
+
+        assertEquals(3, result.getExitCode());
+        assertFalse(result.isTimedOut());
+        assertEquals("hello\nRESULT:{}\n", stdout.toString(StandardCharsets.UTF_8));
+        assertEquals("oops\n", stderr.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testExec_returnsExitCodeOfExecInstance() throws Exception {
+        daemon.handle("POST /v1.41/containers/warm-1/exec", request -> json(201, "{\"Id\":\"exec-1\"}"));
+        daemon.handle("POST /v1.41/exec/exec-1/start", request -> raw(200, frame(1, "RESULT:{\"ok\":true}\n")));
+        daemon.handle("GET /v1.41/exec/exec-1/json", request -> json(200, "{\"ExitCode\":0,\"Running\":false}"));
+
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ContainerResult result = runtime.exec("warm-1", List.of("sh", "-c", "python /app/x.py"), stdout::write,
+                OutputSink.DISCARD, 5000);
+
+        assertEquals(0, result.getExitCode());
+        assertEquals("RESULT:{\"ok\":true}\n", stdout.toString(StandardCharsets.UTF_8));
+        JsonNode execBody = objectMapper.readTree(daemon.bodyOf("POST /v1.41/containers/warm-1/exec"));
+        assertEquals("python /app/x.py", execBody.get("Cmd").get(2).asText());
+    }
+
+    @Test
+    public void testIsRunning_readsContainerState() throws Exception {
+        daemon.handle("GET /v1.41/containers/warm-1/json", request -> json(200, "{\"State\":{\"Running\":true}}"));
+        daemon.handle("GET /v1.41/containers/gone/json", request -> json(404, "{\"message\":\"No such container\"}"));
+
+        assertTrue(runtime.isRunning("warm-1"));
+        assertFalse(runtime.isRunning("gone"));
+    }
+
+    @Test
+    public void testList_filtersContainersByEveryLabel() throws Exception {
+        daemon.handle("GET /v1.41/containers/json?all=true&filters="
+                + URLEncoder.encode("{\"label\":[\"pool=yes\"]}", StandardCharsets.UTF_8),
+                request -> json(200, "[{\"Id\":\"abc\"},{\"Id\":\"def\"}]"));
+
+        assertEquals(List.of("abc", "def"), runtime.list(Map.of("pool", "yes")));
+    }
+
+    @Test
+    public void testImageId_readsIdOfImage() throws Exception {
+        daemon.handle("GET /v1.41/images/tkoppine/java-runner/json", request -> json(200, "{\"Id\":\"sha256:feed\"}"));
+
+        assertEquals("sha256:feed", runtime.imageId("tkoppine/java-runner"));
+    }
+
+    @Test
+    public void testCreate_surfacesEngineErrorMessage() {
+        daemon.handle("POST /v1.41/containers/create?name=job-2",
+                request -> json(404, "{\"message\":\"No such image: missing\"}"));
+
+        IOException error = assertThrows(IOException.class,
+                () -> runtime.create(new ContainerSpec("job-2", "missing", List.of("true"))));
+        assertTrue(error.getMessage().contains("No such image: missing"));
+    }
+
+    private static byte[] frame(int stream, String payload) {
+        byte[] data = payload.getBytes(StandardCharsets.UTF_8);
+        byte[] frame = new byte[8 + data.length];
+        frame[0] = (byte) stream;
+        frame[4] = (byte) (data.length >>> 24);
+        frame[5] = (byte) (data.length >>> 16);
+        frame[6] = (byte) (data.length >>> 8);
+        frame[7] = (byte) data.length;
+        System.arraycopy(data, 0, frame, 8, data.length);
+        return frame;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] json(int status, String body) {
+        byte[] data = body.getBytes(StandardCharsets.UTF_8);
+        return concat(("HTTP/1.1 " + status + " X\r\nContent-Type: application/json\r\nContent-Length: "
+                + data.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII), data);
+    }
+
+    private static byte[] chunkedJson(String body) {
+        byte[] data = body.getBytes(StandardCharsets.UTF_8);
+        int half = data.length / 2;
+        return concat("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n".getBytes(StandardCharsets.US_ASCII),
+                (Integer.toHexString(half) + "\r\n").getBytes(StandardCharsets.US_ASCII),
+                Arrays.copyOfRange(data, 0, half), "\r\n".getBytes(StandardCharsets.US_ASCII),
+                (Integer.toHexString(data.length - half) + "\r\n").getBytes(StandardCharsets.US_ASCII),
+                Arrays.copyOfRange(data, half, data.length),
+                "\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] raw(int status, byte[] body) {
+        return concat(("HTTP/1.1 " + status + " OK\r\nContent-Type: application/vnd.docker.raw-stream\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII), body);
+    }
+
+    private static byte[] empty(int status) {
+        return ("HTTP/1.1 " + status + " X\r\nContent-Length: 0\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Serves canned responses on a Unix socket, one request per connection.
+     */
+    private static class StubDaemon implements AutoCloseable {
+        private final ServerSocketChannel server;
+        private final Map<String, Function<byte[], byte[]>> handlers = new ConcurrentHashMap<>();
+        private final Map<String, byte[]> bodies = new ConcurrentHashMap<>();
+        private final List<String> requests = new CopyOnWriteArrayList<>();
+        private final Thread acceptor;
+
+        StubDaemon(Path socket) throws IOException {
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(UnixDomainSocketAddress.of(socket));
+            acceptor = new Thread(this::acceptLoop, "stub-docker-daemon");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        void handle(String requestLine, Function<byte[], byte[]> handler) {
+            handlers.put(requestLine, handler);
+        }
+
+        byte[] bodyOf(String requestLine) {
+            return bodies.get(requestLine);
+        }
+
+        private void acceptLoop() {
+            while (server.isOpen()) {
+                try (SocketChannel channel = server.accept()) {
+                    serve(channel);
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(SocketChannel channel) throws IOException {
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel));
+            String[] requestLine = UnixSocketHttpClient.readLine(in).split(" ");
+            String key = requestLine[0] + " " + requestLine[1];
+            int contentLength = 0;
+            String header;
+            while (!(header = UnixSocketHttpClient.readLine(in)).isEmpty()) {
+                if (header.toLowerCase().startsWith("content-length:")) {
+                    contentLength = Integer.parseInt(header.substring(15).trim());
+                }
+            }
+            byte[] body = in.readNBytes(contentLength);
+            requests.add(key);
+            bodies.put(key, body);
+
+            Function<byte[], byte[]> handler = handlers.get(key);
+            byte[] response = handler != null ? handler.apply(body) : json(404, "{\"message\":\"no stub\"}");
+            OutputStream out = Channels.newOutputStream(channel);
+            out.write(response);
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+    }
+}